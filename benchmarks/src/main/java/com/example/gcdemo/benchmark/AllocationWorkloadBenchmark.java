@@ -0,0 +1,118 @@
+package com.example.gcdemo.benchmark;
+
+import com.example.gcdemo.cache.EvictionPolicy;
+import com.example.gcdemo.service.AllocationAccountingService;
+import com.example.gcdemo.service.AllocationProfileService;
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.AllocationProfileService.BufferStrategy;
+import com.example.gcdemo.service.AllocationProfileService.FillStrategy;
+import com.example.gcdemo.service.AllocationProfileService.ObjectShape;
+import com.example.gcdemo.service.AllocationProfileService.SizeDistribution;
+import com.example.gcdemo.service.BetterMemoryService;
+import com.example.gcdemo.service.EnhancedMemoryService;
+import com.example.gcdemo.service.LoadDriverService;
+import com.example.gcdemo.service.LongLivedStorageService;
+import com.example.gcdemo.service.LongLivedStorageService.StorageMode;
+import com.example.gcdemo.service.MemoryLoadService;
+import com.example.gcdemo.service.WorkloadExecutorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The three allocation workloads, called directly on the services - no HTTP,
+ * JSON or Tomcat in the measurement.
+ *
+ * Every operation allocates WORKLOAD_MB in chunks of sizeKB, so scores are
+ * comparable across chunk sizes. Services are built by hand with a
+ * SimpleMeterRegistry and shared by all benchmark threads, like the singleton
+ * beans in the running app.
+ *
+ * Collector and thread count are set per run by {@link GcBenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+public class AllocationWorkloadBenchmark {
+
+    // Bytes allocated by one operation, same as the JMeter plans' default request
+    private static final int WORKLOAD_MB = 32;
+    private static final int SHORT_LIVED_MB = 24;
+    private static final int LONG_LIVED_MB = 8;
+
+    @Param({"64", "1024", "10240"})
+    private int sizeKB;
+
+    // Copying a pattern keeps PRNG cost out of the score; RANDOM matches the app default
+    @Param({"PATTERN"})
+    private FillStrategy fill;
+
+    // Where the long-lived set of the mixed and natural workloads lives
+    @Param({"HEAP", "OFF_HEAP"})
+    private StorageMode storage;
+
+    // Where the short-lived byte[] units come from
+    @Param({"FRESH", "POOLED"})
+    private BufferStrategy buffers;
+
+    private AllocationProfile profile;
+    private WorkloadExecutorService executor;
+    private MemoryLoadService memoryLoadService;
+    private EnhancedMemoryService enhancedMemoryService;
+    private BetterMemoryService betterMemoryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AllocationProfileService profiles = new AllocationProfileService(registry, 256, 256, 5);
+
+        profile = new AllocationProfile(ObjectShape.BYTE_ARRAY, SizeDistribution.FIXED, sizeKB, 8, fill, buffers);
+        LongLivedStorageService longLivedStorage = new LongLivedStorageService(registry, storage, 64, 64);
+        // No HTTP requests here, so there is nothing to attribute allocations to
+        AllocationAccountingService accounting = new AllocationAccountingService(registry, false);
+        executor = new WorkloadExecutorService(registry, accounting, 200, 0, 10_000);
+        memoryLoadService = new MemoryLoadService(registry, profiles, new LoadDriverService(registry), executor);
+        enhancedMemoryService = new EnhancedMemoryService(
+            registry, profiles, executor, longLivedStorage, EvictionPolicy.FIFO, 200);
+        betterMemoryService = new BetterMemoryService(
+            registry, profiles, executor, longLivedStorage, 65536, 200, 20, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        enhancedMemoryService.clearCache();
+        betterMemoryService.clearSurvivors();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public MemoryLoadService.AllocationResult allocateAndDiscard() {
+        return memoryLoadService.allocateAndDiscard(WORKLOAD_MB * 1024 / sizeKB, profile);
+    }
+
+    @Benchmark
+    public EnhancedMemoryService.AllocationResult mixedWorkload() {
+        return enhancedMemoryService.mixedWorkload(SHORT_LIVED_MB, LONG_LIVED_MB, profile);
+    }
+
+    @Benchmark
+    public BetterMemoryService.AllocationResult naturalGenerationalWorkload() {
+        return betterMemoryService.naturalGenerationalWorkload(SHORT_LIVED_MB, LONG_LIVED_MB, profile);
+    }
+}
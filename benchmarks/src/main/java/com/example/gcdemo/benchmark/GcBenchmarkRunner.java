@@ -0,0 +1,88 @@
+package com.example.gcdemo.benchmark;
+
+import com.example.gcdemo.orchestrator.Collector;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs {@link AllocationWorkloadBenchmark} once per collector and thread count.
+ *
+ * Each run forks a JVM with the collector's flags and the GC profiler attached
+ * (the equivalent of -prof gc), writing:
+ *   results/jmh-{collector}-t{threads}.json - machine-readable scores
+ *   results/jmh-{collector}-t{threads}.txt  - the full JMH log including gc.alloc.rate, gc.count and gc.time
+ *
+ * System properties:
+ *   -Dcollectors=G1,PARALLEL,SERIAL,ZGC,ZGC_GENERATIONAL  (default: all)
+ *   -Dthreads=1,4                                         (default: 1,4)
+ *   -Dheap=1g                                             (default: 1g)
+ *   -Dsizes=64,1024,10240                                 (default: the @Param values)
+ *   -Dfills=NONE,TOUCH_PAGE,PATTERN,RANDOM                (default: PATTERN)
+ *   -Dresults=results                                     (default: results)
+ *   -Dquick=true   one short warmup and measurement iteration, for smoke runs
+ */
+public class GcBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        List<Collector> collectors = new ArrayList<>();
+        for (String name : csv("collectors", "G1,PARALLEL,SERIAL,ZGC,ZGC_GENERATIONAL")) {
+            collectors.add(Collector.valueOf(name.toUpperCase()));
+        }
+        List<String> threadCounts = csv("threads", "1,4");
+        String heap = System.getProperty("heap", "1g");
+        String sizes = System.getProperty("sizes");
+        String fills = System.getProperty("fills");
+        File resultsDir = new File(System.getProperty("results", "results"));
+        boolean quick = Boolean.getBoolean("quick");
+        resultsDir.mkdirs();
+
+        for (Collector collector : collectors) {
+            for (String threads : threadCounts) {
+                String name = "jmh-" + collector.name().toLowerCase() + "-t" + threads;
+
+                List<String> jvmArgs = new ArrayList<>(List.of("-Xms" + heap, "-Xmx" + heap));
+                jvmArgs.addAll(collector.flags());
+
+                ChainedOptionsBuilder options = new OptionsBuilder()
+                        .include(AllocationWorkloadBenchmark.class.getSimpleName())
+                        .forks(1)
+                        .threads(Integer.parseInt(threads))
+                        .jvmArgs(jvmArgs.toArray(String[]::new))
+                        .addProfiler(GCProfiler.class)
+                        .resultFormat(ResultFormatType.JSON)
+                        .result(new File(resultsDir, name + ".json").getPath())
+                        .output(new File(resultsDir, name + ".txt").getPath());
+
+                if (sizes != null) {
+                    options.param("sizeKB", sizes.split(","));
+                }
+                if (fills != null) {
+                    options.param("fill", fills.split(","));
+                }
+                if (quick) {
+                    options.warmupIterations(1)
+                            .warmupTime(TimeValue.seconds(1))
+                            .measurementIterations(1)
+                            .measurementTime(TimeValue.seconds(1));
+                }
+
+                System.out.println("Running " + name + " " + jvmArgs);
+                new Runner(options.build()).run();
+            }
+        }
+    }
+
+    private static List<String> csv(String property, String defaultValue) {
+        return Arrays.asList(System.getProperty(property, defaultValue).split(","));
+    }
+}
@@ -1,12 +1,32 @@
 package com.example.gcdemo;
 
+import com.example.gcdemo.orchestrator.ComparisonOrchestrator;
+import com.example.gcdemo.orchestrator.HeapSizingSweep;
+import com.example.gcdemo.orchestrator.ReportDiff;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import java.util.Arrays;
+
 @SpringBootApplication
 public class GcCompareDemoApplication {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // "compare" runs the multi-JVM orchestrator, "diff" compares two of its
+        // reports, "sweep" searches for the smallest heap meeting a latency SLO;
+        // none of them starts the web application
+        if (args.length > 0 && args[0].equals("compare")) {
+            ComparisonOrchestrator.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("sweep")) {
+            HeapSizingSweep.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("diff")) {
+            ReportDiff.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         SpringApplication.run(GcCompareDemoApplication.class, args);
     }
 }
@@ -0,0 +1,13 @@
+package com.example.gcdemo.cache;
+
+/**
+ * Eviction policy of a {@link WeightedCache}.
+ */
+public enum EvictionPolicy {
+    /** Evict in insertion order (the original "oldest createdAt first" behaviour) */
+    FIFO,
+    /** Evict the least recently accessed entry */
+    LRU,
+    /** Window LRU + segmented LRU main area, admission by TinyLFU frequency sketch */
+    TINY_LFU
+}
@@ -0,0 +1,73 @@
+package com.example.gcdemo.cache;
+
+/**
+ * Count-min sketch estimating how often a key was accessed (TinyLFU).
+ *
+ * Four counters per key, capped at 15. When the number of increments reaches
+ * ten times the table size all counters are halved, so old popularity decays.
+ */
+final class FrequencySketch {
+
+    private static final int[] SEEDS = {0x97CB3127, 0xB6C92F47, 0x2A4C5A9D, 0x6F5A8E33};
+    private static final int MAX_COUNT = 15;
+    private static final int MIN_TABLE_SIZE = 64;
+    private static final int MAX_TABLE_SIZE = 1 << 24;
+
+    private int[] table = new int[MIN_TABLE_SIZE];
+    private int additions;
+
+    /**
+     * Grows the table for the given number of entries; resets the history.
+     */
+    void ensureCapacity(int entries) {
+        if (entries <= table.length || table.length >= MAX_TABLE_SIZE) {
+            return;
+        }
+        int size = Math.min(MAX_TABLE_SIZE, Integer.highestOneBit(entries - 1) << 1);
+        table = new int[size];
+        additions = 0;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        for (int seed : SEEDS) {
+            int index = indexOf(hash, seed);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+            }
+        }
+
+        if (++additions >= 10 * table.length) {
+            reset();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int seed : SEEDS) {
+            frequency = Math.min(frequency, table[indexOf(hash, seed)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+        additions >>>= 1;
+    }
+
+    private int indexOf(int hash, int seed) {
+        int index = (hash ^ seed) * 0x9E3779B9;
+        index ^= index >>> 16;
+        return index & (table.length - 1);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xED5AD4BB;
+        hash ^= hash >>> 11;
+        return hash;
+    }
+}
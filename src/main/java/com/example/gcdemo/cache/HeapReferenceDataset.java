@@ -0,0 +1,59 @@
+package com.example.gcdemo.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntFunction;
+
+/**
+ * Reference data as plain heap objects: one {@link Record}, String and byte[] per entry.
+ */
+public class HeapReferenceDataset implements ReferenceDataset {
+
+    // Object header + fields of Record, String and the two arrays (compressed oops)
+    private static final long OVERHEAD_PER_RECORD = 32 + 24 + 16 + 16;
+
+    private final Record[] records;
+    private final long dataBytes;
+    private final long heapBytes;
+
+    public HeapReferenceDataset(int size, IntFunction<Record> generator) {
+        this.records = new Record[size];
+        long data = 0;
+        long heap = 16 + 4L * size;
+        for (int i = 0; i < size; i++) {
+            Record record = generator.apply(i);
+            records[i] = record;
+            int nameBytes = record.name().getBytes(StandardCharsets.UTF_8).length;
+            data += MappedReferenceDataset.encodedLength(nameBytes, record.attributes().length);
+            heap += OVERHEAD_PER_RECORD + nameBytes + record.attributes().length;
+        }
+        this.dataBytes = data;
+        this.heapBytes = heap;
+    }
+
+    @Override
+    public <R> R read(int index, RecordReader<R> reader) {
+        Record record = records[index];
+        return reader.read(record.id(), record.name(), record.price(), ByteBuffer.wrap(record.attributes()));
+    }
+
+    @Override
+    public int size() {
+        return records.length;
+    }
+
+    @Override
+    public long dataBytes() {
+        return dataBytes;
+    }
+
+    @Override
+    public long heapBytes() {
+        return heapBytes;
+    }
+
+    @Override
+    public void close() {
+        // Left to the GC
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.gcdemo.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * FIFO or LRU cache on top of a LinkedHashMap (insertion or access order).
+ * The eldest entry is always at the head, so eviction is O(1).
+ */
+class LinkedWeightedCache<K, V> implements WeightedCache<K, V> {
+
+    private final EvictionPolicy policy;
+    private final long maximumWeight;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final Consumer<? super V> onRemoval;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Stats stats = new Stats();
+    private volatile long weightedSize;
+
+    LinkedWeightedCache(EvictionPolicy policy, long maximumWeight, boolean accessOrder, Consumer<? super V> onRemoval) {
+        this.policy = policy;
+        this.maximumWeight = maximumWeight;
+        this.entries = new LinkedHashMap<>(16, 0.75f, accessOrder);
+        this.onRemoval = onRemoval;
+    }
+
+    @Override
+    public V get(K key) {
+        Entry<V> entry;
+        lock.lock();
+        try {
+            // In access order, get() also moves the entry to the tail
+            entry = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+
+        if (entry == null) {
+            stats.misses.increment();
+            return null;
+        }
+        stats.hits.increment();
+        return entry.value;
+    }
+
+    @Override
+    public void put(K key, V value, long weight) {
+        lock.lock();
+        try {
+            Entry<V> previous = entries.put(key, new Entry<>(value, weight));
+            long size = weightedSize + weight;
+            if (previous != null) {
+                size -= previous.weight;
+                onRemoval.accept(previous.value);
+            }
+
+            Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+            while (size > maximumWeight && eldest.hasNext()) {
+                Entry<V> evicted = eldest.next().getValue();
+                eldest.remove();
+                size -= evicted.weight;
+                stats.evictions.increment();
+                stats.evictedWeight.add(evicted.weight);
+                onRemoval.accept(evicted.value);
+            }
+            weightedSize = size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            entries.values().forEach(entry -> onRemoval.accept(entry.value));
+            entries.clear();
+            weightedSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    @Override
+    public EvictionPolicy policy() {
+        return policy;
+    }
+
+    @Override
+    public Stats stats() {
+        return stats;
+    }
+
+    private record Entry<V>(V value, long weight) {}
+}
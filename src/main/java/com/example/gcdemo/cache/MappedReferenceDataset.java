@@ -0,0 +1,147 @@
+package com.example.gcdemo.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Reference data in a memory-mapped file.
+ *
+ * Records are written back to back ({@code id, price, name length, name,
+ * attributes length, attributes}) and the file is mapped read-only in regions
+ * of up to 1GB (a MappedByteBuffer is int-indexed); no record straddles two
+ * regions. The heap holds only the offset of every record, so the collector
+ * has next to nothing to mark, while the touched pages show up in RSS as page
+ * cache shared with the file.
+ *
+ * Reads decode the name into a new String and hand out a slice of the mapping
+ * for the attributes, without copying them.
+ */
+public class MappedReferenceDataset implements ReferenceDataset {
+
+    private static final long REGION_BYTES = 1L << 30;
+    private static final int FIXED_FIELD_BYTES = Long.BYTES + Double.BYTES + Short.BYTES + Integer.BYTES;
+
+    private final Path file;
+    private final long[] offsets;
+    private final long[] regionStarts;
+    private final MappedByteBuffer[] regions;
+    private final long dataBytes;
+
+    private MappedReferenceDataset(Path file, long[] offsets, long[] regionStarts, MappedByteBuffer[] regions,
+                                   long dataBytes) {
+        this.file = file;
+        this.offsets = offsets;
+        this.regionStarts = regionStarts;
+        this.regions = regions;
+        this.dataBytes = dataBytes;
+    }
+
+    static int encodedLength(int nameBytes, int attributeBytes) {
+        return FIXED_FIELD_BYTES + nameBytes + attributeBytes;
+    }
+
+    /**
+     * Writes {@code size} generated records to {@code file} (replacing it) and maps it.
+     * The file is deleted again by {@link #close()}.
+     */
+    public static MappedReferenceDataset create(Path file, int size, IntFunction<Record> generator) throws IOException {
+        long[] offsets = new long[size];
+        List<Long> regionStarts = new ArrayList<>(List.of(0L));
+        long offset = 0;
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (int i = 0; i < size; i++) {
+                Record record = generator.apply(i);
+                byte[] name = record.name().getBytes(StandardCharsets.UTF_8);
+                int length = encodedLength(name.length, record.attributes().length);
+                if (offset + length - regionStarts.get(regionStarts.size() - 1) > REGION_BYTES) {
+                    regionStarts.add(offset);
+                }
+                offsets[i] = offset;
+                out.writeLong(record.id());
+                out.writeDouble(record.price());
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeInt(record.attributes().length);
+                out.write(record.attributes());
+                offset += length;
+            }
+        }
+
+        long[] starts = regionStarts.stream().mapToLong(Long::longValue).toArray();
+        MappedByteBuffer[] regions = new MappedByteBuffer[starts.length];
+        try (FileChannel channel = FileChannel.open(file)) {
+            for (int r = 0; r < starts.length; r++) {
+                long end = r + 1 < starts.length ? starts[r + 1] : offset;
+                // The mapping stays valid after the channel is closed
+                regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, starts[r], end - starts[r]);
+            }
+        }
+        return new MappedReferenceDataset(file, offsets, starts, regions, offset);
+    }
+
+    @Override
+    public <R> R read(int index, RecordReader<R> reader) {
+        long offset = offsets[index];
+        int region = Arrays.binarySearch(regionStarts, offset);
+        if (region < 0) {
+            region = -region - 2;
+        }
+        ByteBuffer buffer = regions[region];
+        int position = (int) (offset - regionStarts[region]);
+
+        long id = buffer.getLong(position);
+        double price = buffer.getDouble(position + Long.BYTES);
+        int nameLength = buffer.getShort(position + Long.BYTES + Double.BYTES);
+        byte[] name = new byte[nameLength];
+        buffer.get(position + Long.BYTES + Double.BYTES + Short.BYTES, name);
+        int attributesAt = position + Long.BYTES + Double.BYTES + Short.BYTES + nameLength;
+        int attributesLength = buffer.getInt(attributesAt);
+
+        return reader.read(id, new String(name, StandardCharsets.UTF_8), price,
+            buffer.slice(attributesAt + Integer.BYTES, attributesLength));
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+
+    @Override
+    public long dataBytes() {
+        return dataBytes;
+    }
+
+    @Override
+    public long heapBytes() {
+        return 16 + 8L * offsets.length + 8L * regionStarts.length + 64L * regions.length;
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Deletes the file. The mapping itself is released when its buffers are
+     * collected (there is no supported way to unmap a MappedByteBuffer).
+     */
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Temp file; the OS cleans it up eventually
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.gcdemo.cache;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Slab allocator for long-lived bytes outside the Java heap.
+ *
+ * Memory is reserved in large direct-buffer slabs that are split into fixed-size
+ * blocks. A value occupies as many blocks as it needs (not necessarily adjacent);
+ * releasing it pushes its blocks onto a free-list that later values reuse. Slabs
+ * are never returned, so committed bytes only grow to the peak working set.
+ *
+ * The heap only holds a small {@link OffHeapValue} handle per value, so the GC
+ * neither marks nor copies the payload.
+ */
+public class OffHeapSlabStore {
+
+    private final int slabBytes;
+    private final int blockBytes;
+    private final int blocksPerSlab;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private int[] freeBlocks = new int[1024];
+    private int freeCount;
+    private volatile long usedBlocks;
+
+    /**
+     * @param slabBytes  bytes reserved per slab (a multiple of blockBytes)
+     * @param blockBytes allocation granularity
+     */
+    public OffHeapSlabStore(int slabBytes, int blockBytes) {
+        if (blockBytes < 1 || slabBytes < blockBytes || slabBytes % blockBytes != 0) {
+            throw new IllegalArgumentException(
+                "slabBytes must be a positive multiple of blockBytes: " + slabBytes + " / " + blockBytes);
+        }
+        this.slabBytes = slabBytes;
+        this.blockBytes = blockBytes;
+        this.blocksPerSlab = slabBytes / blockBytes;
+    }
+
+    /**
+     * Handle to a value stored off-heap. Release it exactly once; further releases are ignored.
+     */
+    public static final class OffHeapValue {
+        private final int[] blocks;
+        private final int length;
+        private boolean released;
+
+        private OffHeapValue(int[] blocks, int length) {
+            this.blocks = blocks;
+            this.length = length;
+        }
+
+        public int length() {
+            return length;
+        }
+    }
+
+    /**
+     * Copies the bytes into freshly reserved blocks.
+     */
+    public OffHeapValue store(byte[] data) {
+        OffHeapValue value = reserve(data.length);
+        for (int i = 0, offset = 0; offset < data.length; i++, offset += blockBytes) {
+            block(value.blocks[i]).put(0, data, offset, Math.min(blockBytes, data.length - offset));
+        }
+        return value;
+    }
+
+    /**
+     * Reserves {@code length} bytes and fills them with a repeating byte pattern,
+     * for values that have no byte[] form (object graphs, long[]).
+     */
+    public OffHeapValue store(int length, byte pattern) {
+        OffHeapValue value = reserve(length);
+        byte[] fill = new byte[Math.min(blockBytes, Math.max(1, length))];
+        Arrays.fill(fill, pattern);
+        for (int i = 0, offset = 0; offset < length; i++, offset += blockBytes) {
+            block(value.blocks[i]).put(0, fill, 0, Math.min(blockBytes, length - offset));
+        }
+        return value;
+    }
+
+    /**
+     * Reads one byte of a stored value.
+     */
+    public byte get(OffHeapValue value, int position) {
+        if (position < 0 || position >= value.length) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        return block(value.blocks[position / blockBytes]).get(position % blockBytes);
+    }
+
+    /**
+     * Returns the value's blocks to the free-list.
+     */
+    public void release(OffHeapValue value) {
+        lock.lock();
+        try {
+            if (value.released) {
+                return;
+            }
+            value.released = true;
+            for (int block : value.blocks) {
+                if (freeCount == freeBlocks.length) {
+                    freeBlocks = Arrays.copyOf(freeBlocks, freeBlocks.length * 2);
+                }
+                freeBlocks[freeCount++] = block;
+            }
+            usedBlocks -= value.blocks.length;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private OffHeapValue reserve(int length) {
+        int count = Math.max(1, (length + blockBytes - 1) / blockBytes);
+        int[] blocks = new int[count];
+
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                if (freeCount == 0) {
+                    addSlab();
+                }
+                blocks[i] = freeBlocks[--freeCount];
+            }
+            usedBlocks += count;
+        } finally {
+            lock.unlock();
+        }
+        return new OffHeapValue(blocks, length);
+    }
+
+    private void addSlab() {
+        int slab = slabs.size();
+        slabs.add(ByteBuffer.allocateDirect(slabBytes));
+
+        if (freeBlocks.length < freeCount + blocksPerSlab) {
+            freeBlocks = Arrays.copyOf(freeBlocks, freeCount + blocksPerSlab);
+        }
+        // Push in reverse so the slab is handed out front to back
+        for (int i = blocksPerSlab - 1; i >= 0; i--) {
+            freeBlocks[freeCount++] = slab * blocksPerSlab + i;
+        }
+    }
+
+    /**
+     * Independent view of one block; absolute puts and gets only, so no shared position state.
+     */
+    private ByteBuffer block(int block) {
+        ByteBuffer slab;
+        lock.lock();
+        try {
+            slab = slabs.get(block / blocksPerSlab);
+        } finally {
+            lock.unlock();
+        }
+        return slab.slice((block % blocksPerSlab) * blockBytes, blockBytes);
+    }
+
+    public long committedBytes() {
+        lock.lock();
+        try {
+            return (long) slabs.size() * slabBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long usedBytes() {
+        return usedBlocks * blockBytes;
+    }
+
+    public int blockBytes() {
+        return blockBytes;
+    }
+}
@@ -0,0 +1,300 @@
+package com.example.gcdemo.cache;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-through cache whose second level is held by non-strong references.
+ *
+ * A small LRU of pinned entries stands for the hot set the application
+ * references strongly. Entries that fall out of it are only reachable through
+ * the cache's reference kind:
+ *
+ * SOFT     SoftReference per entry; cleared when the collector decides memory is short
+ * WEAK     WeakHashMap keyed by the pinned key; gone after the next collection that sees it
+ * PHANTOM  PhantomReference per entry (resource tracking, no second level)
+ * CLEANER  Cleaner registration per entry (resource tracking, no second level)
+ *
+ * Every entry remembers when it was unpinned, so the time from losing its last
+ * strong reference to being enqueued or cleaned is reported to the listener.
+ * Each cache drains its ReferenceQueue on its own daemon thread.
+ */
+public class ReferenceCache implements AutoCloseable {
+
+    public enum Kind {
+        SOFT,
+        WEAK,
+        PHANTOM,
+        CLEANER
+    }
+
+    public enum Lookup {
+        /** Found in the strongly held hot set */
+        PINNED,
+        /** Found through the soft or weak level */
+        REFERENCE,
+        MISS
+    }
+
+    /**
+     * Told about every reclaimed entry that had been unpinned.
+     */
+    @FunctionalInterface
+    public interface ReclaimListener {
+        void reclaimed(Kind kind, long nanosSinceUnpinned);
+    }
+
+    public record Key(long id) {}
+
+    /**
+     * When the entry was unpinned (0 while pinned); shared with its reference, never with the entry's referents.
+     */
+    private static final class DropTime {
+        volatile long nanos;
+    }
+
+    private static final class Entry {
+        final byte[] data;
+        final DropTime dropTime = new DropTime();
+        // WEAK only: the key instance the WeakHashMap holds, to pin it again on a hit
+        TrackedWeak key;
+
+        Entry(int bytes) {
+            this.data = new byte[bytes];
+        }
+    }
+
+    private interface Tracked {
+        DropTime dropTime();
+    }
+
+    private static final class TrackedSoft extends SoftReference<Entry> implements Tracked {
+        final long id;
+        final DropTime dropTime;
+
+        TrackedSoft(Entry entry, ReferenceQueue<Object> queue, long id) {
+            super(entry, queue);
+            this.id = id;
+            this.dropTime = entry.dropTime;
+        }
+
+        public DropTime dropTime() {
+            return dropTime;
+        }
+    }
+
+    private static final class TrackedWeak extends WeakReference<Key> implements Tracked {
+        final DropTime dropTime;
+
+        TrackedWeak(Key key, ReferenceQueue<Object> queue, DropTime dropTime) {
+            super(key, queue);
+            this.dropTime = dropTime;
+        }
+
+        public DropTime dropTime() {
+            return dropTime;
+        }
+    }
+
+    private static final class TrackedPhantom extends PhantomReference<Entry> implements Tracked {
+        final DropTime dropTime;
+
+        TrackedPhantom(Entry entry, ReferenceQueue<Object> queue) {
+            super(entry, queue);
+            this.dropTime = entry.dropTime;
+        }
+
+        public DropTime dropTime() {
+            return dropTime;
+        }
+    }
+
+    private final Kind kind;
+    private final ReclaimListener listener;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Key, Entry> pinned;
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final Map<Long, TrackedSoft> soft = new ConcurrentHashMap<>();
+    private final Map<Key, Entry> weak = new WeakHashMap<>();
+    private final Set<TrackedPhantom> phantoms = ConcurrentHashMap.newKeySet();
+    private final Cleaner cleaner;
+    private final AtomicLong cleanables = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final LongAdder reclaimed = new LongAdder();
+    private final Thread drainer;
+
+    /**
+     * @param pinnedEntries size of the strongly held hot set
+     */
+    public ReferenceCache(Kind kind, int pinnedEntries, ReclaimListener listener) {
+        this.kind = kind;
+        this.listener = listener;
+        this.pinned = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > pinnedEntries) {
+                    unpin(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.cleaner = kind == Kind.CLEANER ? Cleaner.create() : null;
+        this.drainer = Thread.ofPlatform().daemon().name("reference-drainer-" + kind.name().toLowerCase())
+                .start(this::drain);
+    }
+
+    /**
+     * Looks up {@code id}, creating a {@code valueBytes} entry on a miss. Either way the entry ends up pinned.
+     */
+    public Lookup get(long id, int valueBytes) {
+        Key key = new Key(id);
+        lock.lock();
+        try {
+            if (pinned.get(key) != null) {
+                return Lookup.PINNED;
+            }
+            if (kind == Kind.SOFT) {
+                TrackedSoft reference = soft.get(id);
+                Entry entry = reference == null ? null : reference.get();
+                if (entry != null) {
+                    pin(key, entry);
+                    return Lookup.REFERENCE;
+                }
+            } else if (kind == Kind.WEAK) {
+                Entry entry = weak.get(key);
+                Key original = entry == null ? null : entry.key.get();
+                if (original != null) {
+                    pin(original, entry);
+                    return Lookup.REFERENCE;
+                }
+            }
+            pin(key, create(key, valueBytes));
+            return Lookup.MISS;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry create(Key key, int valueBytes) {
+        Entry entry = new Entry(valueBytes);
+        switch (kind) {
+            case SOFT -> soft.put(key.id(), new TrackedSoft(entry, queue, key.id()));
+            case WEAK -> {
+                entry.key = new TrackedWeak(key, queue, entry.dropTime);
+                weak.put(key, entry);
+            }
+            case PHANTOM -> phantoms.add(new TrackedPhantom(entry, queue));
+            case CLEANER -> {
+                DropTime dropTime = entry.dropTime;
+                cleanables.incrementAndGet();
+                cleaner.register(entry, () -> {
+                    cleanables.decrementAndGet();
+                    reclaimed(dropTime);
+                });
+            }
+        }
+        return entry;
+    }
+
+    private void pin(Key key, Entry entry) {
+        if (entry.dropTime.nanos != 0) {
+            entry.dropTime.nanos = 0;
+            pending.decrementAndGet();
+        }
+        pinned.put(key, entry);
+    }
+
+    private void unpin(Entry entry) {
+        entry.dropTime.nanos = System.nanoTime();
+        pending.incrementAndGet();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Reference<?> reference = queue.remove();
+                if (reference instanceof TrackedSoft trackedSoft) {
+                    soft.remove(trackedSoft.id, trackedSoft);
+                } else if (reference instanceof TrackedPhantom trackedPhantom) {
+                    phantoms.remove(trackedPhantom);
+                }
+                reclaimed(((Tracked) reference).dropTime());
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private void reclaimed(DropTime dropTime) {
+        long dropped = dropTime.nanos;
+        reclaimed.increment();
+        if (dropped != 0) {
+            pending.decrementAndGet();
+            listener.reclaimed(kind, System.nanoTime() - dropped);
+        }
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    public int pinnedSize() {
+        lock.lock();
+        try {
+            return pinned.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Live reference objects (or Cleaner registrations) the cache is tracking.
+     */
+    public long trackedReferences() {
+        return switch (kind) {
+            case SOFT -> soft.size();
+            case WEAK -> {
+                lock.lock();
+                try {
+                    yield weak.size();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            case PHANTOM -> phantoms.size();
+            case CLEANER -> cleanables.get();
+        };
+    }
+
+    /**
+     * Entries unpinned but not reclaimed yet.
+     */
+    public long pendingReclaim() {
+        return pending.get();
+    }
+
+    public long reclaimed() {
+        return reclaimed.sum();
+    }
+
+    /**
+     * Stops draining; entries still referenced are left to the collector.
+     */
+    @Override
+    public void close() {
+        drainer.interrupt();
+    }
+}
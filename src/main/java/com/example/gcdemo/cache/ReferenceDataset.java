@@ -0,0 +1,47 @@
+package com.example.gcdemo.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only reference data (think product catalogue) looked up by dense index.
+ *
+ * The same records can live on the heap ({@link HeapReferenceDataset}), where
+ * the collector marks them on every old-generation cycle, or in a memory-mapped
+ * file ({@link MappedReferenceDataset}), where the heap only holds an offset
+ * index and the page cache holds the bytes.
+ */
+public interface ReferenceDataset extends AutoCloseable {
+
+    /**
+     * One record as generated; the heap implementation keeps these objects.
+     */
+    record Record(long id, String name, double price, byte[] attributes) {}
+
+    /**
+     * Receives the fields of one record. {@code attributes} is only valid during the call.
+     */
+    @FunctionalInterface
+    interface RecordReader<R> {
+        R read(long id, String name, double price, ByteBuffer attributes);
+    }
+
+    <R> R read(int index, RecordReader<R> reader);
+
+    int size();
+
+    /**
+     * Bytes of record data (fields and attributes as encoded in the file).
+     */
+    long dataBytes();
+
+    /**
+     * Approximate heap bytes the dataset keeps reachable (records, or just the index).
+     */
+    long heapBytes();
+
+    /**
+     * Releases the dataset's resources; in-flight reads of a mapped dataset stay valid.
+     */
+    @Override
+    void close();
+}
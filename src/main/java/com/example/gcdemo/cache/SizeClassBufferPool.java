@@ -0,0 +1,129 @@
+package com.example.gcdemo.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded concurrent pool of buffers in power-of-two size classes (64B to 1GB).
+ *
+ * A borrow is served from the free list of the smallest class that fits. If that
+ * list is empty, a new buffer is created as long as the pool stays within
+ * {@code maxBytes}; otherwise the borrower waits up to {@code maxWait} for one
+ * to be released and then falls back to an unpooled buffer of the exact size.
+ * Buffers are never freed, so the pool grows to its peak and stays there.
+ *
+ * Used with byte[] and with direct ByteBuffers.
+ */
+public class SizeClassBufferPool<B> {
+
+    static final int MIN_CLASS = 6;
+    static final int MAX_CLASS = 30;
+
+    public enum Outcome {
+        /** Reused a pooled buffer, possibly after waiting */
+        HIT,
+        /** Created a new pooled buffer */
+        MISS,
+        /** Waited in vain; the buffer is not pooled */
+        TIMEOUT,
+        /** Larger than the largest class; the buffer is not pooled */
+        TOO_LARGE
+    }
+
+    /**
+     * A borrowed buffer; its capacity may exceed the requested size.
+     */
+    public record Lease<B>(B buffer, Outcome outcome, long waitNanos) {}
+
+    private final IntFunction<B> factory;
+    private final ToIntFunction<B> capacity;
+    private final long maxBytes;
+    private final long maxWaitNanos;
+    // Free lists by size class, starting at MIN_CLASS
+    private final List<BlockingQueue<B>> free;
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * @param factory  creates a buffer of the given capacity
+     * @param capacity capacity of a buffer, to find its class on release
+     */
+    public SizeClassBufferPool(IntFunction<B> factory, ToIntFunction<B> capacity, long maxBytes, long maxWaitNanos) {
+        this.factory = factory;
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        this.maxWaitNanos = maxWaitNanos;
+        List<BlockingQueue<B>> queues = new ArrayList<>(MAX_CLASS - MIN_CLASS + 1);
+        for (int sizeClass = MIN_CLASS; sizeClass <= MAX_CLASS; sizeClass++) {
+            // No class can hold more buffers than fit in maxBytes
+            long fit = Math.max(1, maxBytes >> sizeClass);
+            queues.add(new ArrayBlockingQueue<>((int) Math.min(fit, 1 << 16)));
+        }
+        this.free = List.copyOf(queues);
+    }
+
+    /**
+     * @return the class (log2 of the capacity) a buffer of {@code size} bytes comes from, or -1 if too large to pool
+     */
+    static int sizeClass(int size) {
+        int sizeClass = Math.max(MIN_CLASS, 32 - Integer.numberOfLeadingZeros(Math.max(1, size) - 1));
+        return sizeClass <= MAX_CLASS ? sizeClass : -1;
+    }
+
+    public Lease<B> borrow(int size) {
+        int sizeClass = sizeClass(size);
+        if (sizeClass < 0) {
+            return new Lease<>(factory.apply(size), Outcome.TOO_LARGE, 0);
+        }
+        B buffer = free(sizeClass).poll();
+        if (buffer != null) {
+            return new Lease<>(buffer, Outcome.HIT, 0);
+        }
+
+        long classBytes = 1L << sizeClass;
+        if (pooledBytes.addAndGet(classBytes) <= maxBytes) {
+            return new Lease<>(factory.apply((int) classBytes), Outcome.MISS, 0);
+        }
+        pooledBytes.addAndGet(-classBytes);
+
+        long start = System.nanoTime();
+        try {
+            buffer = free(sizeClass).poll(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long waited = System.nanoTime() - start;
+        return buffer != null
+                ? new Lease<>(buffer, Outcome.HIT, waited)
+                : new Lease<>(factory.apply(size), Outcome.TIMEOUT, waited);
+    }
+
+    /**
+     * Returns a leased buffer to its class. Unpooled buffers are left to the GC.
+     */
+    public void release(Lease<B> lease) {
+        if (lease.outcome() == Outcome.HIT || lease.outcome() == Outcome.MISS) {
+            free(sizeClass(capacity.applyAsInt(lease.buffer()))).offer(lease.buffer());
+        }
+    }
+
+    private BlockingQueue<B> free(int sizeClass) {
+        return free.get(sizeClass - MIN_CLASS);
+    }
+
+    /**
+     * Bytes of all buffers the pool has created (free or borrowed).
+     */
+    public long pooledBytes() {
+        return pooledBytes.get();
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.gcdemo.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Lock-free, fixed-capacity ring of survivor objects.
+ *
+ * Producers claim a slot with one getAndIncrement on the tail and publish the
+ * survivor with getAndSet; whatever was in the slot a full lap earlier is
+ * dropped. Expiry walks the head forward with CAS, dropping survivors that are
+ * older than the configured age (in requests or wall-clock time) or that push
+ * the ring over its byte limit. Neither path takes a lock or copies the ring,
+ * so rotation does not allocate and does not serialize concurrent requests.
+ */
+public class SurvivorRing {
+
+    private final AtomicReferenceArray<Survivor> slots;
+    private final int mask;
+    private final long maxBytes;
+    private final long maxAgeRequests;
+    private final long maxAgeNanos;
+    private final Consumer<Object> onRemoval;
+
+    private final AtomicLong head = new AtomicLong(0);
+    private final AtomicLong tail = new AtomicLong(0);
+    private final AtomicLong bytes = new AtomicLong(0);
+    private final AtomicLong count = new AtomicLong(0);
+
+    /**
+     * @param capacity       maximum survivors held (rounded up to a power of two)
+     * @param maxBytes       maximum survivor bytes held
+     * @param maxAgeRequests survivors older than this many requests expire (0 = no limit)
+     * @param maxAgeNanos    survivors older than this expire (0 = no limit)
+     */
+    public SurvivorRing(int capacity, long maxBytes, long maxAgeRequests, long maxAgeNanos) {
+        this(capacity, maxBytes, maxAgeRequests, maxAgeNanos, data -> {});
+    }
+
+    /**
+     * @param onRemoval called with the data of every survivor that is lapped, expired or cleared
+     */
+    public SurvivorRing(int capacity, long maxBytes, long maxAgeRequests, long maxAgeNanos, Consumer<Object> onRemoval) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxBytes = maxBytes;
+        this.maxAgeRequests = maxAgeRequests;
+        this.maxAgeNanos = maxAgeNanos;
+        this.onRemoval = onRemoval;
+    }
+
+    /**
+     * Adds a survivor born in the given request. The survivor one full lap
+     * behind (if still present) becomes garbage.
+     */
+    public void add(Object data, long sizeBytes, long request) {
+        long sequence = tail.getAndIncrement();
+        Survivor replaced = slots.getAndSet((int) (sequence & mask),
+                new Survivor(data, sizeBytes, sequence, request, System.nanoTime()));
+
+        bytes.addAndGet(sizeBytes);
+        count.incrementAndGet();
+        if (replaced != null) {
+            bytes.addAndGet(-replaced.sizeBytes);
+            count.decrementAndGet();
+            onRemoval.accept(replaced.data);
+        }
+    }
+
+    /**
+     * Drops survivors from the head while they are too old or the ring holds too many bytes.
+     *
+     * @param currentRequest request number used for age-in-requests
+     */
+    public void expire(long currentRequest) {
+        expire(currentRequest, maxAgeRequests);
+    }
+
+    /**
+     * Same as {@link #expire(long)} with a different age limit in requests, e.g. per scenario phase.
+     */
+    public void expire(long currentRequest, long maxAgeRequests) {
+        long now = System.nanoTime();
+
+        while (true) {
+            long position = head.get();
+            if (position >= tail.get()) {
+                return;
+            }
+
+            int index = (int) (position & mask);
+            Survivor survivor = slots.get(index);
+
+            if (survivor == null || survivor.sequence < position) {
+                // Slot claimed but not yet published - pick it up next time
+                return;
+            }
+            if (survivor.sequence == position && !expired(survivor, currentRequest, maxAgeRequests, now)) {
+                return;
+            }
+
+            // Expired, or already lapped by a newer survivor: move past it
+            if (head.compareAndSet(position, position + 1)
+                    && survivor.sequence == position
+                    && slots.compareAndSet(index, survivor, null)) {
+                bytes.addAndGet(-survivor.sizeBytes);
+                count.decrementAndGet();
+                onRemoval.accept(survivor.data);
+            }
+        }
+    }
+
+    private boolean expired(Survivor survivor, long currentRequest, long maxAgeRequests, long now) {
+        return bytes.get() > maxBytes
+                || (maxAgeRequests > 0 && currentRequest - survivor.request >= maxAgeRequests)
+                || (maxAgeNanos > 0 && now - survivor.bornNanos >= maxAgeNanos);
+    }
+
+    public void clear() {
+        head.set(tail.get());
+        for (int i = 0; i < slots.length(); i++) {
+            Survivor removed = slots.getAndSet(i, null);
+            if (removed != null) {
+                bytes.addAndGet(-removed.sizeBytes);
+                count.decrementAndGet();
+                onRemoval.accept(removed.data);
+            }
+        }
+    }
+
+    public long size() {
+        return count.get();
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    private record Survivor(Object data, long sizeBytes, long sequence, long request, long bornNanos) {}
+}
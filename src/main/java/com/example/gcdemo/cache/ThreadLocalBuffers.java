@@ -0,0 +1,41 @@
+package com.example.gcdemo.cache;
+
+import com.example.gcdemo.cache.SizeClassBufferPool.Lease;
+import com.example.gcdemo.cache.SizeClassBufferPool.Outcome;
+
+/**
+ * One reusable byte[] per thread and power-of-two size class.
+ *
+ * No locking and no waiting: a borrow takes the thread's buffer if it is there
+ * and allocates otherwise. The buffers live as long as their thread, so this
+ * pays off with long-lived pool threads; every virtual thread starts empty.
+ */
+public class ThreadLocalBuffers {
+
+    private final ThreadLocal<byte[][]> buffers =
+            ThreadLocal.withInitial(() -> new byte[SizeClassBufferPool.MAX_CLASS + 1][]);
+
+    public Lease<byte[]> borrow(int size) {
+        int sizeClass = SizeClassBufferPool.sizeClass(size);
+        if (sizeClass < 0) {
+            return new Lease<>(new byte[size], Outcome.TOO_LARGE, 0);
+        }
+        byte[][] slots = buffers.get();
+        byte[] buffer = slots[sizeClass];
+        if (buffer != null) {
+            slots[sizeClass] = null;
+            return new Lease<>(buffer, Outcome.HIT, 0);
+        }
+        return new Lease<>(new byte[1 << sizeClass], Outcome.MISS, 0);
+    }
+
+    /**
+     * Keeps the buffer for the next borrow of its class on the releasing thread.
+     */
+    public void release(Lease<byte[]> lease) {
+        int sizeClass = SizeClassBufferPool.sizeClass(lease.buffer().length);
+        if (lease.outcome() != Outcome.TOO_LARGE && sizeClass >= 0) {
+            buffers.get()[sizeClass] = lease.buffer();
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.gcdemo.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * W-TinyLFU cache.
+ *
+ * New entries land in a small LRU window (1% of the weight). Entries leaving
+ * the window compete for the main area: the newest probation entry is kept only
+ * if the frequency sketch says it is accessed more often than the eldest
+ * probation entry. Probation entries that are hit again move to the protected
+ * segment (80% of the main area). All moves are O(1) LinkedHashMap operations.
+ */
+class TinyLfuWeightedCache<K, V> implements WeightedCache<K, V> {
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.80;
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Node<V>> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowWeight;
+    private long probationWeight;
+    private long protectedWeight;
+
+    private final Consumer<? super V> onRemoval;
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Stats stats = new Stats();
+    private volatile long weightedSize;
+
+    TinyLfuWeightedCache(long maximumWeight, Consumer<? super V> onRemoval) {
+        this.maximumWeight = maximumWeight;
+        this.onRemoval = onRemoval;
+        this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_RATIO));
+        this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_RATIO);
+    }
+
+    @Override
+    public V get(K key) {
+        Node<V> node;
+        lock.lock();
+        try {
+            sketch.increment(key);
+
+            node = window.get(key);
+            if (node == null) {
+                node = probation.remove(key);
+                if (node != null) {
+                    // Second hit: promote to protected
+                    probationWeight -= node.weight;
+                    protectedSegment.put(key, node);
+                    protectedWeight += node.weight;
+                    demoteProtected();
+                } else {
+                    node = protectedSegment.get(key);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (node == null) {
+            stats.misses.increment();
+            return null;
+        }
+        stats.hits.increment();
+        return node.value;
+    }
+
+    @Override
+    public void put(K key, V value, long weight) {
+        lock.lock();
+        try {
+            sketch.increment(key);
+            remove(key);
+
+            window.put(key, new Node<>(value, weight));
+            windowWeight += weight;
+            sketch.ensureCapacity(size());
+
+            // Window overflow moves to the tail of probation
+            while (windowWeight > windowMaximum && !window.isEmpty()) {
+                Map.Entry<K, Node<V>> eldest = window.pollFirstEntry();
+                windowWeight -= eldest.getValue().weight;
+                probation.put(eldest.getKey(), eldest.getValue());
+                probationWeight += eldest.getValue().weight;
+            }
+
+            evict();
+            weightedSize = windowWeight + probationWeight + protectedWeight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict() {
+        while (windowWeight + probationWeight + protectedWeight > maximumWeight) {
+            Map.Entry<K, Node<V>> victim = probation.firstEntry();
+
+            if (victim == null) {
+                if (!protectedSegment.isEmpty()) {
+                    demote(protectedSegment.firstEntry().getKey());
+                } else {
+                    Map.Entry<K, Node<V>> eldest = window.pollFirstEntry();
+                    windowWeight -= eldest.getValue().weight;
+                    recordEviction(eldest.getValue());
+                }
+                continue;
+            }
+
+            // Admission: newest probation entry vs eldest probation entry
+            Map.Entry<K, Node<V>> candidate = probation.lastEntry();
+            K evicted = victim.getKey();
+            if (!evicted.equals(candidate.getKey())
+                    && sketch.frequency(candidate.getKey()) <= sketch.frequency(victim.getKey())) {
+                evicted = candidate.getKey();
+            }
+
+            Node<V> node = probation.remove(evicted);
+            probationWeight -= node.weight;
+            recordEviction(node);
+        }
+    }
+
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum && !protectedSegment.isEmpty()) {
+            demote(protectedSegment.firstEntry().getKey());
+        }
+    }
+
+    private void demote(K key) {
+        Node<V> node = protectedSegment.remove(key);
+        protectedWeight -= node.weight;
+        probation.put(key, node);
+        probationWeight += node.weight;
+    }
+
+    private void remove(K key) {
+        Node<V> node;
+        if ((node = window.remove(key)) != null) {
+            windowWeight -= node.weight;
+        } else if ((node = probation.remove(key)) != null) {
+            probationWeight -= node.weight;
+        } else if ((node = protectedSegment.remove(key)) != null) {
+            protectedWeight -= node.weight;
+        }
+        if (node != null) {
+            onRemoval.accept(node.value);
+        }
+    }
+
+    private void recordEviction(Node<V> node) {
+        stats.evictions.increment();
+        stats.evictedWeight.add(node.weight);
+        onRemoval.accept(node.value);
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            window.values().forEach(node -> onRemoval.accept(node.value));
+            probation.values().forEach(node -> onRemoval.accept(node.value));
+            protectedSegment.values().forEach(node -> onRemoval.accept(node.value));
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            windowWeight = 0;
+            probationWeight = 0;
+            protectedWeight = 0;
+            weightedSize = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return window.size() + probation.size() + protectedSegment.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public long maximumWeight() {
+        return maximumWeight;
+    }
+
+    @Override
+    public EvictionPolicy policy() {
+        return EvictionPolicy.TINY_LFU;
+    }
+
+    @Override
+    public Stats stats() {
+        return stats;
+    }
+
+    private record Node<V>(V value, long weight) {}
+}
@@ -0,0 +1,85 @@
+package com.example.gcdemo.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Concurrent cache bounded by the total weight (bytes) of its entries.
+ *
+ * Every operation is O(1) amortized: eviction removes entries from the head of
+ * a linked structure instead of sorting the whole cache, and runs under the
+ * same lock as the insert, so the weight bound holds under concurrent writers.
+ */
+public interface WeightedCache<K, V> {
+
+    /**
+     * @return the cached value, or null on a miss
+     */
+    V get(K key);
+
+    /**
+     * Inserts or replaces an entry, evicting others until the cache fits again.
+     * Replaced and evicted values are passed to the removal listener.
+     */
+    void put(K key, V value, long weight);
+
+    void clear();
+
+    int size();
+
+    long weightedSize();
+
+    long maximumWeight();
+
+    EvictionPolicy policy();
+
+    Stats stats();
+
+    static <K, V> WeightedCache<K, V> create(EvictionPolicy policy, long maximumWeight) {
+        return create(policy, maximumWeight, value -> {});
+    }
+
+    /**
+     * @param onRemoval called, under the cache lock, with every value that is
+     *                  evicted, replaced or cleared (e.g. to free off-heap memory)
+     */
+    static <K, V> WeightedCache<K, V> create(EvictionPolicy policy, long maximumWeight, Consumer<? super V> onRemoval) {
+        return switch (policy) {
+            case FIFO -> new LinkedWeightedCache<>(policy, maximumWeight, false, onRemoval);
+            case LRU -> new LinkedWeightedCache<>(policy, maximumWeight, true, onRemoval);
+            case TINY_LFU -> new TinyLfuWeightedCache<>(maximumWeight, onRemoval);
+        };
+    }
+
+    /**
+     * Hit/miss/eviction counters, updated without taking the cache lock.
+     */
+    final class Stats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+        final LongAdder evictedWeight = new LongAdder();
+
+        public long hits() {
+            return hits.sum();
+        }
+
+        public long misses() {
+            return misses.sum();
+        }
+
+        public long evictions() {
+            return evictions.sum();
+        }
+
+        public long evictedWeight() {
+            return evictedWeight.sum();
+        }
+
+        public double hitRate() {
+            long hits = hits();
+            long total = hits + misses();
+            return total == 0 ? 0.0 : hits / (double) total;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.gcdemo.config;
+
+import com.example.gcdemo.service.AllocationAccountingService;
+import com.example.gcdemo.service.AllocationAccountingService.RequestAllocation;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+/**
+ * Measures the bytes each /api request allocates on its thread.
+ *
+ * The filter runs first (before Micrometer's http.server.requests observation),
+ * so everything from there to the response being written - MVC dispatch,
+ * argument binding, our workload, Jackson, metrics - is inside the window.
+ *
+ * A handler that goes async (StreamingResponseBody) returns before its body is
+ * written. The filter then pauses the request, the async executor thread resumes
+ * it around the body, and an AsyncListener records it when the response completes.
+ * The short async re-dispatch that closes the response is not counted.
+ */
+@Configuration
+public class AllocationAccountingConfig {
+
+    private static final String ALLOCATION_ATTRIBUTE = RequestAllocation.class.getName();
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> allocationAccountingFilter(
+            AllocationAccountingService accounting) {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(
+            new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                                FilterChain chain) throws ServletException, IOException {
+                    RequestAllocation allocation = accounting.begin();
+                    request.setAttribute(ALLOCATION_ATTRIBUTE, allocation);
+                    try {
+                        chain.doFilter(request, response);
+                    } finally {
+                        if (allocation != null && request.isAsyncStarted()) {
+                            accounting.pause(allocation);
+                            request.getAsyncContext().addListener(completion(accounting, allocation, request));
+                        } else {
+                            accounting.end(allocation, request.getMethod(), endpoint(request));
+                        }
+                    }
+                }
+            });
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Resumes the request on the async executor thread while it runs the handler's Callable
+     * or StreamingResponseBody.
+     */
+    @Bean
+    public WebMvcConfigurer allocationAccountingAsyncSupport(AllocationAccountingService accounting) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+                        accounting.resume(allocation(request));
+                    }
+
+                    @Override
+                    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object result) {
+                        accounting.pause(allocation(request));
+                    }
+                });
+            }
+        };
+    }
+
+    private static AsyncListener completion(AllocationAccountingService accounting, RequestAllocation allocation,
+                                            HttpServletRequest request) {
+        String method = request.getMethod();
+        String endpoint = endpoint(request);
+        return new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                accounting.complete(allocation, method, endpoint);
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                allocation.markIncomplete();
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                allocation.markIncomplete();
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        };
+    }
+
+    private static RequestAllocation allocation(NativeWebRequest request) {
+        return (RequestAllocation) request.getAttribute(ALLOCATION_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.gcdemo.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.metrics.MeterRegistryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tags every metric with the request execution mode.
+ *
+ * Start with VIRTUAL_THREADS=true (spring.threads.virtual.enabled) to serve
+ * requests on Java 21 virtual threads instead of the Tomcat platform-thread
+ * pool, so concurrency is no longer capped by server.tomcat.threads.max.
+ */
+@Configuration
+public class ExecutionModeConfig {
+
+    @Bean
+    public MeterRegistryCustomizer<MeterRegistry> executionModeTag(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        return registry -> registry.config().commonTags("execution_mode", virtualThreads ? "virtual" : "platform");
+    }
+}
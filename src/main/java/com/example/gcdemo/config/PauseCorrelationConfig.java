@@ -0,0 +1,50 @@
+package com.example.gcdemo.config;
+
+import com.example.gcdemo.service.PauseCorrelationService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Timestamps each /api request for {@link PauseCorrelationService}.
+ *
+ * Runs right after the allocation accounting filter, so the window is what the
+ * client waits for apart from Tomcat's own parsing and queueing.
+ */
+@Configuration
+public class PauseCorrelationConfig {
+
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> pauseCorrelationFilter(PauseCorrelationService correlation) {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(
+            new OncePerRequestFilter() {
+                @Override
+                protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                                FilterChain chain) throws ServletException, IOException {
+                    Instant start = Instant.now();
+                    long startNanos = System.nanoTime();
+                    correlation.begin();
+                    try {
+                        chain.doFilter(request, response);
+                    } finally {
+                        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                        correlation.record(request.getMethod(), pattern == null ? "UNKNOWN" : pattern.toString(),
+                            start, System.nanoTime() - startNanos);
+                    }
+                }
+            });
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.AdmissionControlService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admission")
+public class AdmissionController {
+
+    private final AdmissionControlService admissionControlService;
+
+    public AdmissionController(AdmissionControlService admissionControlService) {
+        this.admissionControlService = admissionControlService;
+    }
+
+    /**
+     * Current policy, pressure signals and admitted/queued/rejected totals
+     * GET /api/admission
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return admissionControlService.getStats();
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.AllocationAccountingService;
+import com.example.gcdemo.service.AllocationAccountingService.EndpointSummary;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/allocation")
+public class AllocationController {
+
+    private final AllocationAccountingService allocationAccountingService;
+
+    public AllocationController(AllocationAccountingService allocationAccountingService) {
+        this.allocationAccountingService = allocationAccountingService;
+    }
+
+    /**
+     * Mean bytes allocated per request, split into workload and framework, per endpoint
+     * GET /api/allocation
+     */
+    @GetMapping
+    public Map<String, Object> summary() {
+        return Map.of(
+            "accounting", allocationAccountingService.getStats(),
+            "endpoints", allocationAccountingService.summaries().stream()
+                .map(AllocationController::endpointMap)
+                .toList()
+        );
+    }
+
+    private static Map<String, Object> endpointMap(EndpointSummary summary) {
+        return Map.of(
+            "method", summary.method(),
+            "endpoint", summary.endpoint(),
+            "requests", summary.requests(),
+            "meanTotalKB", String.format("%.2f", summary.meanTotalKB()),
+            "meanWorkloadKB", String.format("%.2f", summary.meanWorkloadKB()),
+            "meanFrameworkKB", String.format("%.2f", summary.meanFrameworkKB()),
+            "frameworkPercent", String.format("%.2f", summary.frameworkPercent())
+        );
+    }
+}
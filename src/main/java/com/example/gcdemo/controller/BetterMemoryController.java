@@ -1,9 +1,20 @@
 package com.example.gcdemo.controller;
 
+import com.example.gcdemo.service.AdmissionControlService;
+import com.example.gcdemo.service.AdmissionControlService.Permit;
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.AllocationProfileService.BufferStrategy;
+import com.example.gcdemo.service.AllocationProfileService.FillStrategy;
+import com.example.gcdemo.service.AllocationProfileService.ObjectShape;
+import com.example.gcdemo.service.AllocationProfileService.SizeDistribution;
 import com.example.gcdemo.service.BetterMemoryService;
 import com.example.gcdemo.service.BetterMemoryService.AllocationResult;
+import com.example.gcdemo.service.WorkloadExecutorService.ExecutionMode;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
 import io.micrometer.core.annotation.Timed;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 
@@ -12,9 +23,11 @@ import java.util.Map;
 public class BetterMemoryController {
 
     private final BetterMemoryService betterMemoryService;
+    private final AdmissionControlService admission;
 
-    public BetterMemoryController(BetterMemoryService betterMemoryService) {
+    public BetterMemoryController(BetterMemoryService betterMemoryService, AdmissionControlService admission) {
         this.betterMemoryService = betterMemoryService;
+        this.admission = admission;
     }
 
     /**
@@ -27,14 +40,44 @@ public class BetterMemoryController {
      * - Short-lived objects die naturally
      * - Survivors are kept alive but rotate out
      * - Gen ZGC identifies patterns and optimizes
+     * 
+     * Optional query params select the allocation profile:
+     * ?shape=TREE&distribution=LOG_NORMAL&sizeKB=64&fanOut=8&fill=PATTERN&buffers=POOLED
+     * (defaults: 10MB byte[] chunks filled with fresh random data, newly allocated)
+     * 
+     * ?tasks=1000&mode=VIRTUAL splits the request across 1000 concurrent
+     * tasks on virtual threads (mode=PLATFORM uses a fixed platform pool,
+     * mode=FORK_JOIN a fork-join pool with parallelism = tasks; see /api/parallel)
+     * 
+     * Goes through admission control (see /api/admission): answers 429 when
+     * the policy sheds the request, 400 when it exceeds max-request-mb.
      */
     @PostMapping("/natural/{shortLivedMB}/{survivorsMB}")
     @Timed(value = "gc.demo.better.natural.request", description = "Natural generational workload")
     public Map<String, Object> naturalLoad(
             @PathVariable int shortLivedMB,
-            @PathVariable int survivorsMB) {
+            @PathVariable int survivorsMB,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers,
+            @RequestParam(defaultValue = "1") int tasks,
+            @RequestParam(defaultValue = "VIRTUAL") ExecutionMode mode) {
         
-        AllocationResult result = betterMemoryService.naturalGenerationalWorkload(shortLivedMB, survivorsMB);
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        if (shortLivedMB < 0 || survivorsMB < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "shortLivedMB and survivorsMB must not be negative, got " + shortLivedMB + " and " + survivorsMB);
+        }
+        AllocationResult result;
+        try (Permit permit = admit("natural", ((long) shortLivedMB + survivorsMB) * 1024 * 1024)) {
+            result = betterMemoryService.naturalGenerationalWorkload(
+                shortLivedMB, survivorsMB, profile, new FanOut(tasks, mode));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
         
         return Map.of(
             "status", "completed",
@@ -65,4 +108,21 @@ public class BetterMemoryController {
             "currentStats", betterMemoryService.getStats()
         );
     }
+
+    private Permit admit(String endpoint, long expectedBytes) {
+        try {
+            return admission.acquire(endpoint, expectedBytes);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static AllocationProfile profile(ObjectShape shape, SizeDistribution distribution, int sizeKB, int fanOut,
+                                             FillStrategy fill, BufferStrategy buffers) {
+        try {
+            return new AllocationProfile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
 }
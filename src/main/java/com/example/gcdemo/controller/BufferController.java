@@ -0,0 +1,26 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.AllocationProfileService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/buffers")
+public class BufferController {
+
+    private final AllocationProfileService allocationProfileService;
+
+    public BufferController(AllocationProfileService allocationProfileService) {
+        this.allocationProfileService = allocationProfileService;
+    }
+
+    /**
+     * Borrow outcomes, hit rate, waits and pool sizes per buffer strategy
+     * GET /api/buffers
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return allocationProfileService.getBufferStats();
+    }
+}
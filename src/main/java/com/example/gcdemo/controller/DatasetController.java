@@ -0,0 +1,72 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.ReferenceDatasetService;
+import com.example.gcdemo.service.ReferenceDatasetService.DatasetStorage;
+import com.example.gcdemo.service.ReferenceDatasetService.QueryResult;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/dataset")
+public class DatasetController {
+
+    private final ReferenceDatasetService datasetService;
+
+    public DatasetController(ReferenceDatasetService datasetService) {
+        this.datasetService = datasetService;
+    }
+
+    /**
+     * Storage, record count, data vs heap MB and process RSS
+     * GET /api/dataset
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return datasetService.getStats();
+    }
+
+    /**
+     * (Re)build the reference dataset - POST /api/dataset/load?storage=MAPPED&mb=256
+     * Defaults come from gcdemo.dataset.* (DATASET_STORAGE, DATASET_MB).
+     */
+    @PostMapping("/load")
+    public Map<String, Object> load(
+            @RequestParam(required = false) DatasetStorage storage,
+            @RequestParam(required = false) Integer mb) {
+        try {
+            datasetService.load(
+                storage != null ? storage : datasetService.defaultStorage(),
+                mb != null ? mb : datasetService.defaultMB());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return datasetService.getStats();
+    }
+
+    /**
+     * Lookups with short-lived derived objects - POST /api/dataset/query?lookups=1000
+     * Builds the dataset with the configured defaults on first use.
+     */
+    @PostMapping("/query")
+    @Timed(value = "gc.demo.dataset.request", description = "Time for dataset query request")
+    public Map<String, Object> query(@RequestParam(defaultValue = "1000") int lookups) {
+        if (lookups < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "lookups must be positive, got " + lookups);
+        }
+        QueryResult result = datasetService.query(lookups);
+
+        return Map.of(
+            "status", "completed",
+            "storage", result.storage(),
+            "lookups", result.lookups(),
+            "attributeMBRead", String.format("%.2f", result.attributeBytesRead() / (1024.0 * 1024)),
+            "checksum", result.checksum(),
+            "grossTotal", String.format("%.2f", result.grossTotal()),
+            "durationMs", String.format("%.2f", result.durationMs())
+        );
+    }
+}
@@ -1,9 +1,20 @@
 package com.example.gcdemo.controller;
 
+import com.example.gcdemo.service.AdmissionControlService;
+import com.example.gcdemo.service.AdmissionControlService.Permit;
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.AllocationProfileService.BufferStrategy;
+import com.example.gcdemo.service.AllocationProfileService.FillStrategy;
+import com.example.gcdemo.service.AllocationProfileService.ObjectShape;
+import com.example.gcdemo.service.AllocationProfileService.SizeDistribution;
 import com.example.gcdemo.service.EnhancedMemoryService;
 import com.example.gcdemo.service.EnhancedMemoryService.AllocationResult;
+import com.example.gcdemo.service.WorkloadExecutorService.ExecutionMode;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
 import io.micrometer.core.annotation.Timed;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 
@@ -12,9 +23,11 @@ import java.util.Map;
 public class EnhancedMemoryController {
 
     private final EnhancedMemoryService enhancedMemoryService;
+    private final AdmissionControlService admission;
 
-    public EnhancedMemoryController(EnhancedMemoryService enhancedMemoryService) {
+    public EnhancedMemoryController(EnhancedMemoryService enhancedMemoryService, AdmissionControlService admission) {
         this.enhancedMemoryService = enhancedMemoryService;
+        this.admission = admission;
     }
 
     /**
@@ -28,14 +41,48 @@ public class EnhancedMemoryController {
      * This demonstrates Gen ZGC's advantage:
      * - Gen ZGC collects young cheaply and frequently
      * - NonGen ZGC must scan everything every time
+     * 
+     * Optional query params select the allocation profile:
+     * ?shape=TREE&distribution=LOG_NORMAL&sizeKB=64&fanOut=8&fill=PATTERN&buffers=POOLED
+     * (defaults: 10MB byte[] chunks filled with fresh random data, newly allocated)
+     * 
+     * ?tasks=1000&mode=VIRTUAL splits the request across 1000 concurrent
+     * tasks on virtual threads (mode=PLATFORM uses a fixed platform pool,
+     * mode=FORK_JOIN a fork-join pool with parallelism = tasks; see /api/parallel)
+     * 
+     * ?reads=1000 also performs 1000 lookups against the long-lived cache,
+     * skewed towards recently inserted entries
+     * 
+     * Goes through admission control (see /api/admission): answers 429 when
+     * the policy sheds the request, 400 when it exceeds max-request-mb.
      */
     @PostMapping("/mixed/{shortLivedMB}/{longLivedMB}")
     @Timed(value = "gc.demo.enhanced.mixed.request", description = "Time for enhanced mixed workload")
     public Map<String, Object> mixedLoad(
             @PathVariable int shortLivedMB,
-            @PathVariable int longLivedMB) {
+            @PathVariable int longLivedMB,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers,
+            @RequestParam(defaultValue = "1") int tasks,
+            @RequestParam(defaultValue = "VIRTUAL") ExecutionMode mode,
+            @RequestParam(defaultValue = "0") int reads) {
         
-        AllocationResult result = enhancedMemoryService.mixedWorkload(shortLivedMB, longLivedMB);
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        if (shortLivedMB < 0 || longLivedMB < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "shortLivedMB and longLivedMB must not be negative, got " + shortLivedMB + " and " + longLivedMB);
+        }
+        AllocationResult result;
+        try (Permit permit = admit("mixed", ((long) shortLivedMB + longLivedMB) * 1024 * 1024)) {
+            result = enhancedMemoryService.mixedWorkload(
+                shortLivedMB, longLivedMB, profile, new FanOut(tasks, mode), reads);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
         
         return Map.of(
             "status", "completed",
@@ -68,4 +115,21 @@ public class EnhancedMemoryController {
             "currentStats", enhancedMemoryService.getCacheStats()
         );
     }
+
+    private Permit admit(String endpoint, long expectedBytes) {
+        try {
+            return admission.acquire(endpoint, expectedBytes);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static AllocationProfile profile(ObjectShape shape, SizeDistribution distribution, int sizeKB, int fanOut,
+                                             FillStrategy fill, BufferStrategy buffers) {
+        try {
+            return new AllocationProfile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
 }
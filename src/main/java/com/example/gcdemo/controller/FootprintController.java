@@ -0,0 +1,26 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.FootprintService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/footprint")
+public class FootprintController {
+
+    private final FootprintService footprintService;
+
+    public FootprintController(FootprintService footprintService) {
+        this.footprintService = footprintService;
+    }
+
+    /**
+     * Process RSS/PSS, cgroup limit and usage, JVM pools and Native Memory Tracking, in MB
+     * GET /api/footprint
+     */
+    @GetMapping
+    public Map<String, Object> footprint() {
+        return footprintService.getStats();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.GcEventService;
+import com.example.gcdemo.service.GcEventService.DurationSummary;
+import com.example.gcdemo.service.GcEventService.GcEvent;
+import com.example.gcdemo.service.PauseCorrelationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@RestController
+@RequestMapping("/api/gc")
+public class GcEventController {
+
+    private final GcEventService gcEventService;
+    private final PauseCorrelationService pauseCorrelationService;
+
+    public GcEventController(GcEventService gcEventService, PauseCorrelationService pauseCorrelationService) {
+        this.gcEventService = gcEventService;
+        this.pauseCorrelationService = pauseCorrelationService;
+    }
+
+    /**
+     * Recent individual GC events
+     * GET /api/gc/events?limit=50
+     * 
+     * Each event has collector, action, cause, pause/cycle kind, start time,
+     * duration and before/after usage of every memory pool.
+     */
+    @GetMapping("/events")
+    public List<GcEvent> events(@RequestParam(defaultValue = "50") int limit) {
+        return recentEvents(limit);
+    }
+
+    /**
+     * Live stream of GC events (Server-Sent Events)
+     * GET /api/gc/events/stream
+     * 
+     * Example: curl -N http://localhost:8080/api/gc/events/stream
+     * Sends the last few events on connect, then every new event as it happens.
+     */
+    @GetMapping(path = "/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(defaultValue = "10") int backlog) {
+        List<GcEvent> recent = recentEvents(backlog);
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(30));
+
+        Consumer<GcEvent> listener = event -> send(emitter, event);
+        emitter.onCompletion(() -> gcEventService.removeListener(listener));
+        emitter.onTimeout(() -> gcEventService.removeListener(listener));
+        emitter.onError(error -> gcEventService.removeListener(listener));
+
+        recent.forEach(event -> send(emitter, event));
+        gcEventService.addListener(listener);
+        return emitter;
+    }
+
+    /**
+     * Pause/cycle duration percentiles per collector and cause
+     * GET /api/gc/summary
+     */
+    @GetMapping("/summary")
+    public Map<String, Object> summary() {
+        List<DurationSummary> summaries = gcEventService.durationSummaries();
+        return Map.of(
+            "collectors", summaries,
+            "eventsRetained", gcEventService.recentEvents(Integer.MAX_VALUE).size()
+        );
+    }
+
+    /**
+     * Request latency attributed to GC pauses and allocation stalls
+     * GET /api/gc/correlation
+     * 
+     * Share of request time spent inside pauses/stalls, how many p99 outliers
+     * overlapped one (overall and per endpoint) and the most recent outliers.
+     */
+    @GetMapping("/correlation")
+    public Map<String, Object> correlation() {
+        return pauseCorrelationService.getStats();
+    }
+
+    private List<GcEvent> recentEvents(int limit) {
+        try {
+            return gcEventService.recentEvents(limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static void send(SseEmitter emitter, GcEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                .id(String.valueOf(event.id()))
+                .name("gc")
+                .data(event, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+}
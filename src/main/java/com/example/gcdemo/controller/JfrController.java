@@ -0,0 +1,32 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.JfrStreamingService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/jfr")
+public class JfrController {
+
+    private final JfrStreamingService jfrStreamingService;
+
+    public JfrController(JfrStreamingService jfrStreamingService) {
+        this.jfrStreamingService = jfrStreamingService;
+    }
+
+    /**
+     * Rolling JFR windows
+     * GET /api/jfr/windows
+     * 
+     * Allocation rate, GC pause time, safepoint time and allocation stalls
+     * per window, streamed live from the JVM's own Flight Recorder.
+     */
+    @GetMapping("/windows")
+    public Map<String, Object> windows() {
+        return Map.of(
+            "enabled", jfrStreamingService.isEnabled(),
+            "windows", jfrStreamingService.windows()
+        );
+    }
+}
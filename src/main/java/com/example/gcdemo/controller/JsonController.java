@@ -0,0 +1,95 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.AdmissionControlService;
+import com.example.gcdemo.service.AdmissionControlService.Permit;
+import com.example.gcdemo.service.JsonWorkloadService;
+import com.example.gcdemo.service.JsonWorkloadService.ParseMode;
+import com.example.gcdemo.service.JsonWorkloadService.RunResult;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/json")
+public class JsonController {
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final JsonWorkloadService jsonWorkloadService;
+    private final AdmissionControlService admission;
+
+    public JsonController(JsonWorkloadService jsonWorkloadService, AdmissionControlService admission) {
+        this.jsonWorkloadService = jsonWorkloadService;
+        this.admission = admission;
+    }
+
+    /**
+     * Parse, transform and serialize JSON orders - POST /api/json/STREAMING?documents=100&sizeKB=64&depth=3
+     * Modes: TREE (JsonNode), BINDING (records) and STREAMING (JsonParser to JsonGenerator).
+     * All modes write the same output, so the checksum is the same for the same parameters.
+     * Goes through admission control with the input bytes it will parse.
+     */
+    @PostMapping("/{mode}")
+    @Timed(value = "gc.demo.json.request", description = "Time for JSON processing request")
+    public Map<String, Object> process(
+            @PathVariable ParseMode mode,
+            @RequestParam(defaultValue = "100") int documents,
+            @RequestParam(defaultValue = "64") int sizeKB,
+            @RequestParam(defaultValue = "3") int depth) {
+
+        if (documents < 1 || sizeKB < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "documents and sizeKB must be positive, got " + documents + " and " + sizeKB);
+        }
+        RunResult result;
+        try (Permit permit = admit("json", requestBytes(documents, sizeKB))) {
+            result = jsonWorkloadService.run(mode, documents, sizeKB, depth);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "completed");
+        response.put("mode", result.mode());
+        response.put("documents", result.documents());
+        response.put("inputMB", String.format("%.2f", result.inputBytes() / BYTES_PER_MB));
+        response.put("outputMB", String.format("%.2f", result.outputBytes() / BYTES_PER_MB));
+        response.put("allocatedMB", result.allocatedBytes() < 0
+            ? "n/a" : String.format("%.2f", result.allocatedBytes() / BYTES_PER_MB));
+        response.put("allocatedBytesPerInputByte", result.allocatedBytes() < 0
+            ? "n/a" : String.format("%.2f", result.allocatedBytesPerInputByte()));
+        response.put("checksum", Long.toHexString(result.checksum()));
+        response.put("durationMs", String.format("%.2f", result.durationMs()));
+        return response;
+    }
+
+    /**
+     * Documents, MB in/out, mean time and heap allocated per document, by mode
+     * GET /api/json
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return jsonWorkloadService.getStats();
+    }
+
+    private Permit admit(String endpoint, long expectedBytes) {
+        try {
+            return admission.acquire(endpoint, expectedBytes);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static long requestBytes(int count, int unitKB) {
+        try {
+            return Math.multiplyExact(Math.multiplyExact((long) count, unitKB), 1024L);
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Request too large: " + count + " x " + unitKB + " KB", e);
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.example.gcdemo.controller;
 
+import com.example.gcdemo.service.AdmissionControlService;
+import com.example.gcdemo.service.AdmissionControlService.Permit;
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.AllocationProfileService.BufferStrategy;
+import com.example.gcdemo.service.AllocationProfileService.FillStrategy;
+import com.example.gcdemo.service.AllocationProfileService.ObjectShape;
+import com.example.gcdemo.service.AllocationProfileService.SizeDistribution;
+import com.example.gcdemo.service.FootprintService;
+import com.example.gcdemo.service.FootprintService.Snapshot;
+import com.example.gcdemo.service.LoadDriverService.LatencySummary;
+import com.example.gcdemo.service.LoadDriverService.LoadPlan;
+import com.example.gcdemo.service.LoadDriverService.LoadReport;
+import com.example.gcdemo.service.LoadJobService;
+import com.example.gcdemo.service.LoadJobService.Job;
 import com.example.gcdemo.service.MemoryLoadService;
 import com.example.gcdemo.service.MemoryLoadService.AllocationResult;
+import com.example.gcdemo.service.WorkloadExecutorService.ExecutionMode;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
 import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,12 +37,22 @@ import java.util.Map;
 public class MemoryController {
 
     private final MemoryLoadService memoryLoadService;
+    private final LoadJobService loadJobService;
+    private final AdmissionControlService admission;
+    private final FootprintService footprint;
     
     @Value("${spring.application.name:gc-demo}")
     private String appName;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
 
-    public MemoryController(MemoryLoadService memoryLoadService) {
+    public MemoryController(MemoryLoadService memoryLoadService, LoadJobService loadJobService,
+                            AdmissionControlService admission, FootprintService footprint) {
         this.memoryLoadService = memoryLoadService;
+        this.loadJobService = loadJobService;
+        this.admission = admission;
+        this.footprint = footprint;
     }
 
     /**
@@ -34,6 +64,7 @@ public class MemoryController {
         info.put("application", appName);
         info.put("javaVersion", System.getProperty("java.version"));
         info.put("jvmName", System.getProperty("java.vm.name"));
+        info.put("executionMode", virtualThreads ? "virtual" : "platform");
         
         // Get active GC
         for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
@@ -47,6 +78,13 @@ public class MemoryController {
         MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
         info.put("heapUsed", memory.getHeapMemoryUsage().getUsed() / (1024 * 1024) + " MB");
         info.put("heapMax", memory.getHeapMemoryUsage().getMax() / (1024 * 1024) + " MB");
+        info.put("heapCommitted", memory.getHeapMemoryUsage().getCommitted() / (1024 * 1024) + " MB");
+        
+        // What the container is charged for (details in /api/footprint)
+        Snapshot snapshot = footprint.snapshot();
+        info.put("rss", Double.isNaN(snapshot.rss()) ? "n/a" : (long) snapshot.rss() / (1024 * 1024) + " MB");
+        info.put("cgroupLimit", Double.isNaN(snapshot.cgroupLimit()) ? "unlimited"
+            : (long) snapshot.cgroupLimit() / (1024 * 1024) + " MB");
         
         return info;
     }
@@ -55,11 +93,40 @@ public class MemoryController {
      * Burst allocation - POST /api/memory/load/{count}
      * Creates count * 10MB of garbage objects.
      * Similar to Vishalendu's endpoint.
+     * 
+     * Optional query params select the allocation profile:
+     * ?shape=TREE&distribution=LOG_NORMAL&sizeKB=64&fanOut=8&fill=PATTERN&buffers=POOLED
+     * (defaults: 10MB byte[] chunks filled with fresh random data, newly allocated)
+     * 
+     * ?tasks=8&mode=FORK_JOIN splits the units across 8 fork-join workers
+     * (mode=VIRTUAL or PLATFORM as for /api/enhanced/mixed); see /api/parallel
+     * 
+     * Goes through admission control (see /api/admission): answers 429 when
+     * the policy sheds the request, 400 when count * sizeKB exceeds max-request-mb.
      */
     @PostMapping("/load/{count}")
     @Timed(value = "gc.demo.load.request", description = "Time for load request")
-    public Map<String, Object> load(@PathVariable int count) {
-        AllocationResult result = memoryLoadService.allocateAndDiscard(count);
+    public Map<String, Object> load(
+            @PathVariable int count,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers,
+            @RequestParam(defaultValue = "1") int tasks,
+            @RequestParam(defaultValue = "VIRTUAL") ExecutionMode mode) {
+        
+        if (count < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "count must be positive, got " + count);
+        }
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        AllocationResult result;
+        try (Permit permit = admit("load", requestBytes(count, sizeKB))) {
+            result = memoryLoadService.allocateAndDiscard(count, profile, new FanOut(tasks, mode));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
         
         return Map.of(
             "status", "completed",
@@ -72,14 +139,25 @@ public class MemoryController {
     /**
      * Sustained load - POST /api/memory/sustained?duration=10&rate=5
      * Allocates objects continuously for the given duration.
+     * 
+     * Optional query params select the allocation profile:
+     * ?shape=TREE&distribution=LOG_NORMAL&sizeKB=64&fanOut=8&fill=PATTERN&buffers=POOLED
+     * (defaults: 10MB byte[] chunks filled with fresh random data, newly allocated)
      */
     @PostMapping("/sustained")
     @Timed(value = "gc.demo.sustained.request", description = "Time for sustained load request")
     public Map<String, Object> sustainedLoad(
             @RequestParam(defaultValue = "10") int duration,
-            @RequestParam(defaultValue = "5") int rate) {
+            @RequestParam(defaultValue = "5") int rate,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers) {
         
-        AllocationResult result = memoryLoadService.sustainedLoad(duration, rate);
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        AllocationResult result = memoryLoadService.sustainedLoad(plan(rate, duration, 1), profile);
         
         return Map.of(
             "status", "completed",
@@ -90,6 +168,133 @@ public class MemoryController {
         );
     }
 
+    /**
+     * Open-loop load - POST /api/memory/open-loop?rate=50&duration=30&workers=4&unitsPerOp=1
+     * Schedules operations at a fixed rate across worker threads, independent of
+     * how long each one takes, and reports latency corrected for coordinated omission
+     * (measured from the intended start) next to the uncorrected latency.
+     * Accepts the same allocation profile params as /load.
+     */
+    @PostMapping("/open-loop")
+    @Timed(value = "gc.demo.openloop.request", description = "Time for open-loop load request")
+    public Map<String, Object> openLoopLoad(
+            @RequestParam(defaultValue = "50") double rate,
+            @RequestParam(defaultValue = "10") int duration,
+            @RequestParam(defaultValue = "4") int workers,
+            @RequestParam(defaultValue = "1") int unitsPerOp,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers) {
+        
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        LoadReport report = memoryLoadService.openLoopLoad(plan(rate, duration, workers), unitsPerOp, profile);
+        
+        return Map.of(
+            "status", "completed",
+            "targetRate", rate,
+            "achievedRate", String.format("%.2f", report.achievedRate()),
+            "operations", report.operations(),
+            "errors", report.errors(),
+            "totalMB", String.format("%.2f", report.totalMB()),
+            "actualDurationMs", String.format("%.2f", report.durationMs()),
+            "correctedLatency", latencyMap(report.corrected()),
+            "uncorrectedLatency", latencyMap(report.uncorrected()),
+            "scheduleLag", latencyMap(report.scheduleLag())
+        );
+    }
+
+    /**
+     * Background sustained load - POST /api/memory/jobs/sustained?rate=50&duration=600&workers=4&unitsPerOp=1
+     * Same open-loop schedule as /open-loop, but returns a job id immediately
+     * instead of holding the request thread for the whole duration.
+     * Accepts the same allocation profile params as /load.
+     * One operation's bytes go through admission control at submission (see /jobs/mixed).
+     */
+    @PostMapping("/jobs/sustained")
+    public Map<String, Object> submitSustainedJob(
+            @RequestParam(defaultValue = "50") double rate,
+            @RequestParam(defaultValue = "60") int duration,
+            @RequestParam(defaultValue = "4") int workers,
+            @RequestParam(defaultValue = "1") int unitsPerOp,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers) {
+        
+        if (unitsPerOp < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "unitsPerOp must be positive, got " + unitsPerOp);
+        }
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        LoadPlan plan = plan(rate, duration, workers);
+        try (Permit permit = admit("jobs", requestBytes(unitsPerOp, sizeKB))) {
+            return jobMap(loadJobService.submitSustained(plan, unitsPerOp, profile));
+        }
+    }
+
+    /**
+     * Background mixed load - POST /api/memory/jobs/mixed?shortLivedMB=80&longLivedMB=20&rate=2&duration=600
+     * Each operation is one /api/enhanced/mixed request (filling the long-lived cache).
+     * Accepts the same allocation profile params as /load.
+     * 
+     * Submission goes through admission control with one operation's bytes: 400 when an
+     * operation exceeds max-request-mb, 429 when the policy sheds it. Once started, the job
+     * keeps its own rate and its operations are not admitted one by one.
+     */
+    @PostMapping("/jobs/mixed")
+    public Map<String, Object> submitMixedJob(
+            @RequestParam(defaultValue = "80") int shortLivedMB,
+            @RequestParam(defaultValue = "20") int longLivedMB,
+            @RequestParam(defaultValue = "2") double rate,
+            @RequestParam(defaultValue = "60") int duration,
+            @RequestParam(defaultValue = "1") int workers,
+            @RequestParam(defaultValue = "BYTE_ARRAY") ObjectShape shape,
+            @RequestParam(defaultValue = "FIXED") SizeDistribution distribution,
+            @RequestParam(defaultValue = "10240") int sizeKB,
+            @RequestParam(defaultValue = "8") int fanOut,
+            @RequestParam(defaultValue = "RANDOM") FillStrategy fill,
+            @RequestParam(defaultValue = "FRESH") BufferStrategy buffers) {
+        
+        if (shortLivedMB < 0 || longLivedMB < 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "shortLivedMB and longLivedMB must not be negative, got " + shortLivedMB + " and " + longLivedMB);
+        }
+        AllocationProfile profile = profile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        LoadPlan plan = plan(rate, duration, workers);
+        try (Permit permit = admit("jobs", ((long) shortLivedMB + longLivedMB) * 1024 * 1024)) {
+            return jobMap(loadJobService.submitMixed(plan, shortLivedMB, longLivedMB, profile));
+        }
+    }
+
+    /**
+     * All jobs (running and recently finished) - GET /api/memory/jobs
+     */
+    @GetMapping("/jobs")
+    public List<Map<String, Object>> jobs() {
+        return loadJobService.list().stream().map(MemoryController::jobMap).toList();
+    }
+
+    /**
+     * Live progress of one job - GET /api/memory/jobs/{id}
+     */
+    @GetMapping("/jobs/{id}")
+    public Map<String, Object> job(@PathVariable String id) {
+        return jobMap(loadJobService.find(id).orElseThrow(() -> unknownJob(id)));
+    }
+
+    /**
+     * Stop a job early - POST /api/memory/jobs/{id}/stop
+     * In-flight operations complete; the final report stays available.
+     */
+    @PostMapping("/jobs/{id}/stop")
+    public Map<String, Object> stopJob(@PathVariable String id) {
+        return jobMap(loadJobService.stop(id).orElseThrow(() -> unknownJob(id)));
+    }
+
     /**
      * Quick GC stats endpoint
      */
@@ -114,4 +319,77 @@ public class MemoryController {
         
         return stats;
     }
+    
+    private static Map<String, Object> jobMap(Job job) {
+        LoadReport report = job.run().report();
+        double seconds = report.durationNanos() / 1_000_000_000.0;
+        
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", job.id());
+        map.put("type", job.type());
+        map.put("state", job.state());
+        map.put("description", job.description());
+        map.put("targetRate", report.plan().targetRate());
+        map.put("achievedRate", String.format("%.2f", report.achievedRate()));
+        map.put("operations", report.operations());
+        map.put("errors", report.errors());
+        if (job.run().failure() != null) {
+            map.put("failure", job.run().failure().toString());
+        }
+        map.put("elapsedSeconds", String.format("%.1f", seconds));
+        map.put("plannedSeconds", report.plan().durationSeconds());
+        map.put("totalMB", String.format("%.2f", report.totalMB()));
+        map.put("allocationMBPerSecond", String.format("%.2f", seconds == 0 ? 0 : report.totalMB() / seconds));
+        map.put("correctedLatency", latencyMap(report.corrected()));
+        map.put("uncorrectedLatency", latencyMap(report.uncorrected()));
+        return map;
+    }
+    
+    private Permit admit(String endpoint, long expectedBytes) {
+        try {
+            return admission.acquire(endpoint, expectedBytes);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static long requestBytes(int count, int unitKB) {
+        try {
+            return Math.multiplyExact(Math.multiplyExact((long) count, unitKB), 1024L);
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Request too large: " + count + " x " + unitKB + " KB", e);
+        }
+    }
+
+    private static LoadPlan plan(double rate, int duration, int workers) {
+        try {
+            return new LoadPlan(rate, duration, workers);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static AllocationProfile profile(ObjectShape shape, SizeDistribution distribution, int sizeKB, int fanOut,
+                                             FillStrategy fill, BufferStrategy buffers) {
+        try {
+            return new AllocationProfile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static ResponseStatusException unknownJob(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job: " + id);
+    }
+    
+    private static Map<String, Object> latencyMap(LatencySummary latency) {
+        return Map.of(
+            "count", latency.count(),
+            "p50Ms", String.format("%.3f", latency.p50Ms()),
+            "p99Ms", String.format("%.3f", latency.p99Ms()),
+            "p999Ms", String.format("%.3f", latency.p999Ms()),
+            "maxMs", String.format("%.3f", latency.maxMs())
+        );
+    }
 }
@@ -0,0 +1,27 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.WorkloadExecutorService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/parallel")
+public class ParallelController {
+
+    private final WorkloadExecutorService workloadExecutorService;
+
+    public ParallelController(WorkloadExecutorService workloadExecutorService) {
+        this.workloadExecutorService = workloadExecutorService;
+    }
+
+    /**
+     * Allocation rate (total and per worker) and scaling efficiency of mode=FORK_JOIN
+     * requests, per workload and parallelism
+     * GET /api/parallel
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return workloadExecutorService.getScalingStats();
+    }
+}
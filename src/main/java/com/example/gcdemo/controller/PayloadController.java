@@ -0,0 +1,86 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.AdmissionControlService;
+import com.example.gcdemo.service.AdmissionControlService.Permit;
+import com.example.gcdemo.service.PayloadService;
+import com.example.gcdemo.service.PayloadService.PayloadMode;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/payload")
+public class PayloadController {
+
+    private final PayloadService payloadService;
+    private final AdmissionControlService admission;
+
+    public PayloadController(PayloadService payloadService, AdmissionControlService admission) {
+        this.payloadService = payloadService;
+        this.admission = admission;
+    }
+
+    /**
+     * Large response - GET /api/payload/{mb}?mode=STREAMING&chunkKB=64
+     * Sends mb MB of application/octet-stream, written as
+     * BUFFERED (one byte[] of the whole payload, Content-Length set),
+     * STREAMING (reused chunkKB buffer, chunked transfer encoding) or
+     * ZERO_COPY (FileChannel.transferTo, Content-Length set).
+     *
+     * The body is written by Spring MVC's async executor after this method returns.
+     * BUFFERED goes through admission control (see /api/admission) like the burst endpoints.
+     */
+    @GetMapping("/{mb}")
+    public ResponseEntity<StreamingResponseBody> payload(
+            @PathVariable int mb,
+            @RequestParam(defaultValue = "STREAMING") PayloadMode mode,
+            @RequestParam(defaultValue = "64") int chunkKB) {
+
+        long bytes;
+        int chunkBytes;
+        try {
+            bytes = payloadService.payloadBytes(mb);
+            chunkBytes = payloadService.chunkBytes(chunkKB);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM);
+
+        return switch (mode) {
+            case BUFFERED -> {
+                Permit permit = admit("payload", bytes);
+                yield response.contentLength(bytes).body(out -> {
+                    try (permit) {
+                        payloadService.writeBuffered(bytes, out);
+                    }
+                });
+            }
+            case STREAMING -> response.body(out -> payloadService.writeStreaming(bytes, chunkBytes, out));
+            case ZERO_COPY -> response.contentLength(bytes).body(out -> payloadService.writeZeroCopy(bytes, out));
+        };
+    }
+
+    /**
+     * Responses, MB, write throughput and heap allocated per payload, by mode
+     * GET /api/payload
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return payloadService.getStats();
+    }
+
+    private Permit admit(String endpoint, long expectedBytes) {
+        try {
+            return admission.acquire(endpoint, expectedBytes);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.cache.ReferenceCache.Kind;
+import com.example.gcdemo.service.AdmissionControlService;
+import com.example.gcdemo.service.AdmissionControlService.Permit;
+import com.example.gcdemo.service.ReferenceWorkloadService;
+import com.example.gcdemo.service.ReferenceWorkloadService.RunResult;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/references")
+public class ReferenceController {
+
+    private final ReferenceWorkloadService referenceWorkloadService;
+    private final AdmissionControlService admission;
+
+    public ReferenceController(ReferenceWorkloadService referenceWorkloadService, AdmissionControlService admission) {
+        this.referenceWorkloadService = referenceWorkloadService;
+        this.admission = admission;
+    }
+
+    /**
+     * Reference cache run - POST /api/references/{kind}/run?operations=10000&keySpace=100000&valueKB=16
+     * kind is SOFT, WEAK, PHANTOM or CLEANER. Every miss allocates a valueKB value.
+     * Goes through admission control with operations * valueKB as the worst case.
+     */
+    @PostMapping("/{kind}/run")
+    @Timed(value = "gc.demo.references.request", description = "Time for reference cache request")
+    public Map<String, Object> run(
+            @PathVariable Kind kind,
+            @RequestParam(defaultValue = "10000") int operations,
+            @RequestParam(defaultValue = "100000") long keySpace,
+            @RequestParam(defaultValue = "16") int valueKB) {
+        if (operations < 1 || keySpace < 1 || valueKB < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "operations, keySpace and valueKB must be positive");
+        }
+
+        RunResult result;
+        try (Permit permit = admit("references", requestBytes(operations, valueKB))) {
+            result = referenceWorkloadService.run(kind, operations, keySpace, valueKB);
+        }
+
+        return Map.of(
+            "status", "completed",
+            "kind", result.kind(),
+            "operations", result.operations(),
+            "pinnedHits", result.pinnedHits(),
+            "referenceHits", result.referenceHits(),
+            "misses", result.misses(),
+            "hitRate", String.format("%.4f", result.hitRate()),
+            "allocatedMB", String.format("%.2f", result.allocatedMB()),
+            "durationMs", String.format("%.2f", result.durationMs())
+        );
+    }
+
+    /**
+     * Drop one kind's cache - POST /api/references/{kind}/reset
+     */
+    @PostMapping("/{kind}/reset")
+    public Map<String, Object> reset(@PathVariable Kind kind) {
+        referenceWorkloadService.reset(kind);
+        return Map.of("status", "reset", "kind", kind);
+    }
+
+    /**
+     * Per kind: tracked references, entries pending reclamation, reclamation latency, hit rate
+     * GET /api/references
+     */
+    @GetMapping
+    public Map<String, Object> stats() {
+        return referenceWorkloadService.getStats();
+    }
+
+    private Permit admit(String endpoint, long expectedBytes) {
+        try {
+            return admission.acquire(endpoint, expectedBytes);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+    }
+
+    private static long requestBytes(int count, int unitKB) {
+        try {
+            return Math.multiplyExact(Math.multiplyExact((long) count, unitKB), 1024L);
+        } catch (ArithmeticException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Request too large: " + count + " x " + unitKB + " KB", e);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.gcdemo.controller;
+
+import com.example.gcdemo.service.LoadDriverService.LatencySummary;
+import com.example.gcdemo.service.LoadDriverService.LoadReport;
+import com.example.gcdemo.service.ScenarioService;
+import com.example.gcdemo.service.ScenarioService.Phase;
+import com.example.gcdemo.service.ScenarioService.PhaseResult;
+import com.example.gcdemo.service.ScenarioService.Scenario;
+import com.example.gcdemo.service.ScenarioService.ScenarioRun;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/api/scenarios")
+public class ScenarioController {
+
+    private final ScenarioService scenarioService;
+
+    public ScenarioController(ScenarioService scenarioService) {
+        this.scenarioService = scenarioService;
+    }
+
+    /**
+     * Run a scenario from the request body (YAML or JSON)
+     * POST /api/scenarios
+     *
+     * curl -X POST --data-binary @my-scenario.yml -H "Content-Type: application/yaml" http://localhost:8080/api/scenarios
+     */
+    @PostMapping
+    public Map<String, Object> submit(@RequestBody String body) {
+        return start(() -> scenarioService.parse(body));
+    }
+
+    /**
+     * Run a bundled scenario
+     * POST /api/scenarios/builtin/daily-ramp
+     */
+    @PostMapping("/builtin/{name}")
+    public Map<String, Object> submitBuiltin(@PathVariable String name) {
+        return start(() -> scenarioService.loadBuiltin(name));
+    }
+
+    /**
+     * Names of the bundled scenarios
+     * GET /api/scenarios/builtin
+     */
+    @GetMapping("/builtin")
+    public List<String> builtin() {
+        return scenarioService.builtinNames();
+    }
+
+    /**
+     * All runs (running and recently finished)
+     * GET /api/scenarios
+     */
+    @GetMapping
+    public List<Map<String, Object>> runs() {
+        return scenarioService.list().stream().map(ScenarioController::runMap).toList();
+    }
+
+    /**
+     * Progress of one run: finished phases plus live numbers of the current one
+     * GET /api/scenarios/{id}
+     */
+    @GetMapping("/{id}")
+    public Map<String, Object> status(@PathVariable String id) {
+        return runMap(scenarioService.find(id).orElseThrow(() -> unknownRun(id)));
+    }
+
+    /**
+     * Stop a run
+     * POST /api/scenarios/{id}/stop
+     */
+    @PostMapping("/{id}/stop")
+    public Map<String, Object> stop(@PathVariable String id) {
+        return runMap(scenarioService.stop(id).orElseThrow(() -> unknownRun(id)));
+    }
+
+    private Map<String, Object> start(Supplier<Scenario> scenario) {
+        try {
+            return runMap(scenarioService.start(scenario.get()));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, Object> runMap(ScenarioRun run) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", run.id());
+        map.put("scenario", run.scenario().name());
+        map.put("state", run.state());
+        map.put("currentPhase", run.currentPhase());
+        map.put("phases", run.scenario().phases().stream().map(Phase::name).toList());
+        map.put("completedPhases", run.results().stream().map(ScenarioController::phaseMap).toList());
+        run.currentStepReport().ifPresent(report -> map.put("current", stepMap(report)));
+        if (run.error() != null) {
+            map.put("error", run.error());
+        }
+        return map;
+    }
+
+    private static Map<String, Object> phaseMap(PhaseResult result) {
+        return Map.of(
+            "name", result.name(),
+            "operations", result.operations(),
+            "totalMB", String.format("%.2f", result.totalBytes() / (1024.0 * 1024.0)),
+            "durationMs", String.format("%.2f", result.durationNanos() / 1_000_000.0),
+            "allocationMBPerSecond", String.format("%.2f", result.allocationMBPerSecond()),
+            "correctedLatency", latencyMap(result.corrected())
+        );
+    }
+
+    private static Map<String, Object> stepMap(LoadReport report) {
+        return Map.of(
+            "targetRate", String.format("%.2f", report.plan().targetRate()),
+            "achievedRate", String.format("%.2f", report.achievedRate()),
+            "operations", report.operations(),
+            "totalMB", String.format("%.2f", report.totalMB()),
+            "correctedLatency", latencyMap(report.corrected())
+        );
+    }
+
+    private static Map<String, Object> latencyMap(LatencySummary latency) {
+        return Map.of(
+            "count", latency.count(),
+            "p50Ms", String.format("%.3f", latency.p50Ms()),
+            "p99Ms", String.format("%.3f", latency.p99Ms()),
+            "p999Ms", String.format("%.3f", latency.p999Ms()),
+            "maxMs", String.format("%.3f", latency.maxMs())
+        );
+    }
+
+    private static ResponseStatusException unknownRun(String id) {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown scenario run: " + id);
+    }
+}
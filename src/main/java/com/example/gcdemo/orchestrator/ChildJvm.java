@@ -0,0 +1,191 @@
+package com.example.gcdemo.orchestrator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One forked instance of the application, listening on its own local port.
+ */
+final class ChildJvm implements AutoCloseable {
+
+    private static final Duration HEALTH_POLL_INTERVAL = Duration.ofMillis(500);
+    // USER_HZ, the unit of /proc CPU times (100 on every mainstream Linux build)
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    private final String name;
+    private final List<String> jvmArgs;
+    private final int port;
+    private final Process process;
+
+    private ChildJvm(String name, List<String> jvmArgs, int port, Process process) {
+        this.name = name;
+        this.jvmArgs = jvmArgs;
+        this.port = port;
+        this.process = process;
+    }
+
+    /**
+     * Forks {@code java <jvmArgs> -jar <jar> --server.port=<port> <appArgs>},
+     * optionally pinned to {@code cpuSet} with taskset, with stdout/stderr in {@code log}.
+     */
+    static ChildJvm start(String name, String javaCommand, Path jar, List<String> jvmArgs, List<String> appArgs,
+                          int port, String cpuSet, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        if (cpuSet != null) {
+            command.addAll(List.of("taskset", "-c", cpuSet));
+        }
+        command.add(javaCommand);
+        command.addAll(jvmArgs);
+        command.addAll(List.of("-jar", jar.toString(), "--server.port=" + port));
+        command.addAll(appArgs);
+
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new ChildJvm(name, jvmArgs, port, process);
+    }
+
+    /**
+     * Polls /actuator/health until it answers 200.
+     *
+     * @throws IllegalStateException if the JVM exits or does not come up in time
+     */
+    void awaitHealthy(HttpClient client, Duration timeout) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/actuator/health"))
+                .timeout(HEALTH_POLL_INTERVAL.multipliedBy(4))
+                .build();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(name + " exited with code " + process.exitValue() + " during startup");
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(HEALTH_POLL_INTERVAL.toMillis());
+        }
+        throw new IllegalStateException(name + " did not become healthy within " + timeout.toSeconds() + "s");
+    }
+
+    URI uri(String pathAndQuery) {
+        return URI.create("http://localhost:" + port + pathAndQuery);
+    }
+
+    String name() {
+        return name;
+    }
+
+    List<String> jvmArgs() {
+        return jvmArgs;
+    }
+
+    int port() {
+        return port;
+    }
+
+    long pid() {
+        return process.pid();
+    }
+
+    /**
+     * CPU time (user + system) consumed by the JVM so far.
+     */
+    Duration cpuTime() {
+        return process.info().totalCpuDuration().orElse(Duration.ZERO);
+    }
+
+    /**
+     * CPU time of the collector's threads so far, from /proc (Linux only); zero elsewhere.
+     *
+     * Counts GC worker and concurrent threads ("GC Thread#0", "G1 Conc#0",
+     * "ZWorkerYoung#0", ...) plus the VM Thread, which runs Serial collections.
+     * Time of GC threads that have already exited is lost.
+     */
+    Duration gcCpuTime() {
+        long ticks = 0;
+        try (DirectoryStream<Path> tasks = Files.newDirectoryStream(Path.of("/proc", String.valueOf(process.pid()), "task"))) {
+            for (Path task : tasks) {
+                try {
+                    // "tid (name) state ..."; utime and stime are fields 14 and 15
+                    String stat = Files.readString(task.resolve("stat"));
+                    int nameEnd = stat.lastIndexOf(')');
+                    String name = stat.substring(stat.indexOf('(') + 1, nameEnd);
+                    if (isGcThread(name)) {
+                        String[] fields = stat.substring(nameEnd + 2).split(" ");
+                        ticks += Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // Thread exited while we were reading
+                }
+            }
+        } catch (IOException e) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(ticks * 1000 / CLOCK_TICKS_PER_SECOND);
+    }
+
+    private static boolean isGcThread(String name) {
+        return name.startsWith("GC Thread") || name.startsWith("G1 ") || name.startsWith("Z")
+                || name.startsWith("Shenandoah") || name.equals("VM Thread");
+    }
+
+    /**
+     * Current resident set size, from /proc (Linux only); -1 elsewhere.
+     */
+    long rssBytes() {
+        return procStatusBytes("VmRSS:");
+    }
+
+    /**
+     * Peak resident set size since the JVM started, from /proc (Linux only); -1 elsewhere.
+     */
+    long peakRssBytes() {
+        return procStatusBytes("VmHWM:");
+    }
+
+    private long procStatusBytes(String field) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(process.pid()), "status"))) {
+                if (line.startsWith(field)) {
+                    // "VmRSS:	  123456 kB"
+                    String[] parts = line.substring(field.length()).trim().split("\\s+");
+                    return Long.parseLong(parts[0]) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or the process is gone
+        }
+        return -1;
+    }
+
+    /**
+     * Asks the JVM to shut down (SIGTERM), then kills it after 15 seconds.
+     */
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(15, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.gcdemo.orchestrator;
+
+import java.util.List;
+
+/**
+ * Collector variants and the JVM flags that select them.
+ */
+public enum Collector {
+    G1("-XX:+UseG1GC"),
+    PARALLEL("-XX:+UseParallelGC"),
+    SERIAL("-XX:+UseSerialGC"),
+    ZGC("-XX:+UseZGC", "-XX:-ZGenerational"),
+    ZGC_GENERATIONAL("-XX:+UseZGC", "-XX:+ZGenerational");
+
+    private final List<String> flags;
+
+    Collector(String... flags) {
+        this.flags = List.of(flags);
+    }
+
+    public List<String> flags() {
+        return flags;
+    }
+}
@@ -0,0 +1,466 @@
+package com.example.gcdemo.orchestrator;
+
+import com.example.gcdemo.orchestrator.ComparisonReport.VariantResult;
+import com.example.gcdemo.service.LoadDriverService.LatencySummary;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unattended collector comparison on one box.
+ *
+ * Forks one child JVM of this application per variant on local ports, drives
+ * the same request against all of them in lockstep, scrapes their metrics and
+ * writes a consolidated report:
+ *   results/compare-{timestamp}.json - machine-readable, usable as a baseline
+ *   results/compare-{timestamp}.csv  - one row per variant
+ *   results/compare-{timestamp}.txt  - the table printed at the end
+ *   results/compare-{timestamp}-{variant}.log - child JVM output
+ *
+ * Lockstep: every step sends {@code concurrency} requests to every child at once
+ * and waits for all of them before the next step, so the variants see the same
+ * load at the same time and compete for the same CPUs. Pin them with cpuSets
+ * for runs where that matters.
+ *
+ * Run through the application jar:
+ *   java -Dvariants=G1,ZGC_GENERATIONAL,ZGC -Dheap=2g -jar target/gc-compare-demo-1.0.0.jar compare
+ *
+ * System properties:
+ *   -Dvariants=G1,ZGC_GENERATIONAL,ZGC   Collector names (default), or name=flags for a custom
+ *                                        variant, e.g. "zgc-5s=-XX:+UseZGC -XX:ZCollectionInterval=5"
+ *   -Dheap=2g                            -Xmx of every child (default: 2g)
+ *   -Dxms=2g                             -Xms of every child (default: same as heap)
+ *   -DjvmArgs="-XX:+AlwaysPreTouch"      extra JVM flags for every child
+ *   -DappArgs="--gcdemo.storage.long-lived=OFF_HEAP"  extra application args for every child
+ *   -DcpuSets="0-3;4-7;8-11"             pin child i to CPU set i with taskset (Linux)
+ *   -Dpath=/api/better/natural/80/20     request to drive, POSTed (default)
+ *   -Dwarmup=20                          unmeasured steps (default: 20)
+ *   -Diterations=200                     measured steps (default: 200)
+ *   -Dconcurrency=1                      requests per child per step (default: 1)
+ *   -DbasePort=18080                     child i listens on basePort + i (default: 18080)
+ *   -DstartupSeconds=120                 health-check timeout (default: 120)
+ *   -Dresults=results                    output directory (default: results)
+ *   -Djar=target/gc-compare-demo-1.0.0.jar  application jar (default: the running jar)
+ *   -Dbaseline=results/compare-....json  diff against this report (see {@link ReportDiff}),
+ *                                        write compare-{timestamp}-diff.txt and exit 1 on regressions
+ *   -Dtolerance=10 -Dtolerance.{metric}=25  regression tolerances in percent
+ */
+public class ComparisonOrchestrator {
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int GC_EVENTS_LIMIT = 500;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+    // Upper bounds (exclusive) of the pause histogram buckets
+    private static final long[] PAUSE_BUCKETS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000};
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final String path = System.getProperty("path", "/api/better/natural/80/20");
+    private final int warmup = Integer.getInteger("warmup", 20);
+    private final int iterations = Integer.getInteger("iterations", 200);
+    private final int concurrency = Integer.getInteger("concurrency", 1);
+    private final int basePort = Integer.getInteger("basePort", 18080);
+    private final Duration startup = Duration.ofSeconds(Integer.getInteger("startupSeconds", 120));
+    private final Path jar = Path.of(System.getProperty("jar", defaultJar()));
+    private final String java = ProcessHandle.current().info().command()
+            .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+
+    /**
+     * Per-child accumulators; only touched by the orchestrator thread between steps.
+     */
+    private static final class VariantRun {
+        final ChildJvm jvm;
+        final Histogram latency = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final Histogram pauses = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        final long[] pauseBuckets = new long[PAUSE_BUCKETS_MS.length + 1];
+        long operations;
+        long errors;
+        double requestMB;
+        long busyNanos;
+        double pauseTotalMs;
+        long cycles;
+        double cycleTotalMs;
+        long lastEventId;
+        long measureStartEpochMs;
+        Duration cpuAtStart;
+        Duration gcCpuAtStart;
+        Map<String, Double> metricsAtStart;
+
+        VariantRun(ChildJvm jvm) {
+            this.jvm = jvm;
+        }
+    }
+
+    record Variant(String name, List<String> flags) {}
+
+    /**
+     * A child JVM to start: its full JVM flags, optional CPU set and log file.
+     */
+    record ChildSpec(String name, List<String> jvmArgs, String cpuSet, Path log) {}
+
+    private record Outcome(long nanos, boolean ok, double totalMB) {}
+
+    public static void main(String[] args) throws Exception {
+        if (!new ComparisonOrchestrator().run()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return false if the run regressed against the baseline
+     */
+    private boolean run() throws Exception {
+        String heap = System.getProperty("heap", "2g");
+        String xms = System.getProperty("xms", heap);
+        List<String> extraJvmArgs = words(System.getProperty("jvmArgs", ""));
+        List<String> appArgs = words(System.getProperty("appArgs", ""));
+        String cpuSetsProperty = System.getProperty("cpuSets");
+        List<String> cpuSets = cpuSetsProperty == null ? List.of() : Arrays.asList(cpuSetsProperty.split(";"));
+        Path resultsDir = Path.of(System.getProperty("results", "results"));
+        String baselineProperty = System.getProperty("baseline");
+        ComparisonReport baseline = baselineProperty == null ? null : ComparisonReport.readJson(Path.of(baselineProperty));
+
+        List<Variant> variants = parseVariants(System.getProperty("variants", "G1,ZGC_GENERATIONAL,ZGC"));
+        if (!cpuSets.isEmpty() && cpuSets.size() != variants.size()) {
+            throw new IllegalArgumentException("cpuSets needs one entry per variant: " + cpuSetsProperty);
+        }
+        checkJar();
+
+        String startedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        String prefix = "compare-" + startedAt;
+        Files.createDirectories(resultsDir);
+
+        Map<String, Object> settings = workloadSettings();
+        settings.put("heap", heap);
+        settings.put("xms", xms);
+        settings.put("jvmArgs", extraJvmArgs);
+        settings.put("appArgs", appArgs);
+        settings.put("cpuSets", cpuSets);
+        settings.put("javaVersion", System.getProperty("java.version"));
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+
+        List<ChildSpec> children = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            Variant variant = variants.get(i);
+            List<String> jvmArgs = new ArrayList<>(List.of("-Xms" + xms, "-Xmx" + heap));
+            jvmArgs.addAll(variant.flags());
+            jvmArgs.addAll(extraJvmArgs);
+            children.add(new ChildSpec(variant.name(), jvmArgs, cpuSets.isEmpty() ? null : cpuSets.get(i),
+                resultsDir.resolve(prefix + "-" + variant.name().toLowerCase() + ".log")));
+        }
+
+        ComparisonReport report = new ComparisonReport(startedAt, settings, measure(children, appArgs));
+        report.writeJson(resultsDir.resolve(prefix + ".json"));
+        report.writeCsv(resultsDir.resolve(prefix + ".csv"));
+        report.writeText(resultsDir.resolve(prefix + ".txt"));
+        System.out.println();
+        System.out.print(report.toText());
+        System.out.println("Report written to " + resultsDir.resolve(prefix + ".json"));
+
+        if (baseline != null) {
+            ReportDiff diff = ReportDiff.compare(baseline, report,
+                ReportDiff.defaultTolerance(), ReportDiff.toleranceOverrides());
+            Files.writeString(resultsDir.resolve(prefix + "-diff.txt"), diff.toText());
+            System.out.println();
+            System.out.println("Against baseline " + baselineProperty + ":");
+            System.out.print(diff.toText());
+            return !diff.hasRegressions();
+        }
+        return true;
+    }
+
+    /**
+     * The request driven and how often; the start of every report's settings.
+     */
+    Map<String, Object> workloadSettings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("path", path);
+        settings.put("warmup", warmup);
+        settings.put("iterations", iterations);
+        settings.put("concurrency", concurrency);
+        return settings;
+    }
+
+    void checkJar() {
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("Application jar not found: " + jar + " (build it or set -Djar)");
+        }
+    }
+
+    /**
+     * Starts the children on consecutive ports from basePort, warms them up,
+     * measures them in lockstep and stops them again.
+     *
+     * @throws IllegalStateException if a child does not come up
+     */
+    List<VariantResult> measure(List<ChildSpec> children, List<String> appArgs) throws IOException, InterruptedException {
+        List<VariantRun> runs = new ArrayList<>();
+        Thread cleanup = new Thread(() -> runs.forEach(run -> run.jvm.close()));
+        Runtime.getRuntime().addShutdownHook(cleanup);
+        try {
+            for (int i = 0; i < children.size(); i++) {
+                ChildSpec child = children.get(i);
+                System.out.println("Starting " + child.name() + " on port " + (basePort + i) + " " + child.jvmArgs());
+                runs.add(new VariantRun(ChildJvm.start(child.name(), java, jar, child.jvmArgs(), appArgs,
+                    basePort + i, child.cpuSet(), child.log())));
+            }
+            for (VariantRun run : runs) {
+                run.jvm.awaitHealthy(client, startup);
+            }
+
+            System.out.println("Warming up: " + warmup + " steps of POST " + path);
+            for (int step = 0; step < warmup; step++) {
+                step(runs, false);
+            }
+            for (VariantRun run : runs) {
+                run.measureStartEpochMs = System.currentTimeMillis();
+                run.cpuAtStart = run.jvm.cpuTime();
+                run.gcCpuAtStart = run.jvm.gcCpuTime();
+                run.metricsAtStart = scrape(run.jvm);
+            }
+
+            System.out.println("Measuring: " + iterations + " steps");
+            for (int step = 0; step < iterations; step++) {
+                step(runs, true);
+                if ((step + 1) % Math.max(1, iterations / 10) == 0) {
+                    System.out.println("  " + (step + 1) + "/" + iterations);
+                }
+            }
+
+            List<VariantResult> results = new ArrayList<>();
+            for (VariantRun run : runs) {
+                results.add(result(run));
+            }
+            return results;
+        } finally {
+            runs.forEach(run -> run.jvm.close());
+            Runtime.getRuntime().removeShutdownHook(cleanup);
+        }
+    }
+
+    /**
+     * Sends {@code concurrency} requests to every child at once and waits for all of them.
+     */
+    private void step(List<VariantRun> runs, boolean measured) throws IOException, InterruptedException {
+        List<List<CompletableFuture<Outcome>>> inFlight = new ArrayList<>();
+        for (VariantRun run : runs) {
+            List<CompletableFuture<Outcome>> requests = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                requests.add(send(run.jvm));
+            }
+            inFlight.add(requests);
+        }
+        for (int i = 0; i < runs.size(); i++) {
+            VariantRun run = runs.get(i);
+            long slowest = 0;
+            for (CompletableFuture<Outcome> request : inFlight.get(i)) {
+                Outcome outcome = request.join();
+                slowest = Math.max(slowest, outcome.nanos());
+                if (measured) {
+                    run.operations++;
+                    run.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(outcome.nanos()), HIGHEST_TRACKABLE_MICROS));
+                    run.requestMB += outcome.totalMB();
+                    if (!outcome.ok()) {
+                        run.errors++;
+                    }
+                }
+            }
+            if (measured) {
+                run.busyNanos += slowest;
+                collectGcEvents(run);
+            }
+        }
+    }
+
+    private CompletableFuture<Outcome> send(ChildJvm jvm) {
+        HttpRequest request = HttpRequest.newBuilder(jvm.uri(path))
+                .timeout(REQUEST_TIMEOUT)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .handle((response, error) -> {
+                    long nanos = System.nanoTime() - start;
+                    if (error != null || response.statusCode() / 100 != 2) {
+                        return new Outcome(nanos, false, 0);
+                    }
+                    return new Outcome(nanos, true, totalMB(response.body()));
+                });
+    }
+
+    private double totalMB(String body) {
+        try {
+            return mapper.readTree(body).path("totalMB").asDouble(0);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Adds the child's GC events since the last poll that started inside the measured window.
+     */
+    private void collectGcEvents(VariantRun run) throws IOException, InterruptedException {
+        JsonNode events = getJson(run.jvm, "/api/gc/events?limit=" + GC_EVENTS_LIMIT);
+        for (JsonNode event : events) {
+            long id = event.path("id").asLong();
+            if (id <= run.lastEventId) {
+                continue;
+            }
+            run.lastEventId = id;
+            if (event.path("startEpochMs").asLong() < run.measureStartEpochMs) {
+                continue;
+            }
+            long durationMs = event.path("durationMs").asLong();
+            if ("PAUSE".equals(event.path("kind").asText())) {
+                run.pauses.recordValue(Math.min(TimeUnit.MILLISECONDS.toMicros(durationMs), HIGHEST_TRACKABLE_MICROS));
+                run.pauseTotalMs += durationMs;
+                run.pauseBuckets[bucketOf(durationMs)]++;
+            } else {
+                run.cycles++;
+                run.cycleTotalMs += durationMs;
+            }
+        }
+    }
+
+    private VariantResult result(VariantRun run) throws IOException, InterruptedException {
+        Map<String, Double> metrics = scrape(run.jvm);
+        double busySeconds = run.busyNanos / 1e9;
+        double cpuSeconds = run.jvm.cpuTime().minus(run.cpuAtStart).toNanos() / 1e9;
+        double gcCpuSeconds = run.jvm.gcCpuTime().minus(run.gcCpuAtStart).toNanos() / 1e9;
+        long rss = run.jvm.rssBytes();
+        long peakRss = run.jvm.peakRssBytes();
+        return new VariantResult(
+            run.jvm.name(),
+            run.jvm.jvmArgs(),
+            run.operations,
+            run.errors,
+            busySeconds,
+            busySeconds == 0 ? 0 : run.operations / busySeconds,
+            busySeconds == 0 ? 0 : run.requestMB / busySeconds,
+            LatencySummary.of(run.latency),
+            LatencySummary.of(run.pauses),
+            pauseHistogram(run.pauseBuckets),
+            run.pauseTotalMs,
+            run.cycles,
+            run.cycleTotalMs,
+            delta(metrics, run.metricsAtStart, "jvm_gc_memory_allocated_bytes_total") / BYTES_PER_MB,
+            delta(metrics, run.metricsAtStart, "jvm_gc_memory_promoted_bytes_total") / BYTES_PER_MB,
+            cpuSeconds,
+            run.operations == 0 ? 0 : cpuSeconds * 1000 / run.operations,
+            gcCpuSeconds,
+            cpuSeconds == 0 ? 0 : gcCpuSeconds / cpuSeconds * 100,
+            rss < 0 ? -1 : rss / BYTES_PER_MB,
+            peakRss < 0 ? -1 : peakRss / BYTES_PER_MB
+        );
+    }
+
+    private static int bucketOf(long durationMs) {
+        for (int i = 0; i < PAUSE_BUCKETS_MS.length; i++) {
+            if (durationMs < PAUSE_BUCKETS_MS[i]) {
+                return i;
+            }
+        }
+        return PAUSE_BUCKETS_MS.length;
+    }
+
+    /**
+     * Bucket counts labelled "<1ms", "1-2ms", ..., ">=1000ms"; empty buckets included.
+     */
+    private static Map<String, Long> pauseHistogram(long[] buckets) {
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < buckets.length; i++) {
+            String label;
+            if (i == 0) {
+                label = "<" + PAUSE_BUCKETS_MS[0] + "ms";
+            } else if (i == PAUSE_BUCKETS_MS.length) {
+                label = ">=" + PAUSE_BUCKETS_MS[i - 1] + "ms";
+            } else {
+                label = PAUSE_BUCKETS_MS[i - 1] + "-" + PAUSE_BUCKETS_MS[i] + "ms";
+            }
+            histogram.put(label, buckets[i]);
+        }
+        return histogram;
+    }
+
+    /**
+     * Reads /actuator/prometheus and sums every series of each metric name (across tags).
+     */
+    private Map<String, Double> scrape(ChildJvm jvm) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(jvm.uri("/actuator/prometheus")).timeout(REQUEST_TIMEOUT).build();
+        String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+        Map<String, Double> totals = new LinkedHashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int nameEnd = line.indexOf('{');
+            if (nameEnd < 0) {
+                nameEnd = line.indexOf(' ');
+            }
+            try {
+                double value = Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+                totals.merge(line.substring(0, nameEnd), value, Double::sum);
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                // Not a sample line
+            }
+        }
+        return totals;
+    }
+
+    private JsonNode getJson(ChildJvm jvm, String pathAndQuery) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(jvm.uri(pathAndQuery)).timeout(REQUEST_TIMEOUT).build();
+        return mapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+    }
+
+    private static double delta(Map<String, Double> end, Map<String, Double> start, String metric) {
+        return end.getOrDefault(metric, 0.0) - start.getOrDefault(metric, 0.0);
+    }
+
+    static List<Variant> parseVariants(String property) {
+        List<Variant> variants = new ArrayList<>();
+        for (String entry : property.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals > 0) {
+                variants.add(new Variant(entry.substring(0, equals).trim(), words(entry.substring(equals + 1))));
+            } else {
+                Collector collector = Collector.valueOf(entry.trim().toUpperCase());
+                variants.add(new Variant(collector.name(), collector.flags()));
+            }
+        }
+        return variants;
+    }
+
+    /**
+     * The jar this orchestrator was launched from, when started with java -jar.
+     */
+    private static String defaultJar() {
+        String classPath = System.getProperty("java.class.path", "");
+        return classPath.endsWith(".jar") && !classPath.contains(File.pathSeparator)
+                ? classPath
+                : "target/gc-compare-demo-1.0.0.jar";
+    }
+
+    static List<String> words(String value) {
+        return value.isBlank() ? List.of() : Arrays.asList(value.trim().split("\\s+"));
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.gcdemo.orchestrator;
+
+import com.example.gcdemo.service.LoadDriverService.LatencySummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Consolidated result of one comparison run, written as JSON (for tooling and
+ * as a baseline for {@link ReportDiff}), CSV (one row per variant, for
+ * spreadsheets) and a fixed-width text table (for people).
+ *
+ * @param settings the orchestrator settings the run used, so it can be repeated
+ */
+public record ComparisonReport(String startedAt, Map<String, Object> settings, List<VariantResult> variants) {
+
+    /**
+     * Measured (post-warmup) numbers of one child JVM.
+     *
+     * @param busySeconds      time this JVM took to finish its share of every measured step
+     * @param latency          client-side request latency
+     * @param pauses           stop-the-world pauses from the child's GC events (1ms resolution)
+     * @param pauseHistogram   pause counts per duration bucket, e.g. "10-20ms"
+     * @param cycleTotalMs     time in concurrent cycles (ZGC, G1 concurrent marking)
+     * @param jvmAllocatedMB   jvm_gc_memory_allocated_bytes_total delta scraped from /actuator/prometheus
+     * @param jvmPromotedMB    jvm_gc_memory_promoted_bytes_total delta
+     * @param cpuSeconds       user + system CPU time of the child JVM
+     * @param gcCpuSeconds     CPU time of the collector's threads (Linux only)
+     * @param gcCpuPercent     gcCpuSeconds as a share of cpuSeconds
+     * @param rssMB            resident set size at the end of the run (-1 when /proc is not available)
+     * @param peakRssMB        peak resident set size since the child started
+     */
+    public record VariantResult(
+        String name,
+        List<String> jvmArgs,
+        long operations,
+        long errors,
+        double busySeconds,
+        double operationsPerSecond,
+        double requestMBPerSecond,
+        LatencySummary latency,
+        LatencySummary pauses,
+        Map<String, Long> pauseHistogram,
+        double pauseTotalMs,
+        long cycles,
+        double cycleTotalMs,
+        double jvmAllocatedMB,
+        double jvmPromotedMB,
+        double cpuSeconds,
+        double cpuMsPerOperation,
+        double gcCpuSeconds,
+        double gcCpuPercent,
+        double rssMB,
+        double peakRssMB
+    ) {}
+
+    public void writeJson(Path file) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+    }
+
+    public static ComparisonReport readJson(Path file) throws IOException {
+        return new ObjectMapper().readValue(file.toFile(), ComparisonReport.class);
+    }
+
+    /**
+     * One row per variant; JVM args are space-separated, the pause histogram is
+     * "bucket=count" pairs separated by spaces.
+     */
+    public void writeCsv(Path file) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        csv.append("startedAt,variant,jvmArgs,path,iterations,concurrency,operations,errors,operationsPerSecond,"
+            + "requestMBPerSecond,latencyP50Ms,latencyP99Ms,latencyP999Ms,latencyMaxMs,pauses,pauseP50Ms,"
+            + "pauseP99Ms,pauseP999Ms,pauseMaxMs,pauseTotalMs,pauseHistogram,cycles,cycleTotalMs,jvmAllocatedMB,"
+            + "jvmPromotedMB,cpuSeconds,cpuMsPerOperation,gcCpuSeconds,gcCpuPercent,rssMB,peakRssMB\n");
+        for (VariantResult v : variants) {
+            List<Object> row = List.of(
+                startedAt, v.name(), String.join(" ", v.jvmArgs()), settings.getOrDefault("path", ""),
+                settings.getOrDefault("iterations", ""), settings.getOrDefault("concurrency", ""),
+                v.operations(), v.errors(), v.operationsPerSecond(), v.requestMBPerSecond(),
+                v.latency().p50Ms(), v.latency().p99Ms(), v.latency().p999Ms(), v.latency().maxMs(),
+                v.pauses().count(), v.pauses().p50Ms(), v.pauses().p99Ms(), v.pauses().p999Ms(), v.pauses().maxMs(),
+                v.pauseTotalMs(), histogramText(v.pauseHistogram()), v.cycles(), v.cycleTotalMs(),
+                v.jvmAllocatedMB(), v.jvmPromotedMB(), v.cpuSeconds(), v.cpuMsPerOperation(),
+                v.gcCpuSeconds(), v.gcCpuPercent(), v.rssMB(), v.peakRssMB());
+            csv.append(row.stream().map(ComparisonReport::csvField).collect(Collectors.joining(","))).append('\n');
+        }
+        Files.writeString(file, csv);
+    }
+
+    private static String csvField(Object value) {
+        String text = String.valueOf(value);
+        return text.contains(",") || text.contains("\"") ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+    }
+
+    private static String histogramText(Map<String, Long> histogram) {
+        return histogram.entrySet().stream()
+            .map(entry -> entry.getKey() + "=" + entry.getValue())
+            .collect(Collectors.joining(" "));
+    }
+
+    public void writeText(Path file) throws IOException {
+        Files.writeString(file, toText());
+    }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append("GC comparison started ").append(startedAt).append('\n');
+        settings.forEach((key, value) -> text.append("  ").append(key).append(" = ").append(value).append('\n'));
+        text.append('\n');
+
+        String format = "%-22s %9s %9s %9s %9s %9s %9s %7s %9s %9s %9s %9s %8s %7s %8s %9s%n";
+        text.append(String.format(format, "variant", "ops/s", "MB/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms",
+            "pauses", "pause p99", "pause max", "pause tot", "cycle tot", "CPU s", "GC CPU", "RSS MB", "peak RSS"));
+        for (VariantResult v : variants) {
+            text.append(String.format(format,
+                v.name(),
+                String.format("%.2f", v.operationsPerSecond()),
+                String.format("%.1f", v.requestMBPerSecond()),
+                String.format("%.1f", v.latency().p50Ms()),
+                String.format("%.1f", v.latency().p99Ms()),
+                String.format("%.1f", v.latency().p999Ms()),
+                String.format("%.1f", v.latency().maxMs()),
+                v.pauses().count(),
+                String.format("%.1f", v.pauses().p99Ms()),
+                String.format("%.1f", v.pauses().maxMs()),
+                String.format("%.0f", v.pauseTotalMs()),
+                String.format("%.0f", v.cycleTotalMs()),
+                String.format("%.1f", v.cpuSeconds()),
+                String.format("%.1f%%", v.gcCpuPercent()),
+                String.format("%.0f", v.rssMB()),
+                String.format("%.0f", v.peakRssMB())));
+        }
+
+        text.append('\n');
+        for (VariantResult v : variants) {
+            text.append(String.format("%-22s %s%n", v.name(), String.join(" ", v.jvmArgs())));
+            text.append(String.format("%-22s pauses: %s%n", "", histogramText(v.pauseHistogram())));
+            if (v.errors() > 0) {
+                text.append(String.format("%-22s %d of %d requests failed%n", "", v.errors(), v.operations()));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.gcdemo.orchestrator;
+
+import com.example.gcdemo.orchestrator.ComparisonOrchestrator.ChildSpec;
+import com.example.gcdemo.orchestrator.ComparisonOrchestrator.Variant;
+import com.example.gcdemo.orchestrator.ComparisonReport.VariantResult;
+import com.example.gcdemo.orchestrator.SweepReport.ConfigurationResult;
+import com.example.gcdemo.orchestrator.SweepReport.Trial;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the smallest heap each collector configuration can run the workload in
+ * while meeting a p99 latency SLO.
+ *
+ * A configuration is a collector variant (as in {@link ComparisonOrchestrator})
+ * combined with one value of every grid flag. For each one the sweep runs a
+ * child JVM with -Xms = -Xmx at the maximum heap first; if that passes, it
+ * bisects between the minimum and the last passing heap, one fresh child per
+ * trial, until the step is down to the resolution. A trial fails when its p99
+ * exceeds the SLO, a request fails, or the child dies or does not start.
+ * Bisection assumes a bigger heap never does worse, so noisy runs near the SLO
+ * can end up a step off; raise iterations for tighter results.
+ *
+ * The report lists every trial and, per configuration, the smallest passing
+ * heap with its peak RSS as the cost. Configurations that no other one beats on
+ * both cost and p99 form the frontier.
+ *   results/sweep-{timestamp}.json / .csv / .txt
+ *   results/sweep-{timestamp}-{configuration}-{heap}m.log - child JVM output
+ *
+ * Run through the application jar:
+ *   java -Dvariants=G1,ZGC_GENERATIONAL -DsloP99Ms=200 -jar target/gc-compare-demo-1.0.0.jar sweep
+ *
+ * System properties (plus path, warmup, iterations, concurrency, basePort,
+ * startupSeconds, jar, jvmArgs and appArgs as for compare):
+ *   -Dvariants=G1,ZGC_GENERATIONAL      Collector names (default) or name=flags
+ *   -DminHeap=256m -DmaxHeap=4g         heap range searched (defaults)
+ *   -Dresolution=64m                    stop bisecting once the range is this narrow (default)
+ *   -DsloP99Ms=200                      client-side p99 latency target (default: 200)
+ *   -DmaxErrors=0                       failed requests a passing trial may have (default: 0)
+ *   -Dgrid="MaxGCPauseMillis=50,200"    flag values to combine with every variant, ';' between flags;
+ *                                       a value ending in % is a share of the trial's heap
+ *                                       (e.g. SoftMaxHeapSize=75%,100%)
+ *   -Dgrid.ZGC_GENERATIONAL="ZCollectionInterval=0,5"  extra grid flags for one variant only
+ *   -DcpuSet=0-3                        pin every child to this CPU set with taskset (Linux)
+ *   -Dresults=results                   output directory (default: results)
+ */
+public class HeapSizingSweep {
+
+    private final ComparisonOrchestrator orchestrator = new ComparisonOrchestrator();
+
+    private final int minHeapMB = megabytes(System.getProperty("minHeap", "256m"));
+    private final int maxHeapMB = megabytes(System.getProperty("maxHeap", "4g"));
+    private final int resolutionMB = megabytes(System.getProperty("resolution", "64m"));
+    private final double sloP99Ms = Double.parseDouble(System.getProperty("sloP99Ms", "200"));
+    private final long maxErrors = Long.getLong("maxErrors", 0);
+    private final List<String> extraJvmArgs = ComparisonOrchestrator.words(System.getProperty("jvmArgs", ""));
+    private final List<String> appArgs = ComparisonOrchestrator.words(System.getProperty("appArgs", ""));
+    private final String cpuSet = System.getProperty("cpuSet");
+    private final Path resultsDir = Path.of(System.getProperty("results", "results"));
+    private final String startedAt = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+    private final String prefix = "sweep-" + startedAt;
+
+    /**
+     * One grid flag and the values to try, e.g. MaxGCPauseMillis with 50 and 200.
+     */
+    private record Axis(String flag, List<String> values) {}
+
+    /**
+     * A variant with one value per grid flag; flags may hold percentages of the heap.
+     */
+    private record Configuration(String name, List<String> flags) {
+
+        /**
+         * The flags for one trial, with "%" values turned into MB of {@code heapMB}.
+         */
+        List<String> flags(int heapMB) {
+            List<String> resolved = new ArrayList<>();
+            for (String flag : flags) {
+                int equals = flag.indexOf('=');
+                if (equals > 0 && flag.endsWith("%")) {
+                    double percent = Double.parseDouble(flag.substring(equals + 1, flag.length() - 1));
+                    resolved.add(flag.substring(0, equals + 1) + Math.round(heapMB * percent / 100) + "m");
+                } else {
+                    resolved.add(flag);
+                }
+            }
+            return resolved;
+        }
+
+        String fileName() {
+            return name.toLowerCase().replaceAll("[^a-z0-9.%-]+", "-").replace("%", "pct");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new HeapSizingSweep().run();
+    }
+
+    private void run() throws Exception {
+        if (minHeapMB < 1 || resolutionMB < 1 || maxHeapMB < minHeapMB) {
+            throw new IllegalArgumentException("Need 0 < minHeap <= maxHeap and resolution > 0, got minHeap="
+                + minHeapMB + "m maxHeap=" + maxHeapMB + "m resolution=" + resolutionMB + "m");
+        }
+        orchestrator.checkJar();
+        List<Configuration> configurations = configurations(
+            ComparisonOrchestrator.parseVariants(System.getProperty("variants", "G1,ZGC_GENERATIONAL")));
+        Files.createDirectories(resultsDir);
+
+        Map<String, Object> settings = orchestrator.workloadSettings();
+        settings.put("minHeapMB", minHeapMB);
+        settings.put("maxHeapMB", maxHeapMB);
+        settings.put("resolutionMB", resolutionMB);
+        settings.put("sloP99Ms", sloP99Ms);
+        settings.put("maxErrors", maxErrors);
+        settings.put("grid", System.getProperty("grid", ""));
+        System.getProperties().stringPropertyNames().stream()
+            .filter(name -> name.startsWith("grid."))
+            .sorted()
+            .forEach(name -> settings.put(name, System.getProperty(name)));
+        settings.put("jvmArgs", extraJvmArgs);
+        settings.put("appArgs", appArgs);
+        settings.put("cpuSet", cpuSet == null ? "" : cpuSet);
+        settings.put("javaVersion", System.getProperty("java.version"));
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        System.out.println("Sweeping " + configurations.size() + " configurations between " + minHeapMB + "m and "
+            + maxHeapMB + "m for p99 <= " + sloP99Ms + " ms");
+
+        List<Trial> trials = new ArrayList<>();
+        List<ConfigurationResult> results = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            results.add(search(configuration, trials));
+        }
+        results = markFrontier(results);
+
+        SweepReport report = new SweepReport(startedAt, settings, trials, results);
+        report.writeJson(resultsDir.resolve(prefix + ".json"));
+        report.writeCsv(resultsDir.resolve(prefix + ".csv"));
+        report.writeText(resultsDir.resolve(prefix + ".txt"));
+        System.out.println();
+        System.out.print(report.toText());
+        System.out.println("Report written to " + resultsDir.resolve(prefix + ".json"));
+    }
+
+    /**
+     * Every variant crossed with every combination of its grid values.
+     */
+    private static List<Configuration> configurations(List<Variant> variants) {
+        List<Axis> common = axes(System.getProperty("grid", ""));
+        List<Configuration> configurations = new ArrayList<>();
+        for (Variant variant : variants) {
+            List<Axis> axes = new ArrayList<>(common);
+            axes.addAll(axes(System.getProperty("grid." + variant.name(), "")));
+            List<Configuration> combined = List.of(new Configuration(variant.name(), variant.flags()));
+            for (Axis axis : axes) {
+                List<Configuration> next = new ArrayList<>();
+                for (Configuration partial : combined) {
+                    for (String value : axis.values()) {
+                        List<String> flags = new ArrayList<>(partial.flags());
+                        flags.add("-XX:" + axis.flag() + "=" + value);
+                        next.add(new Configuration(partial.name() + " " + axis.flag() + "=" + value, flags));
+                    }
+                }
+                combined = next;
+            }
+            configurations.addAll(combined);
+        }
+        return configurations;
+    }
+
+    /**
+     * "MaxGCPauseMillis=50,200;SoftMaxHeapSize=75%,100%" to one axis per flag.
+     */
+    private static List<Axis> axes(String property) {
+        List<Axis> axes = new ArrayList<>();
+        for (String entry : property.split(";")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals < 1) {
+                throw new IllegalArgumentException("Grid entries look like Flag=value1,value2: " + entry);
+            }
+            String flag = entry.substring(0, equals).trim().replaceFirst("^-XX:", "");
+            axes.add(new Axis(flag, Arrays.stream(entry.substring(equals + 1).split(",")).map(String::trim).toList()));
+        }
+        return axes;
+    }
+
+    /**
+     * Runs the maximum heap, then bisects toward the smallest passing heap on
+     * the grid minHeap + k * resolution.
+     */
+    private ConfigurationResult search(Configuration configuration, List<Trial> trials) throws InterruptedException {
+        int count = 0;
+        Trial best = trial(configuration, maxHeapMB);
+        trials.add(best);
+        count++;
+        if (!best.passed()) {
+            return new ConfigurationResult(configuration.name(), configuration.flags(), count, -1, -1, false, null);
+        }
+
+        // Below the range counts as failing
+        int failing = minHeapMB - resolutionMB;
+        int passing = maxHeapMB;
+        while (passing - failing > resolutionMB) {
+            int middle = failing + (passing - failing) / 2;
+            int heapMB = Math.max(failing + resolutionMB,
+                minHeapMB + Math.floorDiv(middle - minHeapMB, resolutionMB) * resolutionMB);
+            if (heapMB >= passing) {
+                break;
+            }
+            Trial trial = trial(configuration, heapMB);
+            trials.add(trial);
+            count++;
+            if (trial.passed()) {
+                passing = heapMB;
+                best = trial;
+            } else {
+                failing = heapMB;
+            }
+        }
+        VariantResult result = best.result();
+        double cost = result.peakRssMB() > 0 ? result.peakRssMB() : passing;
+        return new ConfigurationResult(configuration.name(), configuration.flags(), count, passing, cost, false, result);
+    }
+
+    private Trial trial(Configuration configuration, int heapMB) throws InterruptedException {
+        List<String> jvmArgs = new ArrayList<>(List.of("-Xms" + heapMB + "m", "-Xmx" + heapMB + "m"));
+        jvmArgs.addAll(configuration.flags(heapMB));
+        jvmArgs.addAll(extraJvmArgs);
+        Path log = resultsDir.resolve(prefix + "-" + configuration.fileName() + "-" + heapMB + "m.log");
+        System.out.println();
+        System.out.println("Trial " + configuration.name() + " at " + heapMB + "m");
+
+        Trial trial;
+        try {
+            VariantResult result = orchestrator.measure(
+                List.of(new ChildSpec(configuration.name(), jvmArgs, cpuSet, log)), appArgs).get(0);
+            String failure = failure(result);
+            trial = new Trial(configuration.name(), heapMB, jvmArgs, failure == null, failure, result);
+        } catch (IOException | IllegalStateException e) {
+            // Usually a child that ran out of memory and exited, or never came up
+            trial = new Trial(configuration.name(), heapMB, jvmArgs, false, "child failed: " + e.getMessage(), null);
+        }
+        System.out.println("  " + (trial.passed() ? "PASS" : "FAIL " + trial.failure()));
+        return trial;
+    }
+
+    /**
+     * Why a measured trial misses the SLO, or null if it meets it.
+     */
+    private String failure(VariantResult result) {
+        if (result.errors() > maxErrors) {
+            return result.errors() + " of " + result.operations() + " requests failed";
+        }
+        if (result.latency().p99Ms() > sloP99Ms) {
+            return String.format("p99 %.1f ms > %.1f ms", result.latency().p99Ms(), sloP99Ms);
+        }
+        return null;
+    }
+
+    /**
+     * Sorts passing configurations by cost and marks those faster than every cheaper
+     * one; configurations without a passing heap go last.
+     */
+    private static List<ConfigurationResult> markFrontier(List<ConfigurationResult> results) {
+        List<ConfigurationResult> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparing((ConfigurationResult c) -> c.passing() == null)
+            .thenComparingDouble(ConfigurationResult::costMB)
+            .thenComparingDouble(c -> c.passing() == null ? 0 : c.passing().latency().p99Ms()));
+        List<ConfigurationResult> marked = new ArrayList<>();
+        double bestP99 = Double.MAX_VALUE;
+        for (ConfigurationResult c : sorted) {
+            boolean frontier = c.passing() != null && c.passing().latency().p99Ms() < bestP99;
+            if (frontier) {
+                bestP99 = c.passing().latency().p99Ms();
+            }
+            marked.add(new ConfigurationResult(c.name(), c.flags(), c.trials(), c.minHeapMB(), c.costMB(),
+                frontier, c.passing()));
+        }
+        return marked;
+    }
+
+    /**
+     * "512m", "4g" or a plain number of MB.
+     */
+    static int megabytes(String size) {
+        String value = size.trim().toLowerCase();
+        char unit = value.charAt(value.length() - 1);
+        if (unit == 'g') {
+            return Math.toIntExact(Math.round(Double.parseDouble(value.substring(0, value.length() - 1)) * 1024));
+        }
+        if (unit == 'm') {
+            return Integer.parseInt(value.substring(0, value.length() - 1));
+        }
+        return Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.gcdemo.orchestrator;
+
+import com.example.gcdemo.orchestrator.ComparisonReport.VariantResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Compares a comparison report against a stored baseline, variant by variant
+ * (matched by name).
+ *
+ * Every metric knows whether higher or lower is better. A change in the bad
+ * direction is a regression when it exceeds the metric's tolerance (percent of
+ * the baseline) AND its noise floor (absolute), so a 0ms to 1ms pause on a
+ * collector with sub-millisecond pauses is not reported as +infinity percent.
+ *
+ * Standalone:
+ *   java -Dtolerance=10 -Dtolerance.pauseP99Ms=25 -jar target/gc-compare-demo-1.0.0.jar diff baseline.json current.json
+ * Exits with status 1 when there are regressions, so it can gate a CI job.
+ */
+public final class ReportDiff {
+
+    public enum Direction {
+        HIGHER_IS_BETTER,
+        LOWER_IS_BETTER
+    }
+
+    public enum Status {
+        OK,
+        IMPROVED,
+        REGRESSION,
+        /** The variant is only in one of the two reports */
+        MISSING
+    }
+
+    /**
+     * @param noiseFloor smallest absolute change that can count as a regression or improvement
+     */
+    private record Metric(String name, Direction direction, double noiseFloor, ToDoubleFunction<VariantResult> value) {}
+
+    private static final List<Metric> METRICS = List.of(
+        new Metric("operationsPerSecond", Direction.HIGHER_IS_BETTER, 0, VariantResult::operationsPerSecond),
+        new Metric("requestMBPerSecond", Direction.HIGHER_IS_BETTER, 0, VariantResult::requestMBPerSecond),
+        new Metric("latencyP50Ms", Direction.LOWER_IS_BETTER, 1, v -> v.latency().p50Ms()),
+        new Metric("latencyP99Ms", Direction.LOWER_IS_BETTER, 1, v -> v.latency().p99Ms()),
+        new Metric("latencyP999Ms", Direction.LOWER_IS_BETTER, 1, v -> v.latency().p999Ms()),
+        new Metric("latencyMaxMs", Direction.LOWER_IS_BETTER, 1, v -> v.latency().maxMs()),
+        new Metric("pauseP99Ms", Direction.LOWER_IS_BETTER, 1, v -> v.pauses().p99Ms()),
+        new Metric("pauseMaxMs", Direction.LOWER_IS_BETTER, 1, v -> v.pauses().maxMs()),
+        new Metric("pauseTotalMs", Direction.LOWER_IS_BETTER, 10, VariantResult::pauseTotalMs),
+        new Metric("cpuMsPerOperation", Direction.LOWER_IS_BETTER, 1, VariantResult::cpuMsPerOperation),
+        new Metric("gcCpuPercent", Direction.LOWER_IS_BETTER, 0.5, VariantResult::gcCpuPercent),
+        new Metric("peakRssMB", Direction.LOWER_IS_BETTER, 16, VariantResult::peakRssMB),
+        new Metric("errors", Direction.LOWER_IS_BETTER, 0, VariantResult::errors)
+    );
+
+    /**
+     * @param changePercent change relative to the baseline (positive = went up)
+     */
+    public record Change(String variant, String metric, double baseline, double current,
+                         double changePercent, double tolerancePercent, Status status) {}
+
+    private final List<Change> changes;
+
+    private ReportDiff(List<Change> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * @param tolerancePercent default tolerance for every metric
+     * @param overrides        per-metric tolerances (metric name to percent)
+     */
+    public static ReportDiff compare(ComparisonReport baseline, ComparisonReport current,
+                                     double tolerancePercent, Map<String, Double> overrides) {
+        List<Change> changes = new ArrayList<>();
+        for (VariantResult currentVariant : current.variants()) {
+            Optional<VariantResult> baselineVariant = find(baseline, currentVariant.name());
+            if (baselineVariant.isEmpty()) {
+                changes.add(new Change(currentVariant.name(), "*", Double.NaN, Double.NaN, Double.NaN,
+                    tolerancePercent, Status.MISSING));
+                continue;
+            }
+            for (Metric metric : METRICS) {
+                double tolerance = overrides.getOrDefault(metric.name(), tolerancePercent);
+                changes.add(change(currentVariant.name(), metric, baselineVariant.get(), currentVariant, tolerance));
+            }
+        }
+        for (VariantResult baselineVariant : baseline.variants()) {
+            if (find(current, baselineVariant.name()).isEmpty()) {
+                changes.add(new Change(baselineVariant.name(), "*", Double.NaN, Double.NaN, Double.NaN,
+                    tolerancePercent, Status.MISSING));
+            }
+        }
+        return new ReportDiff(changes);
+    }
+
+    private static Change change(String variant, Metric metric, VariantResult baseline, VariantResult current,
+                                 double tolerance) {
+        double before = metric.value().applyAsDouble(baseline);
+        double after = metric.value().applyAsDouble(current);
+        double delta = after - before;
+        double changePercent = before == 0 ? (delta == 0 ? 0 : Math.copySign(Double.POSITIVE_INFINITY, delta))
+                                           : delta / Math.abs(before) * 100;
+
+        // Positive = moved in the bad direction
+        double worse = metric.direction() == Direction.LOWER_IS_BETTER ? changePercent : -changePercent;
+        Status status = Status.OK;
+        if (Math.abs(delta) > metric.noiseFloor() && Math.abs(changePercent) > tolerance) {
+            status = worse > 0 ? Status.REGRESSION : Status.IMPROVED;
+        }
+        return new Change(variant, metric.name(), before, after, changePercent, tolerance, status);
+    }
+
+    private static Optional<VariantResult> find(ComparisonReport report, String name) {
+        return report.variants().stream().filter(v -> v.name().equals(name)).findFirst();
+    }
+
+    public List<Change> changes() {
+        return changes;
+    }
+
+    public boolean hasRegressions() {
+        return changes.stream().anyMatch(change -> change.status() == Status.REGRESSION);
+    }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        String format = "%-22s %-20s %12s %12s %10s %9s  %s%n";
+        text.append(String.format(format, "variant", "metric", "baseline", "current", "change", "tolerance", "status"));
+        for (Change change : changes) {
+            if (change.status() == Status.MISSING) {
+                text.append(String.format(format, change.variant(), "*", "", "", "", "", "MISSING"));
+                continue;
+            }
+            text.append(String.format(format,
+                change.variant(),
+                change.metric(),
+                String.format("%.2f", change.baseline()),
+                String.format("%.2f", change.current()),
+                String.format("%+.1f%%", change.changePercent()),
+                String.format("%.0f%%", change.tolerancePercent()),
+                change.status()));
+        }
+        long regressions = changes.stream().filter(change -> change.status() == Status.REGRESSION).count();
+        text.append(regressions == 0 ? "No regressions\n" : regressions + " regression(s)\n");
+        return text.toString();
+    }
+
+    /**
+     * Tolerances from system properties: -Dtolerance (default 10) and -Dtolerance.{metric}.
+     */
+    static double defaultTolerance() {
+        return Double.parseDouble(System.getProperty("tolerance", "10"));
+    }
+
+    static Map<String, Double> toleranceOverrides() {
+        Map<String, Double> overrides = new TreeMap<>();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("tolerance.")) {
+                overrides.put(key.substring("tolerance.".length()), Double.parseDouble(System.getProperty(key)));
+            }
+        }
+        return overrides;
+    }
+
+    /**
+     * @param args baseline report, current report (JSON written by the compare mode)
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: diff <baseline.json> <current.json>");
+            System.exit(2);
+        }
+        ReportDiff diff = compare(ComparisonReport.readJson(Path.of(args[0])),
+            ComparisonReport.readJson(Path.of(args[1])), defaultTolerance(), toleranceOverrides());
+        System.out.print(diff.toText());
+        if (diff.hasRegressions()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.gcdemo.orchestrator;
+
+import com.example.gcdemo.orchestrator.ComparisonReport.VariantResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Result of one heap-sizing sweep: every trial run, and per configuration the
+ * smallest heap that met the SLO, marked when it is on the cost/latency frontier.
+ * Written as JSON (all trials), CSV (one row per configuration) and text.
+ *
+ * @param settings the sweep settings, so it can be repeated
+ */
+public record SweepReport(String startedAt, Map<String, Object> settings, List<Trial> trials,
+                          List<ConfigurationResult> configurations) {
+
+    /**
+     * One child JVM run at one heap size.
+     *
+     * @param failure why the trial missed the SLO (null when it passed)
+     * @param result  measured numbers; null when the child did not start or died
+     */
+    public record Trial(String configuration, int heapMB, List<String> jvmArgs, boolean passed, String failure,
+                        VariantResult result) {}
+
+    /**
+     * Outcome of the search for one configuration.
+     *
+     * @param minHeapMB smallest passing heap found (-1 when even the largest heap missed the SLO)
+     * @param costMB    peak RSS of the passing trial at minHeapMB (the heap when RSS is not available)
+     * @param frontier  no other configuration is both cheaper and faster
+     * @param passing   the trial at minHeapMB (null when none passed)
+     */
+    public record ConfigurationResult(String name, List<String> flags, int trials, int minHeapMB, double costMB,
+                                      boolean frontier, VariantResult passing) {}
+
+    public void writeJson(Path file) throws IOException {
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), this);
+    }
+
+    /**
+     * One row per configuration; flags are space-separated, latency and pause
+     * columns are empty when no heap passed.
+     */
+    public void writeCsv(Path file) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        csv.append("startedAt,configuration,flags,path,sloP99Ms,trials,minHeapMB,costMB,frontier,latencyP50Ms,"
+            + "latencyP99Ms,latencyMaxMs,pauseP99Ms,pauseMaxMs,gcCpuPercent,cpuMsPerOperation,peakRssMB\n");
+        for (ConfigurationResult c : configurations) {
+            VariantResult v = c.passing();
+            List<Object> row = List.of(
+                startedAt, c.name(), String.join(" ", c.flags()), settings.getOrDefault("path", ""),
+                settings.getOrDefault("sloP99Ms", ""), c.trials(), c.minHeapMB(), c.costMB(), c.frontier(),
+                v == null ? "" : v.latency().p50Ms(), v == null ? "" : v.latency().p99Ms(),
+                v == null ? "" : v.latency().maxMs(), v == null ? "" : v.pauses().p99Ms(),
+                v == null ? "" : v.pauses().maxMs(), v == null ? "" : v.gcCpuPercent(),
+                v == null ? "" : v.cpuMsPerOperation(), v == null ? "" : v.peakRssMB());
+            csv.append(row.stream().map(SweepReport::csvField).collect(Collectors.joining(","))).append('\n');
+        }
+        Files.writeString(file, csv);
+    }
+
+    private static String csvField(Object value) {
+        String text = String.valueOf(value);
+        return text.contains(",") || text.contains("\"") ? "\"" + text.replace("\"", "\"\"") + "\"" : text;
+    }
+
+    public void writeText(Path file) throws IOException {
+        Files.writeString(file, toText());
+    }
+
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append("Heap sizing sweep started ").append(startedAt).append('\n');
+        settings.forEach((key, value) -> text.append("  ").append(key).append(" = ").append(value).append('\n'));
+
+        text.append("\nTrials:\n");
+        String trialFormat = "%-40s %8s  %-4s %9s %9s %9s  %s%n";
+        text.append(String.format(trialFormat, "configuration", "heap MB", "", "p99 ms", "pause p99", "peak RSS", ""));
+        for (Trial t : trials) {
+            VariantResult v = t.result();
+            text.append(String.format(trialFormat,
+                t.configuration(),
+                t.heapMB(),
+                t.passed() ? "PASS" : "FAIL",
+                v == null ? "-" : String.format("%.1f", v.latency().p99Ms()),
+                v == null ? "-" : String.format("%.1f", v.pauses().p99Ms()),
+                v == null ? "-" : String.format("%.0f", v.peakRssMB()),
+                t.failure() == null ? "" : t.failure()));
+        }
+
+        text.append("\nSmallest passing heap per configuration (* = on the cost/latency frontier):\n");
+        String format = "%-2s%-40s %8s %8s %9s %9s %9s %7s %9s%n";
+        text.append(String.format(format, "", "configuration", "heap MB", "cost MB", "p50 ms", "p99 ms",
+            "pause p99", "GC CPU", "CPU ms/op"));
+        for (ConfigurationResult c : configurations) {
+            VariantResult v = c.passing();
+            if (v == null) {
+                text.append(String.format("  %-40s no heap up to the maximum met the SLO%n", c.name()));
+                continue;
+            }
+            text.append(String.format(format,
+                c.frontier() ? "*" : "",
+                c.name(),
+                c.minHeapMB(),
+                String.format("%.0f", c.costMB()),
+                String.format("%.1f", v.latency().p50Ms()),
+                String.format("%.1f", v.latency().p99Ms()),
+                String.format("%.1f", v.pauses().p99Ms()),
+                String.format("%.1f%%", v.gcCpuPercent()),
+                String.format("%.1f", v.cpuMsPerOperation())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,435 @@
+package com.example.gcdemo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of the burst allocation endpoints.
+ *
+ * A sampler thread tracks three pressure signals from the management beans:
+ * heap occupancy after the last collection (current "used" also counts
+ * garbage that has not been collected yet), the share of wall time spent in GC pauses over
+ * the last window, and the JVM-wide allocation rate. A request declares how
+ * many bytes it is about to allocate and takes a {@link Permit}; the policy
+ * decides what happens while the JVM is under pressure. Bytes reserved by
+ * admitted requests that are still running count towards heap occupancy, so
+ * a simultaneous burst is seen before the sampler catches up with it. With
+ * nothing in flight the heap check is skipped: the after-GC figure may be
+ * stale (taken mid-burst) and an idle JVM would otherwise never collect again.
+ *
+ * NONE      admit everything (only the per-request size cap applies)
+ * SHED      reject immediately
+ * QUEUE     wait (bounded queue, bounded time) until pressure drops
+ * THROTTLE  pace admitted bytes through a token bucket, whether or not
+ *           the JVM is under pressure
+ *
+ * Rejected requests surface as 429 Too Many Requests.
+ */
+@Service
+public class AdmissionControlService {
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private final AdmissionPolicy policy;
+    private final double maxHeapOccupancy;
+    private final double maxPauseRatio;
+    private final double maxAllocationMBPerSecond;
+    private final long maxRequestBytes;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final long windowMs;
+
+    private final MeterRegistry registry;
+    private final Timer waitTimer;
+    private final Counter admittedCounter;
+    private final Counter queuedCounter;
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+    private final List<GarbageCollectorMXBean> pauseCollectors = collectors.stream()
+            .filter(gc -> GcEventService.reportsPauses(gc.getName()))
+            .toList();
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("admission-sampler").daemon(true).factory());
+
+    // Samples covering the last windowMs, oldest first; only touched by the sampler thread
+    private final ArrayDeque<Sample> window = new ArrayDeque<>();
+    private volatile Pressure pressure = new Pressure(0, 0, 0);
+    private volatile long heapMaxBytes = Runtime.getRuntime().maxMemory();
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition pressureChanged = queueLock.newCondition();
+    private final AtomicInteger queueDepth = new AtomicInteger(0);
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicLong reservedBytes = new AtomicLong(0);
+
+    // THROTTLE token bucket (bytes); negative while earlier requests are still being paced
+    private final double throttleBytesPerNano;
+    private final double bucketCapacity;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    public AdmissionControlService(MeterRegistry registry,
+                                   @Value("${gcdemo.admission.policy:NONE}") AdmissionPolicy policy,
+                                   @Value("${gcdemo.admission.max-heap-occupancy:0.85}") double maxHeapOccupancy,
+                                   @Value("${gcdemo.admission.max-pause-ratio:0.10}") double maxPauseRatio,
+                                   @Value("${gcdemo.admission.max-allocation-mb-per-second:0}") double maxAllocationMBPerSecond,
+                                   @Value("${gcdemo.admission.throttle-mb-per-second:500}") double throttleMBPerSecond,
+                                   @Value("${gcdemo.admission.max-request-mb:4096}") long maxRequestMB,
+                                   @Value("${gcdemo.admission.max-queue:100}") int maxQueue,
+                                   @Value("${gcdemo.admission.max-wait-ms:2000}") long maxWaitMs,
+                                   @Value("${gcdemo.admission.sample-ms:250}") long sampleMs,
+                                   @Value("${gcdemo.admission.window-ms:2000}") long windowMs) {
+        this.policy = policy;
+        this.maxHeapOccupancy = maxHeapOccupancy;
+        this.maxPauseRatio = maxPauseRatio;
+        this.maxAllocationMBPerSecond = maxAllocationMBPerSecond;
+        this.maxRequestBytes = maxRequestMB * BYTES_PER_MB;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.windowMs = windowMs;
+        this.throttleBytesPerNano = throttleMBPerSecond * BYTES_PER_MB / 1e9;
+        this.bucketCapacity = throttleMBPerSecond * BYTES_PER_MB;
+        this.tokens = bucketCapacity;
+        this.registry = registry;
+
+        this.waitTimer = Timer.builder("gc.demo.admission.wait")
+                .description("Time requests spent queued or paced before admission")
+                .tag("policy", policy.name())
+                .publishPercentileHistogram()
+                .register(registry);
+
+        this.admittedCounter = Counter.builder("gc.demo.admission.admitted")
+                .description("Requests admitted to the allocation endpoints")
+                .tag("policy", policy.name())
+                .register(registry);
+
+        this.queuedCounter = Counter.builder("gc.demo.admission.queued")
+                .description("Requests that had to wait before admission")
+                .tag("policy", policy.name())
+                .register(registry);
+
+        Gauge.builder("gc.demo.admission.queue.depth", queueDepth, AtomicInteger::get)
+                .description("Requests currently waiting for admission")
+                .register(registry);
+
+        Gauge.builder("gc.demo.admission.in.flight", inFlight, AtomicInteger::get)
+                .description("Admitted requests still running")
+                .register(registry);
+
+        Gauge.builder("gc.demo.admission.heap.occupancy", this, s -> s.pressure.heapOccupancy())
+                .description("Heap used after the last GC / max, as seen by admission control")
+                .register(registry);
+
+        Gauge.builder("gc.demo.admission.pause.ratio", this, s -> s.pressure.pauseRatio())
+                .description("Share of wall time spent in GC pauses over the admission window")
+                .register(registry);
+
+        Gauge.builder("gc.demo.admission.allocation.rate", this, s -> s.pressure.allocationMBPerSecond())
+                .description("JVM-wide allocation rate over the admission window")
+                .baseUnit("MB/s")
+                .register(registry);
+
+        sampler.scheduleAtFixedRate(this::sample, 0, sampleMs, TimeUnit.MILLISECONDS);
+    }
+
+    public enum AdmissionPolicy {
+        NONE,
+        SHED,
+        QUEUE,
+        THROTTLE
+    }
+
+    /**
+     * Pressure signals over the last window.
+     */
+    public record Pressure(double heapOccupancy, double pauseRatio, double allocationMBPerSecond) {
+    }
+
+    private record Sample(long nanos, long pauseMs, long allocatedBytes) {
+    }
+
+    /**
+     * Held for the duration of an admitted request.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final long bytes;
+        private boolean closed;
+
+        private Permit(long bytes) {
+            this.bytes = bytes;
+            inFlight.incrementAndGet();
+            reservedBytes.addAndGet(bytes);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                inFlight.decrementAndGet();
+                reservedBytes.addAndGet(-bytes);
+                signalWaiters();
+            }
+        }
+    }
+
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public static class AdmissionRejectedException extends RuntimeException {
+
+        private final String reason;
+
+        AdmissionRejectedException(String reason, String message) {
+            super(message);
+            this.reason = reason;
+        }
+
+        public String reason() {
+            return reason;
+        }
+    }
+
+    /**
+     * Blocks until the request is admitted (QUEUE/THROTTLE may wait up to max-wait-ms).
+     *
+     * @param endpoint      tag for the rejected counter
+     * @param expectedBytes what the request is about to allocate
+     * @throws IllegalArgumentException     if the request exceeds max-request-mb
+     * @throws AdmissionRejectedException if the policy sheds the request
+     */
+    public Permit acquire(String endpoint, long expectedBytes) {
+        if (expectedBytes > maxRequestBytes) {
+            reject(endpoint, "too_large");
+            throw new IllegalArgumentException(String.format(
+                "Request would allocate %dMB, above the %dMB limit (gcdemo.admission.max-request-mb)",
+                expectedBytes / BYTES_PER_MB, maxRequestBytes / BYTES_PER_MB));
+        }
+        switch (policy) {
+            case SHED -> {
+                String reason = overloadReason(expectedBytes);
+                if (reason != null) {
+                    throw rejected(endpoint, reason);
+                }
+            }
+            case QUEUE -> awaitCapacity(endpoint, expectedBytes);
+            case THROTTLE -> pace(endpoint, expectedBytes);
+            case NONE -> { }
+        }
+        admittedCounter.increment();
+        return new Permit(expectedBytes);
+    }
+
+    private void awaitCapacity(String endpoint, long expectedBytes) {
+        if (overloadReason(expectedBytes) == null) {
+            return;
+        }
+        if (queueDepth.incrementAndGet() > maxQueue) {
+            queueDepth.decrementAndGet();
+            throw rejected(endpoint, "queue_full");
+        }
+        queuedCounter.increment();
+        long start = System.nanoTime();
+        queueLock.lock();
+        try {
+            long remaining = maxWaitNanos;
+            String reason;
+            while ((reason = overloadReason(expectedBytes)) != null) {
+                if (remaining <= 0) {
+                    throw rejected(endpoint, "timeout_" + reason);
+                }
+                remaining = pressureChanged.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw rejected(endpoint, "interrupted");
+        } finally {
+            queueLock.unlock();
+            queueDepth.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void pace(String endpoint, long expectedBytes) {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(bucketCapacity, tokens + (now - lastRefillNanos) * throttleBytesPerNano);
+            lastRefillNanos = now;
+            // Reserve now, wait for the deficit; a request larger than the bucket waits for a full one
+            double needed = Math.min(expectedBytes, bucketCapacity);
+            waitNanos = tokens >= needed ? 0 : (long) ((needed - tokens) / throttleBytesPerNano);
+            if (waitNanos > maxWaitNanos) {
+                throw rejected(endpoint, "throttled");
+            }
+            tokens -= expectedBytes;
+        }
+        if (waitNanos > 0) {
+            queuedCounter.increment();
+            queueDepth.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw rejected(endpoint, "interrupted");
+            } finally {
+                queueDepth.decrementAndGet();
+            }
+        }
+        waitTimer.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return which signal would be over its limit after admitting expectedBytes
+     *         ("heap", "pause", "allocation"), or null
+     */
+    private String overloadReason(long expectedBytes) {
+        Pressure current = pressure;
+        double projected = current.heapOccupancy() + (double) (reservedBytes.get() + expectedBytes) / heapMaxBytes;
+        if (inFlight.get() > 0 && projected > maxHeapOccupancy) {
+            return "heap";
+        }
+        if (current.pauseRatio() > maxPauseRatio) {
+            return "pause";
+        }
+        if (maxAllocationMBPerSecond > 0 && current.allocationMBPerSecond() > maxAllocationMBPerSecond) {
+            return "allocation";
+        }
+        return null;
+    }
+
+    private AdmissionRejectedException rejected(String endpoint, String reason) {
+        reject(endpoint, reason);
+        Pressure current = pressure;
+        return new AdmissionRejectedException(reason, String.format(
+            "Rejected by %s admission control (%s): heap %.0f%%, pauses %.1f%% of wall time, allocating %.0fMB/s",
+            policy, reason, current.heapOccupancy() * 100, current.pauseRatio() * 100,
+            current.allocationMBPerSecond()));
+    }
+
+    private void reject(String endpoint, String reason) {
+        rejectedCounters.computeIfAbsent(endpoint + ":" + reason, key -> Counter.builder("gc.demo.admission.rejected")
+                .description("Requests rejected by admission control")
+                .tag("policy", policy.name())
+                .tag("endpoint", endpoint)
+                .tag("reason", reason)
+                .register(registry)).increment();
+    }
+
+    private void sample() {
+        long now = System.nanoTime();
+        long pauseMs = 0;
+        for (GarbageCollectorMXBean gc : pauseCollectors) {
+            pauseMs += Math.max(0, gc.getCollectionTime());
+        }
+        Sample latest = new Sample(now, pauseMs, threads.getTotalThreadAllocatedBytes());
+        window.addLast(latest);
+        while (window.size() > 2 && now - window.peekFirst().nanos() > TimeUnit.MILLISECONDS.toNanos(windowMs)) {
+            window.removeFirst();
+        }
+
+        Sample oldest = window.peekFirst();
+        double elapsedMs = (now - oldest.nanos()) / 1_000_000.0;
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        heapMaxBytes = max;
+        pressure = new Pressure(
+            (double) usedAfterLastGc(heap.getUsed()) / max,
+            elapsedMs > 0 ? (latest.pauseMs() - oldest.pauseMs()) / elapsedMs : 0,
+            elapsedMs > 0 && latest.allocatedBytes() >= 0
+                ? (latest.allocatedBytes() - oldest.allocatedBytes()) / (double) BYTES_PER_MB / (elapsedMs / 1000.0)
+                : 0);
+
+        signalWaiters();
+    }
+
+    /**
+     * Heap used right after the most recent collection (any collector bean),
+     * or {@code fallback} before the first one.
+     */
+    private long usedAfterLastGc(long fallback) {
+        com.sun.management.GcInfo latest = null;
+        for (GarbageCollectorMXBean gc : collectors) {
+            if (gc instanceof com.sun.management.GarbageCollectorMXBean sunGc) {
+                com.sun.management.GcInfo info = sunGc.getLastGcInfo();
+                if (info != null && (latest == null || info.getEndTime() > latest.getEndTime())) {
+                    latest = info;
+                }
+            }
+        }
+        if (latest == null) {
+            return fallback;
+        }
+        return latest.getMemoryUsageAfterGc().entrySet().stream()
+                .filter(entry -> heapPools.contains(entry.getKey()))
+                .mapToLong(entry -> entry.getValue().getUsed())
+                .sum();
+    }
+
+    private void signalWaiters() {
+        queueLock.lock();
+        try {
+            pressureChanged.signalAll();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    public Pressure pressure() {
+        return pressure;
+    }
+
+    public Map<String, Object> getStats() {
+        Pressure current = pressure;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("policy", policy);
+        stats.put("heapOccupancy", String.format("%.2f", current.heapOccupancy()));
+        stats.put("pauseRatio", String.format("%.4f", current.pauseRatio()));
+        stats.put("allocationMBPerSecond", String.format("%.2f", current.allocationMBPerSecond()));
+        stats.put("overloaded", overloadReason(0) != null);
+        stats.put("queueDepth", queueDepth.get());
+        stats.put("inFlight", inFlight.get());
+        stats.put("reservedMB", reservedBytes.get() / BYTES_PER_MB);
+        stats.put("admitted", (long) admittedCounter.count());
+        stats.put("queued", (long) queuedCounter.count());
+        stats.put("rejected", rejectedCounters.values().stream().mapToLong(c -> (long) c.count()).sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sampler.shutdownNow();
+    }
+}
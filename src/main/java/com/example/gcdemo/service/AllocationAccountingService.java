@@ -0,0 +1,267 @@
+package com.example.gcdemo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bytes allocated per request, split into our workload and the web stack.
+ *
+ * Uses com.sun.management.ThreadMXBean's per-thread allocated-bytes counter
+ * (the TLAB accounting HotSpot keeps anyway, so reading it is cheap):
+ *
+ * total     request thread, from the servlet filter to the response being
+ *           written, plus workload tasks on other threads. For async handlers
+ *           (StreamingResponseBody) the thread writing the body counts as a
+ *           request thread, and the request is recorded when the response completes
+ * workload  code run through {@link #workload} - the services' allocation loops
+ *           and their fan-out tasks, on whichever thread they run
+ * framework total - workload: Spring MVC, Jackson, Micrometer, Tomcat above the filter
+ *
+ * The JDK reports -1 for virtual threads, so requests served on virtual
+ * threads (VIRTUAL_THREADS=true) and workload tasks with mode=VIRTUAL are
+ * counted in gc.demo.allocation.unmeasured instead. A request with any
+ * unmeasured task is left out of the summaries rather than undercounted.
+ */
+@Service
+public class AllocationAccountingService {
+
+    private static final ThreadLocal<Segment> CURRENT = new ThreadLocal<>();
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final boolean enabled;
+    private final MeterRegistry registry;
+    private final Map<String, EndpointMeters> endpoints = new ConcurrentHashMap<>();
+    private final Counter unmeasuredRequests;
+    private final Counter unmeasuredTasks;
+
+    public AllocationAccountingService(MeterRegistry registry,
+                                       @Value("${gcdemo.allocation-accounting.enabled:true}") boolean enabled) {
+        this.registry = registry;
+        this.enabled = enabled && threads.isThreadAllocatedMemorySupported();
+        if (this.enabled) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        this.unmeasuredRequests = Counter.builder("gc.demo.allocation.unmeasured")
+                .description("Requests or workload tasks whose thread does not report allocated bytes (virtual threads)")
+                .tag("where", "request")
+                .register(registry);
+
+        this.unmeasuredTasks = Counter.builder("gc.demo.allocation.unmeasured")
+                .description("Requests or workload tasks whose thread does not report allocated bytes (virtual threads)")
+                .tag("where", "task")
+                .register(registry);
+    }
+
+    /**
+     * Allocation of one request while it runs. Workload tasks on other threads add to it concurrently.
+     */
+    public static final class RequestAllocation {
+
+        private final LongAdder requestThreads = new LongAdder();
+        private final LongAdder workloadOnRequestThread = new LongAdder();
+        private final LongAdder workloadOnOtherThreads = new LongAdder();
+        private volatile boolean incomplete;
+
+        /**
+         * Leaves the request out of the summaries, e.g. when its async part failed or timed out.
+         */
+        public void markIncomplete() {
+            incomplete = true;
+        }
+    }
+
+    /**
+     * The part of a request served by the current thread, from {@link #begin} or {@link #resume}.
+     */
+    private record Segment(RequestAllocation request, long startBytes) {}
+
+    /**
+     * The three parts of one method + endpoint.
+     */
+    private record EndpointMeters(DistributionSummary total, DistributionSummary workload,
+                                  DistributionSummary framework) {}
+
+    public record EndpointSummary(String method, String endpoint, long requests, double meanTotalKB,
+                                  double meanWorkloadKB, double meanFrameworkKB) {
+
+        public double frameworkPercent() {
+            return meanTotalKB == 0 ? 0 : meanFrameworkKB / meanTotalKB * 100;
+        }
+    }
+
+    /**
+     * Bytes allocated by the current thread so far, or -1 if it cannot be measured.
+     */
+    public long currentThreadAllocatedBytes() {
+        return enabled ? threads.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Starts accounting for a request on the current thread.
+     *
+     * @return null if this thread cannot be measured
+     */
+    public RequestAllocation begin() {
+        long start = currentThreadAllocatedBytes();
+        if (start < 0) {
+            if (enabled) {
+                unmeasuredRequests.increment();
+            }
+            return null;
+        }
+        RequestAllocation request = new RequestAllocation();
+        CURRENT.set(new Segment(request, start));
+        return request;
+    }
+
+    /**
+     * Continues a request on the current thread, e.g. the async executor writing a
+     * StreamingResponseBody. Pair with {@link #pause} on the same thread.
+     */
+    public void resume(RequestAllocation request) {
+        if (request == null) {
+            return;
+        }
+        long start = currentThreadAllocatedBytes();
+        if (start < 0) {
+            unmeasuredTasks.increment();
+            request.incomplete = true;
+            return;
+        }
+        CURRENT.set(new Segment(request, start));
+    }
+
+    /**
+     * Stops accounting for the request on the current thread, adding what it allocated
+     * since {@link #begin} or {@link #resume}. The request is recorded later by {@link #complete}.
+     */
+    public void pause(RequestAllocation request) {
+        Segment segment = CURRENT.get();
+        CURRENT.remove();
+        if (segment != null && segment.request() == request) {
+            request.requestThreads.add(currentThreadAllocatedBytes() - segment.startBytes());
+        }
+    }
+
+    /**
+     * Finishes accounting for a request started with {@link #begin} on this thread.
+     *
+     * @param endpoint the matched URI pattern, e.g. /api/memory/load/{count}
+     */
+    public void end(RequestAllocation request, String method, String endpoint) {
+        pause(request);
+        complete(request, method, endpoint);
+    }
+
+    /**
+     * Records a request whose threads have all been {@link #pause paused}, once its response is complete.
+     */
+    public void complete(RequestAllocation request, String method, String endpoint) {
+        if (request == null || request.incomplete) {
+            return;
+        }
+        long requestThreadBytes = request.requestThreads.sum();
+        long workloadHere = request.workloadOnRequestThread.sum();
+        long workloadElsewhere = request.workloadOnOtherThreads.sum();
+
+        EndpointMeters meters = endpoints.computeIfAbsent(method + " " + endpoint, key -> new EndpointMeters(
+            summary(method, endpoint, "total"),
+            summary(method, endpoint, "workload"),
+            summary(method, endpoint, "framework")));
+        meters.total().record(requestThreadBytes + workloadElsewhere);
+        meters.workload().record(workloadHere + workloadElsewhere);
+        meters.framework().record(Math.max(0, requestThreadBytes - workloadHere));
+    }
+
+    private DistributionSummary summary(String method, String endpoint, String part) {
+        return DistributionSummary.builder("gc.demo.request.allocated")
+                .description("Bytes allocated per request (part=total|workload|framework)")
+                .baseUnit("bytes")
+                .tag("method", method)
+                .tag("endpoint", endpoint)
+                .tag("part", part)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * The request being served on this thread, to hand to workload tasks on other threads.
+     */
+    public RequestAllocation current() {
+        Segment segment = CURRENT.get();
+        return segment == null ? null : segment.request();
+    }
+
+    /**
+     * Runs workload code on the current thread and attributes what it allocates to the current request.
+     */
+    public <T> T workload(Supplier<T> work) {
+        return workload(current(), work);
+    }
+
+    /**
+     * Runs workload code on the current thread and attributes what it allocates to {@code request}
+     * (captured with {@link #current()} on the request thread). A null request is simply run.
+     */
+    public <T> T workload(RequestAllocation request, Supplier<T> work) {
+        if (request == null) {
+            return work.get();
+        }
+        long start = currentThreadAllocatedBytes();
+        if (start < 0) {
+            unmeasuredTasks.increment();
+            request.incomplete = true;
+            return work.get();
+        }
+        try {
+            return work.get();
+        } finally {
+            long allocated = currentThreadAllocatedBytes() - start;
+            if (current() == request) {
+                request.workloadOnRequestThread.add(allocated);
+            } else {
+                request.workloadOnOtherThreads.add(allocated);
+            }
+        }
+    }
+
+    /**
+     * @return per-endpoint means, most allocating endpoints first
+     */
+    public List<EndpointSummary> summaries() {
+        List<EndpointSummary> summaries = new ArrayList<>();
+        for (EndpointMeters meters : endpoints.values()) {
+            summaries.add(new EndpointSummary(
+                meters.total().getId().getTag("method"),
+                meters.total().getId().getTag("endpoint"),
+                meters.total().count(),
+                meters.total().mean() / 1024,
+                meters.workload().mean() / 1024,
+                meters.framework().mean() / 1024));
+        }
+        summaries.sort((a, b) -> Double.compare(b.meanTotalKB() * b.requests(), a.meanTotalKB() * a.requests()));
+        return summaries;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("unmeasuredRequests", (long) unmeasuredRequests.count());
+        stats.put("unmeasuredTasks", (long) unmeasuredTasks.count());
+        return stats;
+    }
+}
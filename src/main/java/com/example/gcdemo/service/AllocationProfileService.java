@@ -0,0 +1,544 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.cache.SizeClassBufferPool;
+import com.example.gcdemo.cache.SizeClassBufferPool.Lease;
+import com.example.gcdemo.cache.SizeClassBufferPool.Outcome;
+import com.example.gcdemo.cache.ThreadLocalBuffers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allocation profile engine shared by all workload services.
+ *
+ * A profile describes WHAT gets allocated for one unit of work:
+ * - the size of each unit, drawn from a size distribution
+ * - the shape of each unit: a flat primitive array or a pointer-rich object graph
+ * - how the unit's contents are filled after allocation
+ *
+ * The default profile (FIXED 10MB byte[]) reproduces the original demo.
+ * Small sizes and graph shapes model real services (millions of small objects)
+ * and make the collectors pay for marking/tracing and TLAB refills instead of
+ * just humongous allocation bandwidth.
+ *
+ * Short-lived byte[] units can also come from a buffer pool instead of the
+ * allocator (see {@link BufferStrategy}), to weigh pooling against leaving
+ * request buffers to the collector.
+ */
+@Service
+public class AllocationProfileService {
+
+    private static final int BYTES_PER_KB = 1024;
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    // Rough shallow sizes (64-bit JVM, compressed oops) used to turn a byte
+    // budget into a node count for the graph shapes
+    private static final int OBJECT_HEADER_BYTES = 16;
+    private static final int LIST_NODE_BYTES = 24;
+    private static final int TREE_NODE_BYTES = 24;
+    private static final int MAP_ENTRY_BYTES = 48;
+    private static final int MAP_LEAF_BYTES = OBJECT_HEADER_BYTES + 2 * Long.BYTES;
+
+    // Smallest unit we will allocate, whatever the distribution says
+    private static final int MIN_SIZE_BYTES = 64;
+
+    // TOUCH_PAGE writes one byte per page; PATTERN copies from a 1MB buffer
+    private static final int PAGE_BYTES = 4096;
+    private static final int PATTERN_BYTES = 1024 * 1024;
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> bytesCounters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> phaseTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> borrowCounters = new ConcurrentHashMap<>();
+    private final Map<BufferStrategy, Timer> waitTimers = new ConcurrentHashMap<>();
+
+    private final ThreadLocalBuffers threadLocalBuffers = new ThreadLocalBuffers();
+    private final SizeClassBufferPool<byte[]> heapPool;
+    private final SizeClassBufferPool<ByteBuffer> directPool;
+
+    // Generated once, shared read-only by all threads
+    private final byte[] bytePattern = new byte[PATTERN_BYTES];
+    private final long[] longPattern = new long[PATTERN_BYTES / Long.BYTES];
+
+    public AllocationProfileService(MeterRegistry registry,
+                                    @Value("${gcdemo.buffers.pool-mb:256}") int poolMB,
+                                    @Value("${gcdemo.buffers.direct-pool-mb:256}") int directPoolMB,
+                                    @Value("${gcdemo.buffers.max-wait-ms:5}") long maxWaitMs) {
+        this.registry = registry;
+        long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.heapPool = new SizeClassBufferPool<>(byte[]::new, buffer -> buffer.length,
+            (long) poolMB * BYTES_PER_MB, maxWaitNanos);
+        this.directPool = new SizeClassBufferPool<>(ByteBuffer::allocateDirect, ByteBuffer::capacity,
+            (long) directPoolMB * BYTES_PER_MB, maxWaitNanos);
+
+        Gauge.builder("gc.demo.buffers.pooled.bytes", heapPool, SizeClassBufferPool::pooledBytes)
+                .description("Bytes of buffers created by the pool (free or borrowed)")
+                .baseUnit("bytes")
+                .tag("strategy", BufferStrategy.POOLED.name())
+                .register(registry);
+
+        Gauge.builder("gc.demo.buffers.pooled.bytes", directPool, SizeClassBufferPool::pooledBytes)
+                .description("Bytes of buffers created by the pool (free or borrowed)")
+                .baseUnit("bytes")
+                .tag("strategy", BufferStrategy.DIRECT_POOL.name())
+                .register(registry);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        random.nextBytes(bytePattern);
+        for (int i = 0; i < longPattern.length; i++) {
+            longPattern[i] = random.nextLong();
+        }
+    }
+
+    /**
+     * Shape of a single allocated unit.
+     */
+    public enum ObjectShape {
+        /** One byte[] of the sampled size (10MB default = G1 humongous) */
+        BYTE_ARRAY,
+        /** One long[] of the sampled size */
+        LONG_ARRAY,
+        /** Singly linked list of small nodes */
+        LINKED_LIST,
+        /** Tree of small nodes, each with {@code fanOut} children */
+        TREE,
+        /** Nested HashMaps, each with {@code fanOut} entries */
+        HASH_MAP
+    }
+
+    /**
+     * Distribution the size of each unit is drawn from, around {@code sizeKB}.
+     */
+    public enum SizeDistribution {
+        /** Always exactly sizeKB */
+        FIXED,
+        /** Uniform between sizeKB / 2 and sizeKB * 3 / 2 */
+        UNIFORM,
+        /** Log-normal with median sizeKB (sigma = 1): mostly small, long right tail */
+        LOG_NORMAL,
+        /** 90% small units (sizeKB / 8), 10% large units (sizeKB * 8) */
+        BIMODAL
+    }
+
+    /**
+     * How a unit's contents are written after allocation.
+     *
+     * Arrays are allocated first and filled afterwards, and the two phases are
+     * timed separately. Graph shapes are filled while they are built, so their
+     * whole cost is recorded as allocate and the strategy only picks node values.
+     */
+    public enum FillStrategy {
+        /** Leave the JVM-zeroed memory as is */
+        NONE,
+        /** Write one byte per 4KB page, so every page is actually touched */
+        TOUCH_PAGE,
+        /** Copy from a pre-generated random buffer with System.arraycopy */
+        PATTERN,
+        /** Fresh random data for every unit (CPU-bound; the original behavior) */
+        RANDOM
+    }
+
+    /**
+     * Where a short-lived byte[] unit's memory comes from.
+     *
+     * Only BYTE_ARRAY units are pooled; other shapes, and units that outlive the
+     * request (cache entries, survivors), are always allocated fresh. A pooled
+     * unit is handed back as soon as it has been filled, since a pool can only
+     * reuse what is returned; fresh units stay referenced until the request ends.
+     */
+    public enum BufferStrategy {
+        /** New array per unit (the original behavior) */
+        FRESH,
+        /** One reusable array per thread and size class */
+        THREAD_LOCAL,
+        /** Bounded shared pool of arrays in power-of-two size classes */
+        POOLED,
+        /** Bounded shared pool of direct ByteBuffers, outside the heap */
+        DIRECT_POOL
+    }
+
+    /**
+     * Selected per request.
+     *
+     * @param shape        shape of each unit
+     * @param distribution distribution of the unit size
+     * @param sizeKB       nominal unit size in KB
+     * @param fanOut       children per node for TREE, entries per map for HASH_MAP
+     * @param fill         how each unit's contents are written
+     * @param buffers      where short-lived byte[] units come from (null = FRESH)
+     */
+    public record AllocationProfile(ObjectShape shape, SizeDistribution distribution, int sizeKB, int fanOut,
+                                    FillStrategy fill, BufferStrategy buffers) {
+
+        public static final AllocationProfile DEFAULT = new AllocationProfile(
+                ObjectShape.BYTE_ARRAY, SizeDistribution.FIXED, 10 * BYTES_PER_KB, 8, FillStrategy.RANDOM);
+
+        public AllocationProfile {
+            if (sizeKB <= 0) {
+                throw new IllegalArgumentException("sizeKB must be positive: " + sizeKB);
+            }
+            if (fanOut < 1) {
+                throw new IllegalArgumentException("fanOut must be at least 1: " + fanOut);
+            }
+            buffers = buffers == null ? BufferStrategy.FRESH : buffers;
+        }
+
+        public AllocationProfile(ObjectShape shape, SizeDistribution distribution, int sizeKB, int fanOut,
+                                 FillStrategy fill) {
+            this(shape, distribution, sizeKB, fanOut, fill, BufferStrategy.FRESH);
+        }
+    }
+
+    /**
+     * Draws the size in bytes of the next unit from the profile's distribution.
+     */
+    public int sampleSizeBytes(AllocationProfile profile) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double nominal = (double) profile.sizeKB() * BYTES_PER_KB;
+
+        double size = switch (profile.distribution()) {
+            case FIXED -> nominal;
+            case UNIFORM -> nominal * (0.5 + random.nextDouble());
+            case LOG_NORMAL -> nominal * Math.exp(random.nextGaussian());
+            case BIMODAL -> random.nextInt(10) == 0 ? nominal * 8 : nominal / 8;
+        };
+
+        return (int) Math.max(MIN_SIZE_BYTES, Math.min(Integer.MAX_VALUE - 16, size));
+    }
+
+    /**
+     * Allocates one unit of (approximately) {@code sizeBytes} retained bytes
+     * in the profile's shape. The caller decides whether it lives or dies.
+     */
+    public Object allocate(AllocationProfile profile, int sizeBytes) {
+        FillStrategy fill = profile.fill();
+        long start = System.nanoTime();
+
+        Object unit = switch (profile.shape()) {
+            case BYTE_ARRAY -> new byte[sizeBytes];
+            case LONG_ARRAY -> new long[Math.max(1, sizeBytes / Long.BYTES)];
+            case LINKED_LIST -> newLinkedList(sizeBytes, fill);
+            case TREE -> newTree(sizeBytes, profile.fanOut(), fill);
+            case HASH_MAP -> newHashMapGraph(sizeBytes, profile.fanOut(), fill);
+        };
+        long allocated = System.nanoTime();
+        phaseTimer("allocate", fill).record(allocated - start, TimeUnit.NANOSECONDS);
+
+        if (unit instanceof byte[] bytes) {
+            fill(bytes, fill);
+            phaseTimer("fill", fill).record(System.nanoTime() - allocated, TimeUnit.NANOSECONDS);
+        } else if (unit instanceof long[] longs) {
+            fill(longs, fill);
+            phaseTimer("fill", fill).record(System.nanoTime() - allocated, TimeUnit.NANOSECONDS);
+        }
+
+        bytesCounter(profile).increment(sizeBytes);
+
+        return unit;
+    }
+
+    /**
+     * Allocates one short-lived unit with the profile's buffer strategy.
+     *
+     * FRESH units (and every non-BYTE_ARRAY unit) are added to {@code holder}
+     * and die with it. Pooled buffers are borrowed, filled up to
+     * {@code sizeBytes} and released right away; the borrow, including any
+     * wait for a free buffer, is timed as the allocate phase.
+     */
+    public void allocateShortLived(AllocationProfile profile, int sizeBytes, List<Object> holder) {
+        BufferStrategy buffers = profile.buffers();
+        if (buffers == BufferStrategy.FRESH || profile.shape() != ObjectShape.BYTE_ARRAY) {
+            holder.add(allocate(profile, sizeBytes));
+            return;
+        }
+
+        FillStrategy fill = profile.fill();
+        long start = System.nanoTime();
+        if (buffers == BufferStrategy.DIRECT_POOL) {
+            Lease<ByteBuffer> lease = directPool.borrow(sizeBytes);
+            long borrowed = recordBorrow(buffers, lease, fill, start);
+            fill(lease.buffer(), sizeBytes, fill);
+            phaseTimer("fill", fill).record(System.nanoTime() - borrowed, TimeUnit.NANOSECONDS);
+            directPool.release(lease);
+        } else {
+            Lease<byte[]> lease = buffers == BufferStrategy.THREAD_LOCAL
+                    ? threadLocalBuffers.borrow(sizeBytes)
+                    : heapPool.borrow(sizeBytes);
+            long borrowed = recordBorrow(buffers, lease, fill, start);
+            fill(lease.buffer(), sizeBytes, fill);
+            phaseTimer("fill", fill).record(System.nanoTime() - borrowed, TimeUnit.NANOSECONDS);
+            if (buffers == BufferStrategy.THREAD_LOCAL) {
+                threadLocalBuffers.release(lease);
+            } else {
+                heapPool.release(lease);
+            }
+        }
+        bytesCounter(profile).increment(sizeBytes);
+    }
+
+    private long recordBorrow(BufferStrategy buffers, Lease<?> lease, FillStrategy fill, long start) {
+        long borrowed = System.nanoTime();
+        phaseTimer("allocate", fill).record(borrowed - start, TimeUnit.NANOSECONDS);
+        borrowCounter(buffers, lease.outcome()).increment();
+        if (lease.waitNanos() > 0) {
+            waitTimer(buffers).record(lease.waitNanos(), TimeUnit.NANOSECONDS);
+        }
+        return borrowed;
+    }
+
+    private Counter borrowCounter(BufferStrategy buffers, Outcome outcome) {
+        return borrowCounters.computeIfAbsent(buffers + "|" + outcome, k -> Counter.builder("gc.demo.buffers.borrowed")
+                .description("Buffer borrows by outcome (hit = reused, miss = new pooled buffer, timeout/too_large = unpooled)")
+                .tag("strategy", buffers.name())
+                .tag("outcome", outcome.name().toLowerCase())
+                .register(registry));
+    }
+
+    private Timer waitTimer(BufferStrategy buffers) {
+        return waitTimers.computeIfAbsent(buffers, b -> Timer.builder("gc.demo.buffers.wait")
+                .description("Time spent waiting for a pooled buffer to be released")
+                .tag("strategy", b.name())
+                .publishPercentiles(0.5, 0.99)
+                .register(registry));
+    }
+
+    /**
+     * Borrow outcomes, hit rate and waits per strategy, plus pool sizes.
+     */
+    public Map<String, Object> getBufferStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (BufferStrategy buffers : BufferStrategy.values()) {
+            if (buffers == BufferStrategy.FRESH) {
+                continue;
+            }
+            Map<String, Object> strategy = new LinkedHashMap<>();
+            long total = 0;
+            for (Outcome outcome : Outcome.values()) {
+                long count = (long) borrowCounter(buffers, outcome).count();
+                strategy.put(outcome.name().toLowerCase(), count);
+                total += count;
+            }
+            long hits = (long) borrowCounter(buffers, Outcome.HIT).count();
+            strategy.put("hitRate", String.format("%.4f", total == 0 ? 0 : hits / (double) total));
+            Timer wait = waitTimer(buffers);
+            strategy.put("waits", wait.count());
+            strategy.put("meanWaitMs", String.format("%.3f", wait.mean(TimeUnit.MILLISECONDS)));
+            strategy.put("maxWaitMs", String.format("%.3f", wait.max(TimeUnit.MILLISECONDS)));
+            SizeClassBufferPool<?> pool = buffers == BufferStrategy.POOLED ? heapPool
+                    : buffers == BufferStrategy.DIRECT_POOL ? directPool : null;
+            if (pool != null) {
+                strategy.put("pooledMB", String.format("%.1f", pool.pooledBytes() / (double) BYTES_PER_MB));
+                strategy.put("maxPoolMB", pool.maxBytes() / BYTES_PER_MB);
+            }
+            stats.put(buffers.name(), strategy);
+        }
+        return stats;
+    }
+
+    private Counter bytesCounter(AllocationProfile profile) {
+        String key = profile.shape() + "|" + profile.distribution();
+        return bytesCounters.computeIfAbsent(key, k -> Counter.builder("gc.demo.profile.bytes")
+                .description("Bytes allocated through allocation profiles")
+                .tag("shape", profile.shape().name())
+                .tag("distribution", profile.distribution().name())
+                .register(registry));
+    }
+
+    private Timer phaseTimer(String phase, FillStrategy fill) {
+        return phaseTimers.computeIfAbsent(phase + "|" + fill, k -> Timer.builder("gc.demo.profile.phase.time")
+                .description("Time spent allocating units vs filling their contents")
+                .tag("phase", phase)
+                .tag("fill", fill.name())
+                .register(registry));
+    }
+
+    private void fill(byte[] chunk, FillStrategy fill) {
+        fill(chunk, chunk.length, fill);
+    }
+
+    /**
+     * Fills the first {@code length} bytes (pooled buffers can be larger than the unit).
+     */
+    private void fill(byte[] chunk, int length, FillStrategy fill) {
+        switch (fill) {
+            case NONE -> { }
+            case TOUCH_PAGE -> {
+                for (int i = 0; i < length; i += PAGE_BYTES) {
+                    chunk[i] = 1;
+                }
+            }
+            case PATTERN -> {
+                for (int offset = 0; offset < length; offset += PATTERN_BYTES) {
+                    System.arraycopy(bytePattern, 0, chunk, offset, Math.min(PATTERN_BYTES, length - offset));
+                }
+            }
+            case RANDOM -> {
+                if (length == chunk.length) {
+                    ThreadLocalRandom.current().nextBytes(chunk);
+                } else {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < length; i++) {
+                        chunk[i] = (byte) random.nextInt();
+                    }
+                }
+            }
+        }
+    }
+
+    private void fill(ByteBuffer chunk, int length, FillStrategy fill) {
+        switch (fill) {
+            case NONE -> { }
+            case TOUCH_PAGE -> {
+                for (int i = 0; i < length; i += PAGE_BYTES) {
+                    chunk.put(i, (byte) 1);
+                }
+            }
+            case PATTERN -> {
+                for (int offset = 0; offset < length; offset += PATTERN_BYTES) {
+                    chunk.put(offset, bytePattern, 0, Math.min(PATTERN_BYTES, length - offset));
+                }
+            }
+            case RANDOM -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int i = 0;
+                for (; i + Long.BYTES <= length; i += Long.BYTES) {
+                    chunk.putLong(i, random.nextLong());
+                }
+                for (; i < length; i++) {
+                    chunk.put(i, (byte) random.nextInt());
+                }
+            }
+        }
+    }
+
+    private void fill(long[] chunk, FillStrategy fill) {
+        switch (fill) {
+            case NONE -> { }
+            case TOUCH_PAGE -> {
+                for (int i = 0; i < chunk.length; i += PAGE_BYTES / Long.BYTES) {
+                    chunk[i] = 1;
+                }
+            }
+            case PATTERN -> {
+                for (int offset = 0; offset < chunk.length; offset += longPattern.length) {
+                    System.arraycopy(longPattern, 0, chunk, offset, Math.min(longPattern.length, chunk.length - offset));
+                }
+            }
+            case RANDOM -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < chunk.length; i++) {
+                    chunk[i] = random.nextLong();
+                }
+            }
+        }
+    }
+
+    /**
+     * Value stored in the i-th node of a graph shape.
+     */
+    private long nodeValue(FillStrategy fill, int i) {
+        return switch (fill) {
+            case NONE, TOUCH_PAGE -> 0L;
+            case PATTERN -> longPattern[i & (longPattern.length - 1)];
+            case RANDOM -> ThreadLocalRandom.current().nextLong();
+        };
+    }
+
+    private ListNode newLinkedList(int sizeBytes, FillStrategy fill) {
+        int nodes = Math.max(1, sizeBytes / LIST_NODE_BYTES);
+
+        ListNode head = null;
+        for (int i = 0; i < nodes; i++) {
+            head = new ListNode(nodeValue(fill, i), head);
+        }
+        return head;
+    }
+
+    private TreeNode newTree(int sizeBytes, int fanOut, FillStrategy fill) {
+        int nodeBytes = TREE_NODE_BYTES + OBJECT_HEADER_BYTES + fanOut * Integer.BYTES;
+        int nodes = Math.max(1, sizeBytes / nodeBytes);
+
+        // Breadth-first so the tree stays balanced
+        TreeNode root = new TreeNode(nodeValue(fill, 0), fanOut);
+        Queue<TreeNode> open = new ArrayDeque<>();
+        open.add(root);
+        int created = 1;
+
+        while (created < nodes) {
+            TreeNode parent = open.poll();
+            for (int i = 0; i < fanOut && created < nodes; i++) {
+                TreeNode child = new TreeNode(nodeValue(fill, created), fanOut);
+                parent.children[i] = child;
+                open.add(child);
+                created++;
+            }
+        }
+        return root;
+    }
+
+    private Map<Integer, Object> newHashMapGraph(int sizeBytes, int fanOut, FillStrategy fill) {
+        int entryBytes = MAP_ENTRY_BYTES + MAP_LEAF_BYTES;
+        int entries = Math.max(1, sizeBytes / entryBytes);
+
+        // Breadth-first: every map gets up to fanOut entries. The first is a leaf, so every
+        // map holds data; the next ones point at child maps while the budget still has room
+        // for their entries, the rest are leaves.
+        // With fanOut 1 each map's only entry is the next map, so it becomes a chain
+        Map<Integer, Object> root = new HashMap<>();
+        Queue<Map<Integer, Object>> open = new ArrayDeque<>();
+        open.add(root);
+        int created = 0;
+
+        while (created < entries && !open.isEmpty()) {
+            Map<Integer, Object> map = open.poll();
+            for (int i = 0; i < fanOut && created < entries; i++) {
+                boolean leaf = fanOut == 1
+                    ? created + 1 >= entries
+                    : i == 0 || created + open.size() * fanOut >= entries;
+                if (leaf) {
+                    map.put(i, new long[] {nodeValue(fill, created), nodeValue(fill, created + 1)});
+                } else {
+                    Map<Integer, Object> child = new HashMap<>();
+                    map.put(i, child);
+                    open.add(child);
+                }
+                created++;
+            }
+        }
+        return root;
+    }
+
+    private static final class ListNode {
+        final long value;
+        final ListNode next;
+
+        ListNode(long value, ListNode next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class TreeNode {
+        final long value;
+        final TreeNode[] children;
+
+        TreeNode(long value, int fanOut) {
+            this.value = value;
+            this.children = new TreeNode[fanOut];
+        }
+    }
+}
@@ -1,14 +1,22 @@
 package com.example.gcdemo.service;
 
+import com.example.gcdemo.cache.SurvivorRing;
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.WorkloadExecutorService.Budget;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Better approach: Let objects naturally survive or die
@@ -17,21 +25,34 @@ import java.util.concurrent.ThreadLocalRandom;
 @Service
 public class BetterMemoryService {
 
-    private final Timer allocationTimer;
+    private final MeterRegistry registry;
+    private final Map<String, Timer> allocationTimers = new ConcurrentHashMap<>();
     private final Counter youngObjectCounter;
     private final Counter survivorObjectCounter;
+    private final AllocationProfileService profiles;
+    private final WorkloadExecutorService executor;
+    private final LongLivedStorageService storage;
     
-    private static final int OBJECT_SIZE_MB = 10;
     private static final int BYTES_PER_MB = 1024 * 1024;
     
     // Hold references for survivors - but let GC manage them
-    private volatile List<byte[]> currentSurvivors = new ArrayList<>();
-    private final Object lock = new Object();
+    // Lock-free ring: survivors expire by age (requests / wall-clock) or byte limit
+    private final SurvivorRing survivors;
+    private final AtomicLong requestCounter = new AtomicLong(0);
     
-    public BetterMemoryService(MeterRegistry registry) {
-        this.allocationTimer = Timer.builder("gc.demo.better.allocation.time")
-                .description("Time spent allocating objects")
-                .register(registry);
+    public BetterMemoryService(MeterRegistry registry, AllocationProfileService profiles,
+                               WorkloadExecutorService executor, LongLivedStorageService storage,
+                               @Value("${gcdemo.survivors.capacity:65536}") int survivorCapacity,
+                               @Value("${gcdemo.survivors.max-mb:200}") long maxSurvivorMB,
+                               @Value("${gcdemo.survivors.max-age-requests:20}") long maxAgeRequests,
+                               @Value("${gcdemo.survivors.max-age-ms:0}") long maxAgeMs) {
+        this.registry = registry;
+        this.profiles = profiles;
+        this.executor = executor;
+        this.storage = storage;
+        this.survivors = new SurvivorRing(
+            survivorCapacity, maxSurvivorMB * BYTES_PER_MB, maxAgeRequests, TimeUnit.MILLISECONDS.toNanos(maxAgeMs),
+            storage::release);
         
         this.youngObjectCounter = Counter.builder("gc.demo.better.young.objects")
                 .description("Number of young objects created")
@@ -40,6 +61,14 @@ public class BetterMemoryService {
         this.survivorObjectCounter = Counter.builder("gc.demo.better.survivor.objects")
                 .description("Number of survivor objects")
                 .register(registry);
+        
+        Gauge.builder("gc.demo.better.survivor.live", survivors, SurvivorRing::size)
+                .description("Survivor objects currently held")
+                .register(registry);
+        
+        Gauge.builder("gc.demo.better.survivor.bytes", survivors, SurvivorRing::bytes)
+                .description("Survivor bytes currently held")
+                .register(registry);
     }
     
     /**
@@ -53,85 +82,138 @@ public class BetterMemoryService {
      * This works WITH Gen ZGC instead of against it!
      */
     public AllocationResult naturalGenerationalWorkload(int shortLivedMB, int survivorsMB) {
+        return naturalGenerationalWorkload(shortLivedMB, survivorsMB, AllocationProfile.DEFAULT);
+    }
+    
+    /**
+     * Natural generational workload with units shaped and sized by the given profile.
+     * Units are allocated until the next one would exceed the MB budget.
+     */
+    public AllocationResult naturalGenerationalWorkload(int shortLivedMB, int survivorsMB, AllocationProfile profile) {
+        return naturalGenerationalWorkload(shortLivedMB, survivorsMB, profile, FanOut.INLINE);
+    }
+    
+    /**
+     * Natural generational workload split across concurrent tasks (platform, virtual or fork-join threads).
+     * Tasks draw units from both budgets until they run out, and each rotates its own survivors in.
+     */
+    public AllocationResult naturalGenerationalWorkload(int shortLivedMB, int survivorsMB,
+                                                        AllocationProfile profile, FanOut fanOut) {
+        return naturalGenerationalWorkload(shortLivedMB, survivorsMB, profile, fanOut, 0);
+    }
+    
+    /**
+     * Natural generational workload with its own survivor age.
+     * 
+     * @param survivorAgeRequests survivors expire after this many requests (0 = configured default)
+     */
+    public AllocationResult naturalGenerationalWorkload(int shortLivedMB, int survivorsMB,
+                                                        AllocationProfile profile, FanOut fanOut,
+                                                        long survivorAgeRequests) {
         long startTime = System.nanoTime();
+        Budget shortLivedBudget = new Budget((long) shortLivedMB * BYTES_PER_MB);
+        Budget survivorBudget = new Budget((long) survivorsMB * BYTES_PER_MB);
+        long request = requestCounter.incrementAndGet();
+        
+        List<TaskResult> results = executor.fanOut("natural", fanOut,
+            task -> naturalTask(shortLivedBudget, survivorBudget, request, survivorAgeRequests, profile));
+        
         long totalBytes = 0;
         int youngCount = 0;
         int survivorCount = 0;
+        for (TaskResult result : results) {
+            totalBytes += result.totalBytes();
+            youngCount += result.youngObjects();
+            survivorCount += result.survivorObjects();
+        }
+        youngObjectCounter.increment(youngCount);
+        survivorObjectCounter.increment(survivorCount);
         
-        // 1. SHORT-LIVED: Dies immediately when method returns
-        List<byte[]> youngObjects = new ArrayList<>();
-        int shortLivedChunks = shortLivedMB / OBJECT_SIZE_MB;
+        long durationNanos = System.nanoTime() - startTime;
+        allocationTimer(fanOut).record(durationNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
         
-        for (int i = 0; i < shortLivedChunks; i++) {
-            byte[] chunk = new byte[OBJECT_SIZE_MB * BYTES_PER_MB];
-            ThreadLocalRandom.current().nextBytes(chunk);
-            youngObjects.add(chunk);
-            totalBytes += chunk.length;
+        return new AllocationResult(
+            youngCount + survivorCount,
+            totalBytes,
+            durationNanos,
+            youngCount,
+            survivorCount
+        );
+    }
+    
+    private TaskResult naturalTask(Budget shortLivedBudget, Budget survivorBudget, long request,
+                                   long survivorAgeRequests, AllocationProfile profile) {
+        int youngCount = 0;
+        int survivorCount = 0;
+        
+        // 1. SHORT-LIVED: Dies immediately when the task returns
+        List<Object> youngObjects = new ArrayList<>();
+        long shortLivedBytes = 0;
+        
+        while (true) {
+            int sizeBytes = profiles.sampleSizeBytes(profile);
+            if (!shortLivedBudget.claim(sizeBytes)) {
+                break;
+            }
+            profiles.allocateShortLived(profile, sizeBytes, youngObjects);
+            shortLivedBytes += sizeBytes;
             youngCount++;
-            youngObjectCounter.increment();
         }
         
         // 2. SURVIVORS: Keep reference for next few requests
         // These naturally become "old generation" for Gen ZGC
-        List<byte[]> newSurvivors = new ArrayList<>();
-        int survivorChunks = survivorsMB / OBJECT_SIZE_MB;
+        long survivorBytes = 0;
         
-        for (int i = 0; i < survivorChunks; i++) {
-            byte[] chunk = new byte[OBJECT_SIZE_MB * BYTES_PER_MB];
-            ThreadLocalRandom.current().nextBytes(chunk);
-            newSurvivors.add(chunk);
-            totalBytes += chunk.length;
+        while (true) {
+            int sizeBytes = profiles.sampleSizeBytes(profile);
+            if (!survivorBudget.claim(sizeBytes)) {
+                break;
+            }
+            Object unit = profiles.allocate(profile, sizeBytes);
+            survivors.add(storage.retain(unit, sizeBytes), sizeBytes, request);
+            survivorBytes += sizeBytes;
             survivorCount++;
-            survivorObjectCounter.increment();
         }
         
-        // 3. Rotate survivors: keep last 20 requests worth
-        // This creates a natural old generation without fighting Gen ZGC
-        synchronized (lock) {
-            currentSurvivors.addAll(newSurvivors);
-            
-            // Keep only recent survivors (limit to ~200MB total)
-            int maxSurvivors = 20; // ~200MB with 10MB chunks
-            if (currentSurvivors.size() > maxSurvivors) {
-                // Remove oldest (first items become eligible for collection)
-                currentSurvivors = new ArrayList<>(
-                    currentSurvivors.subList(currentSurvivors.size() - maxSurvivors, currentSurvivors.size())
-                );
-            }
+        // 3. Rotate survivors: by default keep the last 20 requests, at most ~200MB
+        // Expired survivors become eligible for collection - no lock, no copying
+        if (survivorAgeRequests > 0) {
+            survivors.expire(request, survivorAgeRequests);
+        } else {
+            survivors.expire(request);
         }
         
-        long durationNanos = System.nanoTime() - startTime;
-        allocationTimer.record(durationNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
-        
         // youngObjects die here (garbage)
-        // newSurvivors live on in currentSurvivors list
-        return new AllocationResult(
-            youngCount + survivorCount,
-            totalBytes,
-            durationNanos,
-            youngCount,
-            survivorCount
-        );
+        // survivors live on in the ring until they expire
+        return new TaskResult(shortLivedBytes + survivorBytes, youngCount, survivorCount);
+    }
+    
+    private Timer allocationTimer(FanOut fanOut) {
+        return allocationTimers.computeIfAbsent(fanOut.modeTag(), mode -> Timer.builder("gc.demo.better.allocation.time")
+                .description("Time spent allocating objects")
+                .tag("mode", mode)
+                .register(registry));
     }
     
     public Map<String, Object> getStats() {
-        synchronized (lock) {
-            long survivorBytes = (long) currentSurvivors.size() * OBJECT_SIZE_MB * BYTES_PER_MB;
-            return Map.of(
-                "survivorCount", currentSurvivors.size(),
-                "survivorMB", survivorBytes / BYTES_PER_MB,
-                "youngObjectsCreated", (long) youngObjectCounter.count(),
-                "survivorObjectsCreated", (long) survivorObjectCounter.count()
-            );
-        }
+        return Map.of(
+            "survivorCount", survivors.size(),
+            "survivorMB", survivors.bytes() / BYTES_PER_MB,
+            "survivorCapacity", survivors.capacity(),
+            "storage", storage.mode(),
+            "offHeapCommittedMB", storage.committedBytes() / BYTES_PER_MB,
+            "requests", requestCounter.get(),
+            "youngObjectsCreated", (long) youngObjectCounter.count(),
+            "survivorObjectsCreated", (long) survivorObjectCounter.count()
+        );
     }
     
     public void clearSurvivors() {
-        synchronized (lock) {
-            currentSurvivors.clear();
-        }
+        survivors.clear();
     }
     
+    private record TaskResult(long totalBytes, int youngObjects, int survivorObjects) {}
+    
     public record AllocationResult(
         int objectCount,
         long totalBytes,
@@ -1,9 +1,16 @@
 package com.example.gcdemo.service;
 
+import com.example.gcdemo.cache.EvictionPolicy;
+import com.example.gcdemo.cache.WeightedCache;
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.WorkloadExecutorService.Budget;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -16,27 +23,32 @@ import java.util.concurrent.atomic.AtomicLong;
 @Service
 public class EnhancedMemoryService {
 
-    private final Timer allocationTimer;
+    private final MeterRegistry registry;
+    private final Map<String, Timer> allocationTimers = new ConcurrentHashMap<>();
     private final Counter youngObjectCounter;
     private final Counter oldObjectCounter;
+    private final AllocationProfileService profiles;
+    private final WorkloadExecutorService executor;
+    private final LongLivedStorageService storage;
     
-    private static final int OBJECT_SIZE_MB = 10;
     private static final int BYTES_PER_MB = 1024 * 1024;
     
-    // Persistent cache for long-lived objects
-    private final Map<String, LongLivedObject> longLivedCache = new ConcurrentHashMap<>();
-    private final AtomicLong cacheKeyCounter = new AtomicLong(0);
-    private final AtomicLong totalCachedBytes = new AtomicLong(0);
-    
+    // Persistent cache for long-lived objects, bounded by bytes
     // With 512MB heap, limit cache to ~200MB (40% of heap)
     // With 1GB heap, limit cache to ~400MB (40% of heap)
-    private static final long MAX_CACHE_MB = 200;
-    private static final long MAX_CACHE_BYTES = MAX_CACHE_MB * BYTES_PER_MB;
+    private final WeightedCache<String, Object> longLivedCache;
+    private final AtomicLong cacheKeyCounter = new AtomicLong(0);
     
-    public EnhancedMemoryService(MeterRegistry registry) {
-        this.allocationTimer = Timer.builder("gc.demo.enhanced.allocation.time")
-                .description("Time spent allocating objects (enhanced)")
-                .register(registry);
+    public EnhancedMemoryService(MeterRegistry registry, AllocationProfileService profiles,
+                                 WorkloadExecutorService executor, LongLivedStorageService storage,
+                                 @Value("${gcdemo.cache.policy:FIFO}") EvictionPolicy cachePolicy,
+                                 @Value("${gcdemo.cache.max-mb:200}") long maxCacheMB) {
+        this.registry = registry;
+        this.profiles = profiles;
+        this.executor = executor;
+        this.storage = storage;
+        // Evicted values hand their off-heap blocks back to the slab store
+        this.longLivedCache = WeightedCache.create(cachePolicy, maxCacheMB * BYTES_PER_MB, storage::release);
         
         this.youngObjectCounter = Counter.builder("gc.demo.enhanced.young.objects")
                 .description("Number of short-lived objects created")
@@ -46,88 +58,164 @@ public class EnhancedMemoryService {
                 .description("Number of long-lived objects created")
                 .register(registry);
         
-        Gauge.builder("gc.demo.enhanced.cache.size", longLivedCache, Map::size)
+        Gauge.builder("gc.demo.enhanced.cache.size", longLivedCache, WeightedCache::size)
                 .description("Number of long-lived objects in cache")
                 .register(registry);
                 
-        Gauge.builder("gc.demo.enhanced.cache.bytes", totalCachedBytes, AtomicLong::get)
+        Gauge.builder("gc.demo.enhanced.cache.bytes", longLivedCache, WeightedCache::weightedSize)
                 .description("Total bytes in long-lived cache")
                 .register(registry);
+        
+        String policy = cachePolicy.name();
+        FunctionCounter.builder("gc.demo.enhanced.cache.hits", longLivedCache, c -> c.stats().hits())
+                .description("Long-lived cache lookups that found an entry")
+                .tag("policy", policy)
+                .register(registry);
+        
+        FunctionCounter.builder("gc.demo.enhanced.cache.misses", longLivedCache, c -> c.stats().misses())
+                .description("Long-lived cache lookups that found nothing")
+                .tag("policy", policy)
+                .register(registry);
+        
+        FunctionCounter.builder("gc.demo.enhanced.cache.evictions", longLivedCache, c -> c.stats().evictions())
+                .description("Entries evicted from the long-lived cache")
+                .tag("policy", policy)
+                .register(registry);
+        
+        FunctionCounter.builder("gc.demo.enhanced.cache.evicted.bytes", longLivedCache, c -> c.stats().evictedWeight())
+                .description("Bytes evicted from the long-lived cache")
+                .tag("policy", policy)
+                .register(registry);
     }
     
     /**
      * Mixed workload demonstrating Weak Generational Hypothesis
      */
     public AllocationResult mixedWorkload(int shortLivedMB, int longLivedMB) {
+        return mixedWorkload(shortLivedMB, longLivedMB, AllocationProfile.DEFAULT);
+    }
+    
+    /**
+     * Mixed workload with units shaped and sized by the given profile.
+     * Units are allocated until the next one would exceed the MB budget.
+     */
+    public AllocationResult mixedWorkload(int shortLivedMB, int longLivedMB, AllocationProfile profile) {
+        return mixedWorkload(shortLivedMB, longLivedMB, profile, FanOut.INLINE);
+    }
+    
+    /**
+     * Mixed workload split across concurrent tasks (platform, virtual or fork-join threads).
+     * Tasks draw units from both budgets until they run out, so the totals match an inline run.
+     */
+    public AllocationResult mixedWorkload(int shortLivedMB, int longLivedMB, AllocationProfile profile, FanOut fanOut) {
+        return mixedWorkload(shortLivedMB, longLivedMB, profile, fanOut, 0);
+    }
+    
+    /**
+     * Mixed workload that also reads the long-lived cache.
+     * 
+     * @param cacheReads lookups per request, skewed towards recently inserted
+     *                   keys (log-uniform key age) with a tail of misses
+     */
+    public AllocationResult mixedWorkload(int shortLivedMB, int longLivedMB, AllocationProfile profile,
+                                          FanOut fanOut, int cacheReads) {
         long startTime = System.nanoTime();
+        Budget shortLivedBudget = new Budget((long) shortLivedMB * BYTES_PER_MB);
+        Budget longLivedBudget = new Budget((long) longLivedMB * BYTES_PER_MB);
+        
+        int tasks = fanOut.tasks();
+        
+        List<TaskResult> results = executor.fanOut("mixed", fanOut,
+            task -> mixedTask(shortLivedBudget, longLivedBudget,
+                cacheReads / tasks + (task < cacheReads % tasks ? 1 : 0), profile));
+        
         long totalBytes = 0;
         int youngObjects = 0;
         int oldObjects = 0;
+        for (TaskResult result : results) {
+            totalBytes += result.totalBytes();
+            youngObjects += result.youngObjects();
+            oldObjects += result.oldObjects();
+        }
+        youngObjectCounter.increment(youngObjects);
+        oldObjectCounter.increment(oldObjects);
+        
+        long durationNanos = System.nanoTime() - startTime;
+        allocationTimer(fanOut).record(durationNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
+        
+        return new AllocationResult(
+            youngObjects + oldObjects, 
+            totalBytes, 
+            durationNanos,
+            youngObjects,
+            oldObjects
+        );
+    }
+    
+    private TaskResult mixedTask(Budget shortLivedBudget, Budget longLivedBudget, int cacheReads, AllocationProfile profile) {
+        int youngObjects = 0;
+        int oldObjects = 0;
         
         // SHORT-LIVED objects (dies immediately)
-        List<byte[]> tempObjects = new ArrayList<>();
-        int shortLivedChunks = shortLivedMB / OBJECT_SIZE_MB;
-        
-        for (int i = 0; i < shortLivedChunks; i++) {
-            byte[] chunk = new byte[OBJECT_SIZE_MB * BYTES_PER_MB];
-            ThreadLocalRandom.current().nextBytes(chunk);
-            tempObjects.add(chunk);
-            totalBytes += chunk.length;
+        List<Object> tempObjects = new ArrayList<>();
+        long shortLivedBytes = 0;
+        
+        while (true) {
+            int sizeBytes = profiles.sampleSizeBytes(profile);
+            if (!shortLivedBudget.claim(sizeBytes)) {
+                break;
+            }
+            profiles.allocateShortLived(profile, sizeBytes, tempObjects);
+            shortLivedBytes += sizeBytes;
             youngObjects++;
-            youngObjectCounter.increment();
         }
         
         // LONG-LIVED objects (survives in cache)
-        int longLivedChunks = longLivedMB / OBJECT_SIZE_MB;
+        long longLivedBytes = 0;
         
-        for (int i = 0; i < longLivedChunks; i++) {
-            // Evict oldest if cache exceeds size limit
-            if (totalCachedBytes.get() + (OBJECT_SIZE_MB * BYTES_PER_MB) > MAX_CACHE_BYTES) {
-                evictOldestEntries(longLivedChunks);
+        while (true) {
+            int sizeBytes = profiles.sampleSizeBytes(profile);
+            if (!longLivedBudget.claim(sizeBytes)) {
+                break;
             }
             
+            // The cache evicts per its policy if this exceeds the size limit
             String key = "obj_" + cacheKeyCounter.incrementAndGet();
-            byte[] chunk = new byte[OBJECT_SIZE_MB * BYTES_PER_MB];
-            ThreadLocalRandom.current().nextBytes(chunk);
+            Object unit = profiles.allocate(profile, sizeBytes);
+            longLivedCache.put(key, storage.retain(unit, sizeBytes), sizeBytes);
             
-            LongLivedObject obj = new LongLivedObject(chunk, System.currentTimeMillis());
-            longLivedCache.put(key, obj);
-            
-            totalBytes += chunk.length;
-            totalCachedBytes.addAndGet(chunk.length);
+            longLivedBytes += sizeBytes;
             oldObjects++;
-            oldObjectCounter.increment();
         }
         
-        long durationNanos = System.nanoTime() - startTime;
-        allocationTimer.record(durationNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
+        // READS: recent entries are hot, older ones are read less and less
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double keySpan = 2.0 * Math.max(1, longLivedCache.size());
+        for (int i = 0; i < cacheReads; i++) {
+            long age = (long) Math.pow(keySpan, random.nextDouble()) - 1;
+            longLivedCache.get("obj_" + (cacheKeyCounter.get() - age));
+        }
         
-        return new AllocationResult(
-            youngObjects + oldObjects, 
-            totalBytes, 
-            durationNanos,
-            youngObjects,
-            oldObjects
-        );
+        return new TaskResult(shortLivedBytes + longLivedBytes, youngObjects, oldObjects);
     }
     
-    private void evictOldestEntries(int count) {
-        longLivedCache.entrySet().stream()
-            .sorted((e1, e2) -> Long.compare(e1.getValue().createdAt, e2.getValue().createdAt))
-            .limit(count)
-            .forEach(entry -> {
-                LongLivedObject removed = longLivedCache.remove(entry.getKey());
-                if (removed != null) {
-                    totalCachedBytes.addAndGet(-removed.data.length);
-                }
-            });
+    private Timer allocationTimer(FanOut fanOut) {
+        return allocationTimers.computeIfAbsent(fanOut.modeTag(), mode -> Timer.builder("gc.demo.enhanced.allocation.time")
+                .description("Time spent allocating objects (enhanced)")
+                .tag("mode", mode)
+                .register(registry));
     }
     
     public Map<String, Object> getCacheStats() {
+        WeightedCache.Stats cacheStats = longLivedCache.stats();
         return Map.of(
             "cacheSize", longLivedCache.size(),
-            "cachedMB", String.format("%.2f", totalCachedBytes.get() / (double) BYTES_PER_MB),
-            "maxCacheMB", MAX_CACHE_MB,
+            "cachedMB", String.format("%.2f", longLivedCache.weightedSize() / (double) BYTES_PER_MB),
+            "maxCacheMB", longLivedCache.maximumWeight() / BYTES_PER_MB,
+            "policy", longLivedCache.policy(),
+            "storage", storage.mode(),
+            "hitRate", String.format("%.4f", cacheStats.hitRate()),
+            "evictions", cacheStats.evictions(),
             "youngObjectsCreated", (long) youngObjectCounter.count(),
             "oldObjectsCreated", (long) oldObjectCounter.count(),
             "youngToOldRatio", String.format("%.2f", youngObjectCounter.count() / Math.max(1, oldObjectCounter.count()))
@@ -136,18 +224,9 @@ public class EnhancedMemoryService {
     
     public void clearCache() {
         longLivedCache.clear();
-        totalCachedBytes.set(0);
     }
     
-    private static class LongLivedObject {
-        final byte[] data;
-        final long createdAt;
-        
-        LongLivedObject(byte[] data, long createdAt) {
-            this.data = data;
-            this.createdAt = createdAt;
-        }
-    }
+    private record TaskResult(long totalBytes, int youngObjects, int oldObjects) {}
     
     public record AllocationResult(
         int objectCount, 
@@ -0,0 +1,460 @@
+package com.example.gcdemo.service;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToDoubleFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What the process really costs in memory, beyond the heap numbers of MemoryMXBean.
+ *
+ * Containers are OOM-killed on the cgroup's usage, not on heap occupancy, and
+ * collectors differ in what they keep outside the heap (G1 remembered sets and
+ * card tables, ZGC page tables and multi-mapped heap views, GC thread stacks).
+ * This reads, on Linux:
+ *   /proc/self/status      RSS (anon, file, shmem), peak RSS, swap
+ *   /proc/self/smaps_rollup PSS, which splits shared pages between the processes mapping them
+ *   cgroup v2 or v1        memory limit, usage, anon and page cache of the container
+ * plus committed heap, non-heap pools and direct/mapped buffers from the JVM, and
+ * Native Memory Tracking per category when the JVM runs with
+ * -XX:NativeMemoryTracking=summary (read through the DiagnosticCommand MBean,
+ * which is what jcmd VM.native_memory uses).
+ *
+ * Everything is published as gc.demo.footprint.* gauges; values that cannot be
+ * read on this platform are NaN.
+ */
+@Service
+public class FootprintService {
+
+    private static final Logger log = LoggerFactory.getLogger(FootprintService.class);
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+    private static final Path PROC_STATUS = Path.of("/proc/self/status");
+    private static final Path SMAPS_ROLLUP = Path.of("/proc/self/smaps_rollup");
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+    // cgroup v1 reports "no limit" as a page-aligned Long.MAX_VALUE
+    private static final long UNLIMITED = 1L << 60;
+    // /proc is re-read at most this often, however many gauges are scraped
+    private static final long SNAPSHOT_TTL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private static final Pattern NMT_TOTAL = Pattern.compile("^Total: reserved=(\\d+)KB, committed=(\\d+)KB");
+    private static final Pattern NMT_CATEGORY = Pattern.compile("^-\\s+(.+?) \\(reserved=(\\d+)KB, committed=(\\d+)KB\\)");
+
+    private final MeterRegistry registry;
+    private final Cgroup cgroup;
+    private final boolean nmtEnabled;
+    private final long nmtRefreshNanos;
+
+    private final Set<String> nmtGauges = ConcurrentHashMap.newKeySet();
+    private volatile Snapshot snapshot;
+    private volatile Nmt nmt = Nmt.DISABLED;
+    private volatile long nmtReadNanos;
+
+    public FootprintService(MeterRegistry registry,
+                            @Value("${gcdemo.footprint.nmt:true}") boolean nmt,
+                            @Value("${gcdemo.footprint.nmt-refresh-seconds:10}") int nmtRefreshSeconds) {
+        this.registry = registry;
+        this.cgroup = Cgroup.detect();
+        this.nmtEnabled = nmt && nmtTracking();
+        this.nmtRefreshNanos = Duration.ofSeconds(nmtRefreshSeconds).toNanos();
+        log.info("Footprint telemetry: cgroup {}, native memory tracking {}", cgroup.version(),
+            nmtEnabled ? "on" : "off");
+
+        processGauge("rss", Snapshot::rss);
+        processGauge("rss_peak", Snapshot::rssPeak);
+        processGauge("rss_anon", Snapshot::rssAnon);
+        processGauge("rss_file", Snapshot::rssFile);
+        processGauge("rss_shmem", Snapshot::rssShmem);
+        processGauge("swap", Snapshot::swap);
+        processGauge("pss", Snapshot::pss);
+        processGauge("pss_anon", Snapshot::pssAnon);
+        processGauge("pss_file", Snapshot::pssFile);
+        processGauge("pss_shmem", Snapshot::pssShmem);
+
+        cgroupGauge("limit", Snapshot::cgroupLimit);
+        cgroupGauge("usage", Snapshot::cgroupUsage);
+        cgroupGauge("anon", Snapshot::cgroupAnon);
+        cgroupGauge("file", Snapshot::cgroupFile);
+
+        Gauge.builder("gc.demo.footprint.untracked.bytes", this, s -> s.snapshot().untracked())
+                .description("RSS minus committed heap, committed non-heap pools and buffer pools: GC structures, "
+                    + "thread stacks, malloc (negative while committed heap is not touched yet)")
+                .baseUnit("bytes")
+                .register(registry);
+
+        if (nmtEnabled) {
+            Gauge.builder("gc.demo.footprint.nmt.bytes", this, s -> s.nmt().committed())
+                    .description("Native Memory Tracking committed bytes per category")
+                    .baseUnit("bytes")
+                    .tag("category", "Total")
+                    .register(registry);
+            nmt();
+        }
+    }
+
+    /**
+     * One read of every source; fields are bytes, NaN when not available.
+     */
+    public record Snapshot(double rss, double rssPeak, double rssAnon, double rssFile, double rssShmem, double swap,
+                           double pss, double pssAnon, double pssFile, double pssShmem,
+                           double cgroupLimit, double cgroupUsage, double cgroupAnon, double cgroupFile,
+                           long heapUsed, long heapCommitted, long heapMax, long nonHeapCommitted,
+                           long bufferPoolBytes, long readNanos) {
+
+        /**
+         * Resident memory the JVM's own pools do not explain.
+         */
+        public double untracked() {
+            return rss - heapCommitted - nonHeapCommitted - bufferPoolBytes;
+        }
+    }
+
+    /**
+     * Native Memory Tracking summary, in bytes.
+     */
+    public record Nmt(boolean enabled, long reserved, long committed, Map<String, long[]> categories) {
+        static final Nmt DISABLED = new Nmt(false, 0, 0, Map.of());
+    }
+
+    /**
+     * Where this process's memory cgroup keeps its files ("none" off Linux or without a memory controller).
+     *
+     * @param anonKey page-cache-free usage in memory.stat ("anon" in v2, "total_rss" in v1)
+     */
+    private record Cgroup(String version, Path limit, Path usage, Path stat, String anonKey, String fileKey) {
+
+        static final Cgroup NONE = new Cgroup("none", null, null, null, null, null);
+
+        static Cgroup detect() {
+            try {
+                for (String line : Files.readAllLines(Path.of("/proc/self/cgroup"))) {
+                    // "0::/path" (v2) or "4:memory:/path" (v1)
+                    String[] fields = line.split(":", 3);
+                    if (fields.length < 3) {
+                        continue;
+                    }
+                    if (fields[0].equals("0") && fields[1].isEmpty()) {
+                        Path dir = directory(CGROUP_ROOT, fields[2], "memory.max");
+                        if (dir != null) {
+                            return new Cgroup("v2", dir.resolve("memory.max"), dir.resolve("memory.current"),
+                                dir.resolve("memory.stat"), "anon", "file");
+                        }
+                    } else if (List.of(fields[1].split(",")).contains("memory")) {
+                        Path dir = directory(CGROUP_ROOT.resolve("memory"), fields[2], "memory.limit_in_bytes");
+                        if (dir != null) {
+                            return new Cgroup("v1", dir.resolve("memory.limit_in_bytes"),
+                                dir.resolve("memory.usage_in_bytes"), dir.resolve("memory.stat"), "total_rss", "total_cache");
+                        }
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // Not Linux
+            }
+            return NONE;
+        }
+
+        /**
+         * The cgroup's directory; inside a container its own cgroup is usually mounted as the root.
+         */
+        private static Path directory(Path mount, String cgroupPath, String probe) {
+            Path nested = mount.resolve(cgroupPath.replaceFirst("^/", ""));
+            if (Files.isRegularFile(nested.resolve(probe))) {
+                return nested;
+            }
+            return Files.isRegularFile(mount.resolve(probe)) ? mount : null;
+        }
+    }
+
+    private void processGauge(String type, ToDoubleFunction<Snapshot> value) {
+        Gauge.builder("gc.demo.footprint.process.bytes", this, s -> value.applyAsDouble(s.snapshot()))
+                .description("Process memory from /proc/self/status and smaps_rollup")
+                .baseUnit("bytes")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    private void cgroupGauge(String type, ToDoubleFunction<Snapshot> value) {
+        Gauge.builder("gc.demo.footprint.cgroup.bytes", this, s -> value.applyAsDouble(s.snapshot()))
+                .description("Memory cgroup limit and usage (limit is NaN when unlimited)")
+                .baseUnit("bytes")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    /**
+     * The latest snapshot, re-read when older than a second.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.readNanos() < SNAPSHOT_TTL_NANOS) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null || System.nanoTime() - snapshot.readNanos() >= SNAPSHOT_TTL_NANOS) {
+                snapshot = read();
+            }
+            return snapshot;
+        }
+    }
+
+    private Snapshot read() {
+        Map<String, Double> status = kilobyteFields(PROC_STATUS);
+        Map<String, Double> smaps = kilobyteFields(SMAPS_ROLLUP);
+        Map<String, Double> stat = cgroup.stat() == null ? Map.of() : keyValues(cgroup.stat());
+
+        double limit = cgroup.limit() == null ? Double.NaN : number(cgroup.limit());
+        if (limit >= UNLIMITED) {
+            limit = Double.NaN;
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        long bufferPoolBytes = 0;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            bufferPoolBytes += Math.max(0, pool.getMemoryUsed());
+        }
+
+        return new Snapshot(
+            status.getOrDefault("VmRSS", Double.NaN),
+            status.getOrDefault("VmHWM", Double.NaN),
+            status.getOrDefault("RssAnon", Double.NaN),
+            status.getOrDefault("RssFile", Double.NaN),
+            status.getOrDefault("RssShmem", Double.NaN),
+            status.getOrDefault("VmSwap", Double.NaN),
+            smaps.getOrDefault("Pss", Double.NaN),
+            smaps.getOrDefault("Pss_Anon", Double.NaN),
+            smaps.getOrDefault("Pss_File", Double.NaN),
+            smaps.getOrDefault("Pss_Shmem", Double.NaN),
+            limit,
+            cgroup.usage() == null ? Double.NaN : number(cgroup.usage()),
+            stat.getOrDefault(cgroup.anonKey(), Double.NaN),
+            stat.getOrDefault(cgroup.fileKey(), Double.NaN),
+            heap.getUsed(),
+            heap.getCommitted(),
+            heap.getMax(),
+            memory.getNonHeapMemoryUsage().getCommitted(),
+            bufferPoolBytes,
+            System.nanoTime());
+    }
+
+    /**
+     * "Name:   123 kB" lines in bytes; empty if the file cannot be read.
+     */
+    private static Map<String, Double> kilobyteFields(Path file) {
+        Map<String, Double> fields = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(file)) {
+                int colon = line.indexOf(':');
+                if (colon > 0 && line.endsWith(" kB")) {
+                    String value = line.substring(colon + 1, line.length() - 3).trim();
+                    fields.put(line.substring(0, colon), Double.parseDouble(value) * 1024);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or an older kernel without smaps_rollup
+        }
+        return fields;
+    }
+
+    /**
+     * "name value" lines (cgroup memory.stat); empty if the file cannot be read.
+     */
+    private static Map<String, Double> keyValues(Path file) {
+        Map<String, Double> values = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(file)) {
+                String[] parts = line.split(" ");
+                if (parts.length == 2) {
+                    values.put(parts[0], Double.parseDouble(parts[1]));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Gone or unreadable
+        }
+        return values;
+    }
+
+    /**
+     * A single number (or "max") from a cgroup file; NaN for "max" or when unreadable.
+     */
+    private static double number(Path file) {
+        try {
+            String value = Files.readString(file).trim();
+            return value.equals("max") ? Double.NaN : Double.parseDouble(value);
+        } catch (IOException | RuntimeException e) {
+            return Double.NaN;
+        }
+    }
+
+    private static boolean nmtTracking() {
+        try {
+            String value = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                    .getVMOption("NativeMemoryTracking").getValue();
+            return !value.equals("off");
+        } catch (RuntimeException e) {
+            // Not HotSpot
+            return false;
+        }
+    }
+
+    /**
+     * The latest Native Memory Tracking summary, re-read when older than the refresh interval.
+     * New categories get their gauges on first sight.
+     */
+    public Nmt nmt() {
+        if (!nmtEnabled) {
+            return Nmt.DISABLED;
+        }
+        synchronized (this) {
+            if (nmt.enabled() && System.nanoTime() - nmtReadNanos < nmtRefreshNanos) {
+                return nmt;
+            }
+            nmt = readNmt();
+            nmtReadNanos = System.nanoTime();
+        }
+        for (String category : nmt.categories().keySet()) {
+            if (nmtGauges.add(category)) {
+                Gauge.builder("gc.demo.footprint.nmt.bytes", this, s -> {
+                            long[] values = s.nmt().categories().get(category);
+                            return values == null ? Double.NaN : values[1];
+                        })
+                        .description("Native Memory Tracking committed bytes per category")
+                        .baseUnit("bytes")
+                        .tag("category", category)
+                        .register(registry);
+            }
+        }
+        return nmt;
+    }
+
+    private Nmt readNmt() {
+        String summary;
+        try {
+            summary = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                "vmNativeMemory",
+                new Object[]{new String[]{"summary", "scale=KB"}},
+                new String[]{String[].class.getName()});
+        } catch (JMException | RuntimeException e) {
+            log.warn("Reading Native Memory Tracking failed: {}", e.getMessage());
+            return new Nmt(true, 0, 0, Map.of());
+        }
+
+        long reserved = 0;
+        long committed = 0;
+        Map<String, long[]> categories = new LinkedHashMap<>();
+        for (String line : summary.split("\n")) {
+            Matcher total = NMT_TOTAL.matcher(line);
+            if (total.find()) {
+                reserved = Long.parseLong(total.group(1)) * 1024;
+                committed = Long.parseLong(total.group(2)) * 1024;
+                continue;
+            }
+            Matcher category = NMT_CATEGORY.matcher(line);
+            if (category.find()) {
+                categories.put(category.group(1).trim(),
+                    new long[]{Long.parseLong(category.group(2)) * 1024, Long.parseLong(category.group(3)) * 1024});
+            }
+        }
+        return new Nmt(true, reserved, committed, categories);
+    }
+
+    /**
+     * Everything above in MB, plus the JVM's pools by name.
+     */
+    public Map<String, Object> getStats() {
+        Snapshot s = snapshot();
+        Map<String, Object> stats = new LinkedHashMap<>();
+
+        Map<String, Object> process = new LinkedHashMap<>();
+        process.put("rssMB", mb(s.rss()));
+        process.put("rssPeakMB", mb(s.rssPeak()));
+        process.put("rssAnonMB", mb(s.rssAnon()));
+        process.put("rssFileMB", mb(s.rssFile()));
+        process.put("rssShmemMB", mb(s.rssShmem()));
+        process.put("swapMB", mb(s.swap()));
+        process.put("pssMB", mb(s.pss()));
+        process.put("pssAnonMB", mb(s.pssAnon()));
+        process.put("pssFileMB", mb(s.pssFile()));
+        process.put("pssShmemMB", mb(s.pssShmem()));
+        stats.put("process", process);
+
+        Map<String, Object> container = new LinkedHashMap<>();
+        container.put("version", cgroup.version());
+        container.put("limitMB", Double.isNaN(s.cgroupLimit()) ? "unlimited" : mb(s.cgroupLimit()));
+        container.put("usageMB", mb(s.cgroupUsage()));
+        container.put("anonMB", mb(s.cgroupAnon()));
+        container.put("fileMB", mb(s.cgroupFile()));
+        if (!Double.isNaN(s.cgroupLimit()) && !Double.isNaN(s.cgroupUsage())) {
+            container.put("usagePercent", String.format("%.1f", s.cgroupUsage() / s.cgroupLimit() * 100));
+        }
+        stats.put("cgroup", container);
+
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        jvm.put("heapUsedMB", mb(s.heapUsed()));
+        jvm.put("heapCommittedMB", mb(s.heapCommitted()));
+        jvm.put("heapMaxMB", mb(s.heapMax()));
+        jvm.put("nonHeapCommittedMB", mb(s.nonHeapCommitted()));
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.NON_HEAP) {
+                MemoryUsage usage = pool.getUsage();
+                pools.put(pool.getName(), Map.of("usedMB", mb(usage.getUsed()), "committedMB", mb(usage.getCommitted())));
+            }
+        }
+        jvm.put("nonHeapPools", pools);
+        Map<String, Object> buffers = new LinkedHashMap<>();
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            buffers.put(pool.getName(), Map.of("count", pool.getCount(), "usedMB", mb(pool.getMemoryUsed()),
+                "capacityMB", mb(pool.getTotalCapacity())));
+        }
+        jvm.put("bufferPools", buffers);
+        stats.put("jvm", jvm);
+        stats.put("untrackedMB", mb(s.untracked()));
+
+        Nmt current = nmt();
+        Map<String, Object> tracking = new LinkedHashMap<>();
+        tracking.put("enabled", current.enabled());
+        if (current.enabled()) {
+            tracking.put("reservedMB", mb(current.reserved()));
+            tracking.put("committedMB", mb(current.committed()));
+            Map<String, Object> categories = new LinkedHashMap<>();
+            current.categories().forEach((name, values) ->
+                categories.put(name, Map.of("reservedMB", mb(values[0]), "committedMB", mb(values[1]))));
+            tracking.put("categories", categories);
+        } else {
+            tracking.put("hint", "start the JVM with -XX:NativeMemoryTracking=summary");
+        }
+        stats.put("nativeMemoryTracking", tracking);
+        return stats;
+    }
+
+    private static String mb(double bytes) {
+        return Double.isNaN(bytes) ? "n/a" : String.format("%.1f", bytes / BYTES_PER_MB);
+    }
+}
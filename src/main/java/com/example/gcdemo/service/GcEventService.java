@@ -0,0 +1,255 @@
+package com.example.gcdemo.service;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-process GC event stream.
+ *
+ * Subscribes to the JMX GarbageCollectionNotificationInfo notification of every
+ * collector, so each individual pause/cycle is seen with its cause and the
+ * before/after usage of every memory pool - not just the cumulative
+ * getCollectionCount/getCollectionTime totals.
+ *
+ * Events are recorded into per-collector/per-cause timers, kept in a bounded
+ * buffer of recent events and pushed to registered listeners (SSE clients).
+ */
+@Service
+public class GcEventService {
+
+    private final MeterRegistry registry;
+    private final int maxRecentEvents;
+    private final long jvmStartEpochMs = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private final Deque<GcEvent> recentEvents = new ArrayDeque<>();
+    private final List<Consumer<GcEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Timer> durationTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> reclaimedSummaries = new ConcurrentHashMap<>();
+    private final Map<NotificationEmitter, NotificationListener> subscriptions = new LinkedHashMap<>();
+    private final AtomicLong eventSequence = new AtomicLong(0);
+
+    public GcEventService(MeterRegistry registry,
+                          @Value("${gcdemo.gc-events.recent:500}") int maxRecentEvents) {
+        this.registry = registry;
+        this.maxRecentEvents = maxRecentEvents;
+    }
+
+    /**
+     * One collection as reported by the JVM.
+     *
+     * @param kind  PAUSE (stop-the-world) or CYCLE (concurrent collection, e.g. "ZGC Major Cycles")
+     * @param pools before/after usage of each memory pool
+     */
+    public record GcEvent(
+        long id,
+        String gcName,
+        String action,
+        String cause,
+        String kind,
+        long startEpochMs,
+        long durationMs,
+        Map<String, PoolUsage> pools
+    ) {
+        public long endEpochMs() {
+            return startEpochMs + durationMs;
+        }
+    }
+
+    public record PoolUsage(long beforeBytes, long afterBytes) {
+        public long reclaimedBytes() {
+            return beforeBytes - afterBytes;
+        }
+    }
+
+    /**
+     * Duration percentiles of one collector/cause combination.
+     */
+    public record DurationSummary(String gcName, String cause, String kind, long count,
+                                  double totalMs, double maxMs, Map<String, Double> percentilesMs) {}
+
+    @PostConstruct
+    public void subscribe() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gc instanceof NotificationEmitter emitter) {
+                NotificationListener listener = this::handleNotification;
+                emitter.addNotificationListener(listener, null, null);
+                subscriptions.put(emitter, listener);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        subscriptions.forEach((emitter, listener) -> {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (ListenerNotFoundException e) {
+                // Already gone
+            }
+        });
+        subscriptions.clear();
+    }
+
+    private void handleNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info =
+                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        record(toEvent(info));
+    }
+
+    private GcEvent toEvent(GarbageCollectionNotificationInfo info) {
+        GcInfo gcInfo = info.getGcInfo();
+        Map<String, MemoryUsage> before = gcInfo.getMemoryUsageBeforeGc();
+        Map<String, MemoryUsage> after = gcInfo.getMemoryUsageAfterGc();
+
+        Map<String, PoolUsage> pools = new LinkedHashMap<>();
+        before.forEach((pool, usage) -> {
+            MemoryUsage afterUsage = after.get(pool);
+            pools.put(pool, new PoolUsage(usage.getUsed(), afterUsage == null ? 0 : afterUsage.getUsed()));
+        });
+
+        return new GcEvent(
+            eventSequence.incrementAndGet(),
+            info.getGcName(),
+            info.getGcAction(),
+            info.getGcCause(),
+            kindOf(info.getGcAction()),
+            jvmStartEpochMs + gcInfo.getStartTime(),
+            gcInfo.getDuration(),
+            pools
+        );
+    }
+
+    /**
+     * Classifies a notification by its gcAction. "end of minor GC" / "end of major GC"
+     * (G1, Parallel, Serial), "end of GC pause" (ZGC, Shenandoah) and "end of concurrent
+     * GC pause" (G1 Remark and Cleanup, on the "G1 Concurrent GC" bean) are pauses;
+     * "end of GC cycle" (the "ZGC Major Cycles" style beans) is a concurrent cycle.
+     */
+    static String kindOf(String gcAction) {
+        return gcAction.contains("pause") || gcAction.contains("minor GC") || gcAction.contains("major GC")
+                ? "PAUSE" : "CYCLE";
+    }
+
+    /**
+     * Whether a collector bean's collection time is stop-the-world time: every bean but
+     * the "... Cycles" ones of concurrent collectors ("G1 Concurrent GC" counts G1's
+     * Remark and Cleanup pauses).
+     */
+    static boolean reportsPauses(String gcName) {
+        return !gcName.contains("Cycles");
+    }
+
+    private void record(GcEvent event) {
+        String key = event.gcName() + "|" + event.cause();
+        durationTimers.computeIfAbsent(key, k -> Timer.builder("gc.demo.gc.duration")
+                .description("Duration of individual GC pauses and cycles")
+                .tag("gc", event.gcName())
+                .tag("cause", event.cause())
+                .tag("kind", event.kind())
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record(event.durationMs(), TimeUnit.MILLISECONDS);
+
+        event.pools().forEach((pool, usage) ->
+            reclaimedSummaries.computeIfAbsent(event.gcName() + "|" + pool, k -> DistributionSummary
+                    .builder("gc.demo.gc.pool.reclaimed")
+                    .description("Bytes reclaimed from a memory pool by one collection")
+                    .baseUnit("bytes")
+                    .tag("gc", event.gcName())
+                    .tag("pool", pool)
+                    .register(registry))
+                .record(Math.max(0, usage.reclaimedBytes())));
+
+        synchronized (recentEvents) {
+            recentEvents.addLast(event);
+            while (recentEvents.size() > maxRecentEvents) {
+                recentEvents.removeFirst();
+            }
+        }
+
+        for (Consumer<GcEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    /**
+     * @return up to {@code limit} most recent events, oldest first
+     * @throws IllegalArgumentException if limit is negative
+     */
+    public List<GcEvent> recentEvents(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        synchronized (recentEvents) {
+            List<GcEvent> events = new ArrayList<>(recentEvents);
+            return events.subList(Math.max(0, events.size() - limit), events.size());
+        }
+    }
+
+    public List<DurationSummary> durationSummaries() {
+        List<DurationSummary> summaries = new ArrayList<>();
+        for (Timer timer : durationTimers.values()) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            Map<String, Double> percentiles = new LinkedHashMap<>();
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                String name = BigDecimal.valueOf(value.percentile()).movePointRight(2).stripTrailingZeros().toPlainString();
+                percentiles.put("p" + name, value.value(TimeUnit.MILLISECONDS));
+            }
+            summaries.add(new DurationSummary(
+                timer.getId().getTag("gc"),
+                timer.getId().getTag("cause"),
+                timer.getId().getTag("kind"),
+                snapshot.count(),
+                snapshot.total(TimeUnit.MILLISECONDS),
+                snapshot.max(TimeUnit.MILLISECONDS),
+                percentiles
+            ));
+        }
+        return summaries;
+    }
+
+    /**
+     * Registers a listener called (on the JMX notification thread) for every new event.
+     */
+    public void addListener(Consumer<GcEvent> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<GcEvent> listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,337 @@
+package com.example.gcdemo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Live JFR analysis with jdk.jfr.consumer.RecordingStream.
+ *
+ * Instead of dumping a .jfr file and opening it in JMC afterwards, the app
+ * streams its own GC, pause, allocation-sample, safepoint, reference-processing and
+ * collector-specific events (ZGC allocation stalls, Gen ZGC young/old collections, G1 collections),
+ * publishes them as gc.demo.jfr.* meters and aggregates them into rolling windows.
+ */
+@Service
+public class JfrStreamingService {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrStreamingService.class);
+
+    private static final int MAX_WINDOWS = 60;
+    private static final Pattern REFERENCE_PHASE =
+            Pattern.compile("Reference|Non-Strong|Weak Processing|finalizable", Pattern.CASE_INSENSITIVE);
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final Duration windowLength;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> referenceCounters = new ConcurrentHashMap<>();
+    private final Counter sampledAllocationBytes;
+    private final Timer safepointTimer;
+    private final Timer safepointSyncTimer;
+    // Start of each safepoint by safepointId until its jdk.SafepointEnd; only touched by the stream thread
+    private final NavigableMap<Long, Instant> safepointStarts = new TreeMap<>();
+
+    // Accumulators of the window in progress
+    private final DoubleAdder windowAllocatedBytes = new DoubleAdder();
+    private final DoubleAdder windowPauseMs = new DoubleAdder();
+    private final DoubleAdder windowSafepointMs = new DoubleAdder();
+    private final DoubleAdder windowStallMs = new DoubleAdder();
+    private final LongAdder windowPauses = new LongAdder();
+    private final LongAdder windowStalls = new LongAdder();
+    private long windowStartNanos = System.nanoTime();
+
+    private final Deque<Window> windows = new ArrayDeque<>();
+    private final List<Consumer<GcInterval>> intervalListeners = new CopyOnWriteArrayList<>();
+    private volatile Window lastWindow = Window.EMPTY;
+    private RecordingStream stream;
+
+    public JfrStreamingService(MeterRegistry registry,
+                               @Value("${gcdemo.jfr.enabled:true}") boolean enabled,
+                               @Value("${gcdemo.jfr.window-seconds:10}") int windowSeconds) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.windowLength = Duration.ofSeconds(windowSeconds);
+
+        this.sampledAllocationBytes = Counter.builder("gc.demo.jfr.allocation.sampled.bytes")
+                .description("Allocated bytes estimated from jdk.ObjectAllocationSample weights")
+                .baseUnit("bytes")
+                .register(registry);
+
+        this.safepointTimer = Timer.builder("gc.demo.jfr.safepoint")
+                .description("Safepoint duration, from jdk.SafepointBegin to the matching jdk.SafepointEnd")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+
+        this.safepointSyncTimer = Timer.builder("gc.demo.jfr.safepoint.sync")
+                .description("Time to safepoint: until all threads reached the safepoint (jdk.SafepointBegin duration)")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+
+        Gauge.builder("gc.demo.jfr.window.allocation.rate", this, s -> s.lastWindow.allocationBytesPerSecond())
+                .description("Allocation rate over the last JFR window")
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("gc.demo.jfr.window.pause.ratio", this, s -> s.lastWindow.pauseRatio())
+                .description("Fraction of the last JFR window spent in GC pauses")
+                .register(registry);
+
+        Gauge.builder("gc.demo.jfr.window.safepoint.ratio", this, s -> s.lastWindow.safepointRatio())
+                .description("Fraction of the last JFR window spent in safepoints")
+                .register(registry);
+
+        Gauge.builder("gc.demo.jfr.window.stalls", this, s -> s.lastWindow.stalls())
+                .description("Allocation stalls in the last JFR window")
+                .register(registry);
+    }
+
+    /**
+     * Aggregates of one rolling window.
+     */
+    public record Window(long endEpochMs, double seconds, double allocatedBytes, long pauses, double pauseMs,
+                         double safepointMs, long stalls, double stallMs) {
+
+        static final Window EMPTY = new Window(0, 0, 0, 0, 0, 0, 0, 0);
+
+        public double allocationBytesPerSecond() {
+            return seconds == 0 ? 0 : allocatedBytes / seconds;
+        }
+
+        public double pauseRatio() {
+            return seconds == 0 ? 0 : pauseMs / (seconds * 1000);
+        }
+
+        public double safepointRatio() {
+            return seconds == 0 ? 0 : safepointMs / (seconds * 1000);
+        }
+    }
+
+    /**
+     * A GC pause or allocation stall with its exact start and duration.
+     *
+     * @param kind     PAUSE (stops every Java thread) or STALL (stops only the allocating thread)
+     * @param threadId Java thread id of the stalled thread, -1 for pauses
+     */
+    public record GcInterval(String kind, String name, Instant start, Duration duration, long threadId) {}
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        stream = new RecordingStream();
+        stream.enable("jdk.GarbageCollection");
+        stream.enable("jdk.GCPhasePause");
+        stream.enable("jdk.ObjectAllocationSample").with("throttle", "150/s");
+        stream.enable("jdk.SafepointBegin").withoutThreshold();
+        stream.enable("jdk.SafepointEnd").withoutThreshold();
+        stream.enable("jdk.ZAllocationStall");
+        stream.enable("jdk.ZYoungGarbageCollection");
+        stream.enable("jdk.ZOldGarbageCollection");
+        stream.enable("jdk.G1GarbageCollection");
+        stream.enable("jdk.GCReferenceStatistics");
+        stream.enable("jdk.GCPhasePauseLevel1");
+        stream.enable("jdk.GCPhasePauseLevel2");
+        stream.enable("jdk.GCPhaseConcurrent");
+        stream.enable("jdk.GCPhaseConcurrentLevel1");
+        stream.setMaxAge(Duration.ofMinutes(1));
+
+        stream.onEvent("jdk.GarbageCollection", this::onGarbageCollection);
+        stream.onEvent("jdk.GCPhasePause", this::onPause);
+        stream.onEvent("jdk.ObjectAllocationSample", this::onAllocationSample);
+        stream.onEvent("jdk.SafepointBegin", this::onSafepointBegin);
+        stream.onEvent("jdk.SafepointEnd", this::onSafepointEnd);
+        stream.onEvent("jdk.ZAllocationStall", this::onAllocationStall);
+        stream.onEvent("jdk.ZYoungGarbageCollection", event -> record("gc.demo.jfr.zgc.collection", "generation", "young", event));
+        stream.onEvent("jdk.ZOldGarbageCollection", event -> record("gc.demo.jfr.zgc.collection", "generation", "old", event));
+        stream.onEvent("jdk.G1GarbageCollection", event -> record("gc.demo.jfr.g1.collection", "type", event.getString("type"), event));
+        stream.onEvent("jdk.GCReferenceStatistics", this::onReferenceStatistics);
+        for (String phaseEvent : List.of("jdk.GCPhasePauseLevel1", "jdk.GCPhasePauseLevel2",
+                                          "jdk.GCPhaseConcurrent", "jdk.GCPhaseConcurrentLevel1")) {
+            stream.onEvent(phaseEvent, this::onReferencePhase);
+        }
+        stream.onFlush(this::rollWindowIfDue);
+
+        stream.startAsync();
+        log.info("JFR event streaming started ({}s windows)", windowLength.toSeconds());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onGarbageCollection(RecordedEvent event) {
+        record("gc.demo.jfr.gc.duration", "name", event.getString("name"), event);
+        timer("gc.demo.jfr.gc.longest.pause", "name", event.getString("name"))
+                .record(event.getDuration("longestPause"));
+    }
+
+    private void onPause(RecordedEvent event) {
+        record("gc.demo.jfr.gc.pause", "name", event.getString("name"), event);
+        windowPauses.increment();
+        windowPauseMs.add(millis(event.getDuration()));
+        notifyListeners(new GcInterval("PAUSE", event.getString("name"), event.getStartTime(), event.getDuration(), -1));
+    }
+
+    private void onAllocationSample(RecordedEvent event) {
+        long weight = event.getLong("weight");
+        sampledAllocationBytes.increment(weight);
+        windowAllocatedBytes.add(weight);
+    }
+
+    private void onSafepointBegin(RecordedEvent event) {
+        safepointSyncTimer.record(event.getDuration());
+        safepointStarts.put(event.getLong("safepointId"), event.getStartTime());
+    }
+
+    /**
+     * jdk.SafepointBegin only lasts until the threads are stopped, so the whole
+     * safepoint runs from its start to the end of the matching jdk.SafepointEnd.
+     */
+    private void onSafepointEnd(RecordedEvent event) {
+        long id = event.getLong("safepointId");
+        Instant start = safepointStarts.get(id);
+        // Drops this one and any Begin whose End was lost
+        safepointStarts.headMap(id, true).clear();
+        if (start == null) {
+            return;
+        }
+        Duration duration = Duration.between(start, event.getEndTime());
+        safepointTimer.record(duration);
+        windowSafepointMs.add(millis(duration));
+    }
+
+    private void onAllocationStall(RecordedEvent event) {
+        record("gc.demo.jfr.allocation.stall", "type", event.getString("type"), event);
+        windowStalls.increment();
+        windowStallMs.add(millis(event.getDuration()));
+        RecordedThread thread = event.getThread();
+        notifyListeners(new GcInterval("STALL", event.getString("type"), event.getStartTime(), event.getDuration(),
+                thread == null ? -1 : thread.getJavaThreadId()));
+    }
+
+    private void notifyListeners(GcInterval interval) {
+        for (Consumer<GcInterval> listener : intervalListeners) {
+            listener.accept(interval);
+        }
+    }
+
+    private void onReferenceStatistics(RecordedEvent event) {
+        String type = event.getString("type");
+        referenceCounters.computeIfAbsent(type == null ? "unknown" : type, t -> Counter.builder("gc.demo.jfr.references")
+                .description("References discovered by the collector, by type")
+                .tag("type", t)
+                .register(registry))
+            .increment(event.getLong("count"));
+    }
+
+    /**
+     * Reference processing phases: pause sub-phases on G1, Parallel and Serial
+     * ("Notify Soft/WeakReferences", "Reference Processing"), concurrent phases
+     * on ZGC ("Concurrent Process Non-Strong References", "Concurrent References Process").
+     */
+    private void onReferencePhase(RecordedEvent event) {
+        String name = event.getString("name");
+        if (name != null && REFERENCE_PHASE.matcher(name).find()) {
+            record("gc.demo.jfr.reference.processing", "phase", name, event);
+        }
+    }
+
+    private void record(String name, String tagKey, String tagValue, RecordedEvent event) {
+        timer(name, tagKey, tagValue).record(event.getDuration());
+    }
+
+    private Timer timer(String name, String tagKey, String tagValue) {
+        String value = tagValue == null ? "unknown" : tagValue;
+        return timers.computeIfAbsent(name + "|" + value, k -> Timer.builder(name)
+                .description("Duration of JFR " + name.substring("gc.demo.jfr.".length()) + " events")
+                .tag(tagKey, value)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry));
+    }
+
+    private void rollWindowIfDue() {
+        long now = System.nanoTime();
+        long elapsed = now - windowStartNanos;
+        if (elapsed < windowLength.toNanos()) {
+            return;
+        }
+
+        Window window = new Window(
+            System.currentTimeMillis(),
+            elapsed / 1_000_000_000.0,
+            windowAllocatedBytes.sumThenReset(),
+            windowPauses.sumThenReset(),
+            windowPauseMs.sumThenReset(),
+            windowSafepointMs.sumThenReset(),
+            windowStalls.sumThenReset(),
+            windowStallMs.sumThenReset()
+        );
+        windowStartNanos = now;
+        lastWindow = window;
+
+        synchronized (windows) {
+            windows.addLast(window);
+            while (windows.size() > MAX_WINDOWS) {
+                windows.removeFirst();
+            }
+        }
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1_000_000.0;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Registers a listener called (on the JFR streaming thread, about once a second)
+     * for every pause and allocation stall.
+     */
+    public void addIntervalListener(Consumer<GcInterval> listener) {
+        intervalListeners.add(listener);
+    }
+
+    /**
+     * @return completed windows, oldest first
+     */
+    public List<Window> windows() {
+        synchronized (windows) {
+            return new ArrayList<>(windows);
+        }
+    }
+}
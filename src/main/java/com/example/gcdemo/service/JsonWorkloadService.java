@@ -0,0 +1,457 @@
+package com.example.gcdemo.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Request processing as most REST services do it: parse a JSON body, transform
+ * it, serialize the result.
+ *
+ * Documents are synthetic orders (customer, items with nested components down
+ * to {@code depth} levels, internal bookkeeping), generated deterministically and
+ * cached per size and depth so generating them does not count. Every mode applies
+ * the same transformation - drop "internal", upper-case "name", turn "price" into
+ * "grossPrice" (with tax) and append the order total and item count - and writes
+ * byte-identical output, so the checksum proves they did the same work:
+ *
+ * TREE       readTree into JsonNodes, build a transformed tree, write it
+ * BINDING    bind to records, map to output records, write them
+ * STREAMING  one pass from JsonParser to JsonGenerator; nothing document-sized is kept
+ *
+ * Per mode: gc.demo.json.document (time per document), gc.demo.json.allocated (heap
+ * bytes allocated per document; not recorded on virtual threads) and gc.demo.json.bytes
+ * (direction=in|out).
+ */
+@Service
+public class JsonWorkloadService {
+
+    private static final int BYTES_PER_KB = 1024;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+    private static final int VARIANTS = 8;
+    private static final int MAX_CACHED_SHAPES = 16;
+    private static final int COMPONENTS_PER_ITEM = 2;
+    private static final int MAX_DEPTH = 8;
+    private static final double TAX = 1.2;
+    private static final String[] WORDS = {"alpha", "bravo", "delta", "echo", "kilo", "lima", "nova", "sierra"};
+
+    public enum ParseMode {
+        TREE,
+        BINDING,
+        STREAMING
+    }
+
+    private final ObjectMapper mapper;
+    private final JsonFactory factory;
+    private final AllocationAccountingService accounting;
+    private final Map<ParseMode, ModeMeters> meters = new EnumMap<>(ParseMode.class);
+    private final Map<String, byte[][]> documents = new ConcurrentHashMap<>();
+
+    public JsonWorkloadService(MeterRegistry registry, ObjectMapper mapper, AllocationAccountingService accounting) {
+        this.mapper = mapper;
+        this.factory = mapper.getFactory();
+        this.accounting = accounting;
+
+        for (ParseMode mode : ParseMode.values()) {
+            String tag = mode.name().toLowerCase();
+            meters.put(mode, new ModeMeters(
+                Timer.builder("gc.demo.json.document")
+                    .description("Time to parse, transform and serialize one document")
+                    .tag("mode", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry),
+                DistributionSummary.builder("gc.demo.json.allocated")
+                    .description("Heap bytes allocated per document")
+                    .baseUnit("bytes")
+                    .tag("mode", tag)
+                    .register(registry),
+                Counter.builder("gc.demo.json.bytes")
+                    .description("JSON bytes parsed (in) and written (out)")
+                    .baseUnit("bytes")
+                    .tag("mode", tag)
+                    .tag("direction", "in")
+                    .register(registry),
+                Counter.builder("gc.demo.json.bytes")
+                    .description("JSON bytes parsed (in) and written (out)")
+                    .baseUnit("bytes")
+                    .tag("mode", tag)
+                    .tag("direction", "out")
+                    .register(registry)));
+        }
+    }
+
+    private record ModeMeters(Timer document, DistributionSummary allocated, Counter in, Counter out) {}
+
+    // Input documents for BINDING
+    record Address(String street, String city, String zip, String country) {}
+
+    record Customer(long id, String name, String email, Address address) {}
+
+    record Item(String sku, String name, int quantity, double price, List<String> tags,
+                Map<String, String> attributes, Map<String, Object> internal, List<Item> components) {}
+
+    record Order(String id, String createdAt, Customer customer, List<Item> items, Map<String, Object> internal) {}
+
+    // Output documents for BINDING, in the same field order as the other modes write
+    record PricedItem(String sku, String name, int quantity, double grossPrice, List<String> tags,
+                      Map<String, String> attributes, List<PricedItem> components) {}
+
+    record PricedOrder(String id, String createdAt, Customer customer, List<PricedItem> items,
+                       double total, int itemCount) {}
+
+    /**
+     * @param allocatedBytes heap bytes allocated by the pipeline, -1 when the thread cannot be measured
+     * @param checksum       CRC32 over all output, the same for every mode
+     */
+    public record RunResult(ParseMode mode, int documents, long inputBytes, long outputBytes, long allocatedBytes,
+                            long checksum, long durationNanos) {
+
+        public double durationMs() {
+            return durationNanos / 1_000_000.0;
+        }
+
+        public double allocatedBytesPerInputByte() {
+            return allocatedBytes < 0 || inputBytes == 0 ? -1 : allocatedBytes / (double) inputBytes;
+        }
+    }
+
+    /**
+     * Order totals collected during a transformation, in document order.
+     */
+    private static final class Totals {
+        double total;
+        int items;
+
+        double price(double price, int quantity) {
+            double gross = Math.round(price * TAX * 100) / 100.0;
+            total += gross * quantity;
+            items++;
+            return gross;
+        }
+
+        double roundedTotal() {
+            return Math.round(total * 100) / 100.0;
+        }
+    }
+
+    /**
+     * Counts and checksums the output instead of keeping it, like a response stream.
+     */
+    private static final class ChecksumOutputStream extends OutputStream {
+        final CRC32 crc = new CRC32();
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            crc.update(b);
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            crc.update(b, off, len);
+            bytes += len;
+        }
+    }
+
+    /**
+     * Runs {@code count} documents of about {@code sizeKB} through the pipeline on the calling thread.
+     *
+     * @throws IllegalArgumentException if sizeKB or depth is out of range
+     */
+    public RunResult run(ParseMode mode, int count, int sizeKB, int depth) {
+        if (sizeKB < 1 || depth < 1 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Need sizeKB >= 1 and depth between 1 and " + MAX_DEPTH
+                + ", got sizeKB=" + sizeKB + " depth=" + depth);
+        }
+        byte[][] variants = documents(sizeKB, depth);
+        ModeMeters modeMeters = meters.get(mode);
+        ChecksumOutputStream out = new ChecksumOutputStream();
+        long start = System.nanoTime();
+
+        long[] totals = accounting.workload(() -> {
+            long inputBytes = 0;
+            long allocatedBytes = 0;
+            for (int i = 0; i < count; i++) {
+                byte[] document = variants[i % variants.length];
+                long outputBefore = out.bytes;
+                long allocatedBefore = accounting.currentThreadAllocatedBytes();
+                long documentStart = System.nanoTime();
+                try {
+                    switch (mode) {
+                        case TREE -> tree(document, out);
+                        case BINDING -> binding(document, out);
+                        case STREAMING -> streaming(document, out);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                modeMeters.document().record(System.nanoTime() - documentStart, TimeUnit.NANOSECONDS);
+                if (allocatedBefore >= 0 && allocatedBytes >= 0) {
+                    long allocated = accounting.currentThreadAllocatedBytes() - allocatedBefore;
+                    modeMeters.allocated().record(allocated);
+                    allocatedBytes += allocated;
+                } else {
+                    allocatedBytes = -1;
+                }
+                modeMeters.in().increment(document.length);
+                modeMeters.out().increment(out.bytes - outputBefore);
+                inputBytes += document.length;
+            }
+            return new long[]{inputBytes, allocatedBytes};
+        });
+
+        return new RunResult(mode, count, totals[0], out.bytes, totals[1], out.crc.getValue(),
+            System.nanoTime() - start);
+    }
+
+    private void tree(byte[] document, OutputStream out) throws IOException {
+        Totals totals = new Totals();
+        ObjectNode order = (ObjectNode) transform(mapper.readTree(document), totals);
+        order.put("total", totals.roundedTotal());
+        order.put("itemCount", totals.items);
+        mapper.writeValue(out, order);
+    }
+
+    /**
+     * A transformed copy of {@code node}; value nodes are immutable and shared.
+     */
+    private JsonNode transform(JsonNode node, Totals totals) {
+        if (node.isObject()) {
+            ObjectNode copy = mapper.createObjectNode();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode value = field.getValue();
+                switch (field.getKey()) {
+                    case "internal" -> { }
+                    case "name" -> copy.put("name", value.asText().toUpperCase());
+                    case "price" -> copy.put("grossPrice", totals.price(value.asDouble(), node.path("quantity").asInt()));
+                    default -> copy.set(field.getKey(), transform(value, totals));
+                }
+            }
+            return copy;
+        }
+        if (node.isArray()) {
+            ArrayNode copy = mapper.createArrayNode();
+            for (JsonNode element : node) {
+                copy.add(transform(element, totals));
+            }
+            return copy;
+        }
+        return node;
+    }
+
+    private void binding(byte[] document, OutputStream out) throws IOException {
+        Order order = mapper.readValue(document, Order.class);
+        Totals totals = new Totals();
+        Customer customer = order.customer();
+        List<PricedItem> items = price(order.items(), totals);
+        mapper.writeValue(out, new PricedOrder(order.id(), order.createdAt(),
+            new Customer(customer.id(), customer.name().toUpperCase(), customer.email(), customer.address()),
+            items, totals.roundedTotal(), totals.items));
+    }
+
+    private static List<PricedItem> price(List<Item> items, Totals totals) {
+        List<PricedItem> priced = new ArrayList<>(items.size());
+        for (Item item : items) {
+            double gross = totals.price(item.price(), item.quantity());
+            priced.add(new PricedItem(item.sku(), item.name().toUpperCase(), item.quantity(), gross, item.tags(),
+                item.attributes(), price(item.components(), totals)));
+        }
+        return priced;
+    }
+
+    /**
+     * Relies on "quantity" coming before "price" in every item, as generated.
+     */
+    private void streaming(byte[] document, OutputStream out) throws IOException {
+        Totals totals = new Totals();
+        int quantity = 0;
+        int depth = 0;
+        try (JsonParser parser = factory.createParser(document);
+             JsonGenerator generator = factory.createGenerator(out)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case START_OBJECT -> {
+                        generator.writeStartObject();
+                        depth++;
+                    }
+                    case END_OBJECT -> {
+                        if (--depth == 0) {
+                            generator.writeNumberField("total", totals.roundedTotal());
+                            generator.writeNumberField("itemCount", totals.items);
+                        }
+                        generator.writeEndObject();
+                    }
+                    case FIELD_NAME -> {
+                        String name = parser.currentName();
+                        switch (name) {
+                            case "internal" -> {
+                                parser.nextToken();
+                                parser.skipChildren();
+                            }
+                            case "name" -> {
+                                parser.nextToken();
+                                generator.writeStringField("name", parser.getText().toUpperCase());
+                            }
+                            case "quantity" -> {
+                                parser.nextToken();
+                                quantity = parser.getIntValue();
+                                generator.writeNumberField("quantity", quantity);
+                            }
+                            case "price" -> {
+                                parser.nextToken();
+                                generator.writeNumberField("grossPrice", totals.price(parser.getDoubleValue(), quantity));
+                            }
+                            default -> generator.writeFieldName(name);
+                        }
+                    }
+                    default -> generator.copyCurrentEvent(parser);
+                }
+            }
+        }
+    }
+
+    /**
+     * The cached variants of one document shape, generated on first use.
+     */
+    private byte[][] documents(int sizeKB, int depth) {
+        String key = sizeKB + "/" + depth;
+        byte[][] variants = documents.get(key);
+        if (variants != null) {
+            return variants;
+        }
+        if (documents.size() >= MAX_CACHED_SHAPES) {
+            documents.clear();
+        }
+        return documents.computeIfAbsent(key, k -> {
+            byte[][] generated = new byte[VARIANTS][];
+            for (int i = 0; i < VARIANTS; i++) {
+                generated[i] = generate(sizeKB * BYTES_PER_KB, depth, new SplittableRandom(k.hashCode() * 31L + i));
+            }
+            return generated;
+        });
+    }
+
+    /**
+     * An order with top-level items added until it is at least {@code targetBytes} long.
+     */
+    private byte[] generate(int targetBytes, int depth, SplittableRandom random) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(targetBytes + 4 * BYTES_PER_KB);
+        try (JsonGenerator generator = factory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", "order-" + random.nextInt(1_000_000));
+            generator.writeStringField("createdAt", "2025-01-" + (10 + random.nextInt(18)) + "T12:00:00Z");
+            generator.writeObjectFieldStart("customer");
+            generator.writeNumberField("id", random.nextInt(1_000_000));
+            generator.writeStringField("name", word(random) + " " + word(random));
+            generator.writeStringField("email", word(random) + "@example.com");
+            generator.writeObjectFieldStart("address");
+            generator.writeStringField("street", random.nextInt(1, 200) + " " + word(random) + " street");
+            generator.writeStringField("city", word(random));
+            generator.writeStringField("zip", String.valueOf(random.nextInt(10_000, 99_999)));
+            generator.writeStringField("country", "NL");
+            generator.writeEndObject();
+            generator.writeEndObject();
+
+            generator.writeArrayFieldStart("items");
+            do {
+                item(generator, depth, random);
+                generator.flush();
+            } while (buffer.size() < targetBytes);
+            generator.writeEndArray();
+
+            generator.writeObjectFieldStart("internal");
+            generator.writeStringField("trace", Long.toHexString(random.nextLong()));
+            generator.writeNumberField("shard", random.nextInt(64));
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void item(JsonGenerator generator, int depth, SplittableRandom random) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("sku", "SKU-" + random.nextInt(100_000));
+        generator.writeStringField("name", word(random) + " " + word(random));
+        generator.writeNumberField("quantity", random.nextInt(1, 10));
+        generator.writeNumberField("price", random.nextInt(100, 100_000) / 100.0);
+        generator.writeArrayFieldStart("tags");
+        for (int i = random.nextInt(1, 4); i > 0; i--) {
+            generator.writeString(word(random));
+        }
+        generator.writeEndArray();
+        generator.writeObjectFieldStart("attributes");
+        generator.writeStringField("color", word(random));
+        generator.writeStringField("size", String.valueOf(random.nextInt(30, 50)));
+        generator.writeStringField("material", word(random));
+        generator.writeEndObject();
+        generator.writeObjectFieldStart("internal");
+        generator.writeNumberField("cost", random.nextInt(50, 50_000) / 100.0);
+        generator.writeStringField("supplier", word(random));
+        generator.writeEndObject();
+        generator.writeArrayFieldStart("components");
+        if (depth > 1) {
+            for (int i = 0; i < COMPONENTS_PER_ITEM; i++) {
+                item(generator, depth - 1, random);
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    private static String word(SplittableRandom random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("cachedShapes", documents.keySet());
+        Map<String, Object> modes = new LinkedHashMap<>();
+        meters.forEach((mode, modeMeters) -> {
+            double inBytes = modeMeters.in().count();
+            double meanAllocated = modeMeters.allocated().mean();
+            long count = modeMeters.document().count();
+            Map<String, Object> modeStats = new LinkedHashMap<>();
+            modeStats.put("documents", count);
+            modeStats.put("inputMB", String.format("%.1f", inBytes / BYTES_PER_MB));
+            modeStats.put("outputMB", String.format("%.1f", modeMeters.out().count() / BYTES_PER_MB));
+            modeStats.put("meanDocumentMs", String.format("%.3f", modeMeters.document().mean(TimeUnit.MILLISECONDS)));
+            modeStats.put("meanAllocatedKB", String.format("%.1f", meanAllocated / BYTES_PER_KB));
+            modeStats.put("allocatedBytesPerInputByte", String.format("%.2f",
+                count == 0 || inBytes == 0 ? 0 : meanAllocated / (inBytes / count)));
+            modes.put(mode.name(), modeStats);
+        });
+        stats.put("modes", modes);
+        return stats;
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.gcdemo.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * Open-loop load driver.
+ *
+ * Operations are scheduled at a fixed target rate, independent of how long
+ * previous operations took: operation i is INTENDED to start at
+ * start + i / rate. N worker threads pick up operations in order and wait
+ * until their intended start time.
+ *
+ * When a GC pause stalls the workers, the schedule keeps ticking, so the
+ * operations queued behind the pause record the time they spent waiting.
+ * Latency measured from the intended start is corrected for coordinated
+ * omission; latency measured from the actual start is what a closed-loop
+ * client (or a Micrometer timer around the call) would see.
+ *
+ * An operation that throws is counted as an error and its slot is skipped. An
+ * Error (e.g. OutOfMemoryError) ends its worker; the run then stops and reports
+ * the failure.
+ */
+@Service
+public class LoadDriverService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadDriverService.class);
+
+    // Histograms track microseconds, up to one hour, 3 significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Timer correctedTimer;
+    private final Timer uncorrectedTimer;
+
+    public LoadDriverService(MeterRegistry registry) {
+        this.correctedTimer = Timer.builder("gc.demo.driver.latency")
+                .description("Open-loop operation latency (corrected: from intended start, uncorrected: from actual start)")
+                .tag("measure", "corrected")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+
+        this.uncorrectedTimer = Timer.builder("gc.demo.driver.latency")
+                .description("Open-loop operation latency (corrected: from intended start, uncorrected: from actual start)")
+                .tag("measure", "uncorrected")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+    }
+
+    /**
+     * @param targetRate      operations per second to schedule
+     * @param durationSeconds how long to keep scheduling
+     * @param workers         number of worker threads executing operations
+     */
+    public record LoadPlan(double targetRate, int durationSeconds, int workers) {
+        public LoadPlan {
+            if (targetRate <= 0) {
+                throw new IllegalArgumentException("targetRate must be positive: " + targetRate);
+            }
+            if (durationSeconds <= 0) {
+                throw new IllegalArgumentException("durationSeconds must be positive: " + durationSeconds);
+            }
+            if (workers < 1) {
+                throw new IllegalArgumentException("workers must be at least 1: " + workers);
+            }
+        }
+    }
+
+    /**
+     * Latency percentiles in milliseconds.
+     */
+    public record LatencySummary(long count, double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+
+        /**
+         * @param histogram values in microseconds
+         */
+        public static LatencySummary of(Histogram histogram) {
+            return new LatencySummary(
+                histogram.getTotalCount(),
+                histogram.getValueAtPercentile(50.0) / 1000.0,
+                histogram.getValueAtPercentile(99.0) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0
+            );
+        }
+    }
+
+    public record LoadReport(
+        LoadPlan plan,
+        long operations,
+        long errors,
+        long totalBytes,
+        long durationNanos,
+        LatencySummary corrected,
+        LatencySummary uncorrected,
+        LatencySummary scheduleLag
+    ) {
+        public double achievedRate() {
+            return durationNanos == 0 ? 0 : operations / (durationNanos / 1_000_000_000.0);
+        }
+
+        public double durationMs() {
+            return durationNanos / 1_000_000.0;
+        }
+
+        public double totalMB() {
+            return totalBytes / (double) (1024 * 1024);
+        }
+    }
+
+    /**
+     * Runs the plan to completion on the calling thread's behalf.
+     *
+     * @param plan      rate, duration and worker count
+     * @param operation one unit of work, returning the bytes it allocated
+     */
+    public LoadReport run(LoadPlan plan, LongSupplier operation) {
+        LoadRun run = start(plan, operation);
+        try {
+            run.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.stop();
+        }
+        return run.report();
+    }
+
+    /**
+     * Starts the plan on its own worker threads and returns immediately.
+     */
+    public LoadRun start(LoadPlan plan, LongSupplier operation) {
+        return start(plan, operation, correctedTimer, uncorrectedTimer);
+    }
+
+    /**
+     * Starts the plan, recording latencies into the given timers instead of gc.demo.driver.latency.
+     */
+    public LoadRun start(LoadPlan plan, LongSupplier operation, Timer correctedTimer, Timer uncorrectedTimer) {
+        LoadRun run = new LoadRun(plan, operation, correctedTimer, uncorrectedTimer);
+        run.start();
+        return run;
+    }
+
+    /**
+     * One execution of a load plan.
+     */
+    public static class LoadRun {
+
+        private final LoadPlan plan;
+        private final LongSupplier operation;
+        private final Timer correctedTimer;
+        private final Timer uncorrectedTimer;
+
+        private final Histogram corrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram uncorrected = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram scheduleLag = new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+        private final AtomicLong nextOperation = new AtomicLong(0);
+        private final AtomicLong completedOperations = new AtomicLong(0);
+        private final AtomicLong failedOperations = new AtomicLong(0);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong totalBytes = new AtomicLong(0);
+        private final AtomicInteger runningWorkers = new AtomicInteger(0);
+        private final List<Thread> workers = new ArrayList<>();
+
+        private final double intervalNanos;
+        private volatile long startNanos;
+        private volatile long endNanos;
+        private volatile long finishedNanos;
+        private volatile boolean stopped;
+
+        LoadRun(LoadPlan plan, LongSupplier operation, Timer correctedTimer, Timer uncorrectedTimer) {
+            this.plan = plan;
+            this.operation = operation;
+            this.correctedTimer = correctedTimer;
+            this.uncorrectedTimer = uncorrectedTimer;
+            this.intervalNanos = 1_000_000_000.0 / plan.targetRate();
+        }
+
+        void start() {
+            startNanos = System.nanoTime();
+            endNanos = startNanos + TimeUnit.SECONDS.toNanos(plan.durationSeconds());
+
+            runningWorkers.set(plan.workers());
+            for (int i = 0; i < plan.workers(); i++) {
+                workers.add(Thread.ofPlatform()
+                        .name("load-driver-" + i)
+                        .daemon(true)
+                        .start(this::runWorker));
+            }
+        }
+
+        private void runWorker() {
+            try {
+                workLoop();
+            } catch (Error e) {
+                log.error("Load driver worker {} died, stopping the run", Thread.currentThread().getName(), e);
+                failure.compareAndSet(null, e);
+                stop();
+            } finally {
+                // Last worker out stamps the end, so reports of a finished run stay fixed
+                if (runningWorkers.decrementAndGet() == 0) {
+                    finishedNanos = System.nanoTime();
+                }
+            }
+        }
+
+        private void workLoop() {
+            while (!stopped) {
+                long index = nextOperation.getAndIncrement();
+                long intendedStart = startNanos + (long) (index * intervalNanos);
+                if (intendedStart >= endNanos) {
+                    return;
+                }
+
+                // Wait for the slot; never skip it, however late we are
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                    if (stopped) {
+                        return;
+                    }
+                }
+
+                long actualStart = System.nanoTime();
+                long bytes;
+                try {
+                    bytes = operation.getAsLong();
+                } catch (RuntimeException e) {
+                    if (failedOperations.incrementAndGet() == 1) {
+                        log.warn("Load driver operation failed (further failures are only counted)", e);
+                    }
+                    continue;
+                }
+                long end = System.nanoTime();
+
+                record(corrected, end - intendedStart);
+                record(uncorrected, end - actualStart);
+                record(scheduleLag, actualStart - intendedStart);
+                correctedTimer.record(end - intendedStart, TimeUnit.NANOSECONDS);
+                uncorrectedTimer.record(end - actualStart, TimeUnit.NANOSECONDS);
+
+                totalBytes.addAndGet(bytes);
+                completedOperations.incrementAndGet();
+            }
+        }
+
+        private static void record(Histogram histogram, long nanos) {
+            long micros = Math.max(0, nanos / 1000);
+            histogram.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+        }
+
+        /**
+         * Blocks until every worker has finished.
+         */
+        public void await() throws InterruptedException {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+
+        /**
+         * Stops scheduling new operations; in-flight operations complete.
+         */
+        public void stop() {
+            stopped = true;
+            for (Thread worker : workers) {
+                LockSupport.unpark(worker);
+            }
+        }
+
+        public boolean isDone() {
+            return runningWorkers.get() == 0;
+        }
+
+        /**
+         * @return true if {@link #stop()} was called
+         */
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        /**
+         * @return the Error that ended a worker, or null if none did
+         */
+        public Throwable failure() {
+            return failure.get();
+        }
+
+        public LoadPlan plan() {
+            return plan;
+        }
+
+        Histogram correctedHistogram() {
+            return corrected;
+        }
+
+        /**
+         * Report of everything completed so far; final once {@link #await()} returns.
+         */
+        public LoadReport report() {
+            long finished = finishedNanos != 0 ? finishedNanos : System.nanoTime();
+            return new LoadReport(
+                plan,
+                completedOperations.get(),
+                failedOperations.get(),
+                totalBytes.get(),
+                finished - startNanos,
+                LatencySummary.of(corrected),
+                LatencySummary.of(uncorrected),
+                LatencySummary.of(scheduleLag)
+            );
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.LoadDriverService.LoadPlan;
+import com.example.gcdemo.service.LoadDriverService.LoadRun;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background load jobs.
+ *
+ * A job is an open-loop {@link LoadRun} on its own worker threads, so a soak
+ * test does not hold a Tomcat thread for its whole duration (and does not
+ * show up in http.server.requests). Jobs run concurrently, report progress
+ * while they run and can be stopped early. The last MAX_FINISHED_JOBS finished
+ * jobs are kept for inspection.
+ */
+@Service
+public class LoadJobService {
+
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    private final MemoryLoadService memoryLoadService;
+    private final EnhancedMemoryService enhancedMemoryService;
+    private final LoadDriverService loadDriver;
+
+    // Insertion order = submission order
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+    private final AtomicLong jobSequence = new AtomicLong(0);
+
+    public LoadJobService(MeterRegistry registry, MemoryLoadService memoryLoadService,
+                          EnhancedMemoryService enhancedMemoryService, LoadDriverService loadDriver) {
+        this.memoryLoadService = memoryLoadService;
+        this.enhancedMemoryService = enhancedMemoryService;
+        this.loadDriver = loadDriver;
+
+        Gauge.builder("gc.demo.jobs.running", this, s -> s.running())
+                .description("Background load jobs currently running")
+                .register(registry);
+    }
+
+    public enum JobType {
+        /** Discarded units at a fixed rate (like /api/memory/open-loop) */
+        SUSTAINED,
+        /** Mixed short-/long-lived requests at a fixed rate (like /api/enhanced/mixed) */
+        MIXED
+    }
+
+    public enum JobState {
+        RUNNING,
+        STOPPED,
+        COMPLETED,
+        /** A worker died (see {@link LoadRun#failure()}) and the run was stopped */
+        FAILED
+    }
+
+    /**
+     * @param description the workload parameters, for listings
+     */
+    public record Job(String id, JobType type, String description, long submittedEpochMs, LoadRun run) {
+
+        public JobState state() {
+            if (!run.isDone()) {
+                return JobState.RUNNING;
+            }
+            if (run.failure() != null) {
+                return JobState.FAILED;
+            }
+            return run.isStopped() ? JobState.STOPPED : JobState.COMPLETED;
+        }
+    }
+
+    /**
+     * Starts a job that allocates and discards {@code unitsPerOperation} units per operation.
+     */
+    public Job submitSustained(LoadPlan plan, int unitsPerOperation, AllocationProfile profile) {
+        String description = String.format("%d units/op, %s %s %dKB %s",
+            unitsPerOperation, profile.shape(), profile.distribution(), profile.sizeKB(), profile.fill());
+        return register(JobType.SUSTAINED, description,
+            memoryLoadService.startOpenLoopLoad(plan, unitsPerOperation, profile));
+    }
+
+    /**
+     * Starts a job where every operation is one mixed-workload request.
+     */
+    public Job submitMixed(LoadPlan plan, int shortLivedMB, int longLivedMB, AllocationProfile profile) {
+        String description = String.format("%dMB short-lived / %dMB long-lived per op, %s %s %dKB %s",
+            shortLivedMB, longLivedMB, profile.shape(), profile.distribution(), profile.sizeKB(), profile.fill());
+        return register(JobType.MIXED, description, loadDriver.start(plan, () ->
+            enhancedMemoryService.mixedWorkload(shortLivedMB, longLivedMB, profile, FanOut.INLINE).totalBytes()));
+    }
+
+    private Job register(JobType type, String description, LoadRun run) {
+        Job job = new Job("job-" + jobSequence.incrementAndGet(), type, description, System.currentTimeMillis(), run);
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+            pruneFinished();
+        }
+        return job;
+    }
+
+    private void pruneFinished() {
+        long finished = jobs.values().stream().filter(job -> job.run().isDone()).count();
+        Iterator<Job> iterator = jobs.values().iterator();
+        while (finished > MAX_FINISHED_JOBS && iterator.hasNext()) {
+            if (iterator.next().run().isDone()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    public Optional<Job> find(String id) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    /**
+     * @return all known jobs, oldest first
+     */
+    public List<Job> list() {
+        synchronized (jobs) {
+            return new ArrayList<>(jobs.values());
+        }
+    }
+
+    /**
+     * Stops scheduling new operations; in-flight operations complete.
+     *
+     * @return the job, or empty if the id is unknown
+     */
+    public Optional<Job> stop(String id) {
+        Optional<Job> job = find(id);
+        job.ifPresent(j -> j.run().stop());
+        return job;
+    }
+
+    private long running() {
+        return list().stream().filter(job -> !job.run().isDone()).count();
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        list().forEach(job -> job.run().stop());
+    }
+}
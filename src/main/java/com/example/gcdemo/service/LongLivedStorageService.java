@@ -0,0 +1,98 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.cache.OffHeapSlabStore;
+import com.example.gcdemo.cache.OffHeapSlabStore.OffHeapValue;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Where the long-lived set (enhanced cache entries, better survivors) lives.
+ *
+ * HEAP keeps the allocated unit itself, so the collector has to mark it on
+ * every old-generation cycle and may copy it during compaction.
+ * OFF_HEAP copies the unit's bytes into an {@link OffHeapSlabStore} and keeps
+ * only a small handle on the heap; the unit becomes young garbage right away.
+ *
+ * Selected per run with gcdemo.storage.long-lived (LONG_LIVED_STORAGE).
+ */
+@Service
+public class LongLivedStorageService {
+
+    private static final int BYTES_PER_KB = 1024;
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private final StorageMode mode;
+    private final OffHeapSlabStore offHeapStore;
+
+    public enum StorageMode {
+        HEAP,
+        OFF_HEAP
+    }
+
+    public LongLivedStorageService(MeterRegistry registry,
+                                   @Value("${gcdemo.storage.long-lived:HEAP}") StorageMode mode,
+                                   @Value("${gcdemo.storage.slab-mb:64}") int slabMB,
+                                   @Value("${gcdemo.storage.block-kb:64}") int blockKB) {
+        this.mode = mode;
+        // A slab is one direct ByteBuffer, so it has to stay below 2GiB
+        long slabBytes = (long) slabMB * BYTES_PER_MB;
+        long blockBytes = (long) blockKB * BYTES_PER_KB;
+        if (slabMB < 1 || slabBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "gcdemo.storage.slab-mb must be between 1 and " + Integer.MAX_VALUE / BYTES_PER_MB + ", got " + slabMB);
+        }
+        if (blockKB < 1 || blockBytes > slabBytes) {
+            throw new IllegalArgumentException(
+                "gcdemo.storage.block-kb must be between 1 and the slab size in KB, got " + blockKB);
+        }
+        this.offHeapStore = new OffHeapSlabStore((int) slabBytes, (int) blockBytes);
+
+        Gauge.builder("gc.demo.offheap.committed.bytes", offHeapStore, OffHeapSlabStore::committedBytes)
+                .description("Bytes reserved in off-heap slabs")
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("gc.demo.offheap.used.bytes", offHeapStore, OffHeapSlabStore::usedBytes)
+                .description("Off-heap bytes held by live long-lived values (whole blocks)")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * Returns what the cache or survivor ring should hold for this unit:
+     * the unit itself (HEAP) or a handle to an off-heap copy (OFF_HEAP).
+     * Units without a byte[] form are stored as {@code sizeBytes} of filler.
+     */
+    public Object retain(Object unit, int sizeBytes) {
+        if (mode == StorageMode.HEAP) {
+            return unit;
+        }
+        if (unit instanceof byte[] bytes) {
+            return offHeapStore.store(bytes);
+        }
+        return offHeapStore.store(sizeBytes, (byte) sizeBytes);
+    }
+
+    /**
+     * Frees a value previously returned by {@link #retain}; heap values are left to the GC.
+     */
+    public void release(Object value) {
+        if (value instanceof OffHeapValue offHeapValue) {
+            offHeapStore.release(offHeapValue);
+        }
+    }
+
+    public StorageMode mode() {
+        return mode;
+    }
+
+    public long committedBytes() {
+        return offHeapStore.committedBytes();
+    }
+
+    public long usedBytes() {
+        return offHeapStore.usedBytes();
+    }
+}
@@ -1,23 +1,32 @@
 package com.example.gcdemo.service;
 
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.LoadDriverService.LoadPlan;
+import com.example.gcdemo.service.LoadDriverService.LoadReport;
+import com.example.gcdemo.service.LoadDriverService.LoadRun;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 public class MemoryLoadService {
 
     private final Timer allocationTimer;
+    private final AllocationProfileService profiles;
+    private final LoadDriverService loadDriver;
+    private final WorkloadExecutorService executor;
     
-    // Size of each allocated object (10 MB)
-    private static final int OBJECT_SIZE_MB = 10;
     private static final int BYTES_PER_MB = 1024 * 1024;
     
-    public MemoryLoadService(MeterRegistry registry) {
+    public MemoryLoadService(MeterRegistry registry, AllocationProfileService profiles, LoadDriverService loadDriver,
+                             WorkloadExecutorService executor) {
+        this.profiles = profiles;
+        this.loadDriver = loadDriver;
+        this.executor = executor;
         // Custom timer to track allocation duration
         this.allocationTimer = Timer.builder("gc.demo.allocation.time")
                 .description("Time spent allocating objects")
@@ -33,26 +42,48 @@ public class MemoryLoadService {
      * @return info about what was allocated
      */
     public AllocationResult allocateAndDiscard(int count) {
+        return allocateAndDiscard(count, AllocationProfile.DEFAULT);
+    }
+    
+    /**
+     * Allocates count units shaped and sized by the given profile.
+     * 
+     * @param count number of units to allocate
+     * @param profile size distribution and object shape of each unit
+     * @return info about what was allocated
+     */
+    public AllocationResult allocateAndDiscard(int count, AllocationProfile profile) {
+        return allocateAndDiscard(count, profile, FanOut.INLINE);
+    }
+    
+    /**
+     * Burst allocation split across concurrent tasks (platform, virtual or fork-join threads).
+     * Each task allocates its share of the units.
+     */
+    public AllocationResult allocateAndDiscard(int count, AllocationProfile profile, FanOut fanOut) {
         long startTime = System.nanoTime();
-        long totalBytes = 0;
-        
-        // Allocate objects - they'll become garbage after this method
-        List<byte[]> tempObjects = new ArrayList<>();
+        int tasks = fanOut.tasks();
         
-        for (int i = 0; i < count; i++) {
-            byte[] chunk = new byte[OBJECT_SIZE_MB * BYTES_PER_MB];
-            // Fill with random data to prevent JVM optimizations
-            ThreadLocalRandom.current().nextBytes(chunk);
-            tempObjects.add(chunk);
-            totalBytes += chunk.length;
-        }
+        // Allocate objects - they'll become garbage after each task
+        List<Long> taskBytes = executor.fanOut("load", fanOut, task -> {
+            int units = count / tasks + (task < count % tasks ? 1 : 0);
+            List<Object> tempObjects = new ArrayList<>();
+            long bytes = 0;
+            for (int i = 0; i < units; i++) {
+                int sizeBytes = profiles.sampleSizeBytes(profile);
+                profiles.allocateShortLived(profile, sizeBytes, tempObjects);
+                bytes += sizeBytes;
+            }
+            return bytes;
+        });
+        long totalBytes = taskBytes.stream().mapToLong(Long::longValue).sum();
         
         long durationNanos = System.nanoTime() - startTime;
         
         // Record to Micrometer
         allocationTimer.record(durationNanos, java.util.concurrent.TimeUnit.NANOSECONDS);
         
-        // Objects in tempObjects become garbage when method returns
+        // Objects in tempObjects are already garbage
         return new AllocationResult(count, totalBytes, durationNanos);
     }
     
@@ -65,29 +96,60 @@ public class MemoryLoadService {
      * @return summary of allocations
      */
     public AllocationResult sustainedLoad(int durationSeconds, int objectsPerSecond) {
-        long startTime = System.currentTimeMillis();
-        long endTime = startTime + (durationSeconds * 1000L);
-        long totalBytes = 0;
-        int totalObjects = 0;
-        
-        long intervalMs = 1000 / objectsPerSecond;
+        return sustainedLoad(durationSeconds, objectsPerSecond, AllocationProfile.DEFAULT);
+    }
+    
+    public AllocationResult sustainedLoad(int durationSeconds, int objectsPerSecond, AllocationProfile profile) {
+        return sustainedLoad(new LoadPlan(objectsPerSecond, durationSeconds, 1), profile);
+    }
+    
+    /**
+     * @param plan units per second, duration and workers; one unit per operation
+     */
+    public AllocationResult sustainedLoad(LoadPlan plan, AllocationProfile profile) {
+        // Schedule against absolute deadlines (open loop) so the
+        // requested rate is actually held, including rates above 1000/s
+        LoadReport report = loadDriver.run(plan, () -> allocateUnit(profile));
         
-        while (System.currentTimeMillis() < endTime) {
-            byte[] chunk = new byte[OBJECT_SIZE_MB * BYTES_PER_MB];
-            ThreadLocalRandom.current().nextBytes(chunk);
-            totalBytes += chunk.length;
-            totalObjects++;
-            
-            try {
-                Thread.sleep(intervalMs);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            }
+        return new AllocationResult((int) report.operations(), report.totalBytes(), report.durationNanos());
+    }
+    
+    /**
+     * Open-loop load: schedules operations at a fixed target rate across
+     * several worker threads and reports coordinated-omission-corrected latency.
+     * 
+     * @param plan target rate, duration and worker count
+     * @param unitsPerOperation units allocated (and discarded) by each operation
+     * @param profile size distribution and object shape of each unit
+     * @return rate achieved and corrected/uncorrected latency percentiles
+     */
+    public LoadReport openLoopLoad(LoadPlan plan, int unitsPerOperation, AllocationProfile profile) {
+        return loadDriver.run(plan, () -> allocateUnits(unitsPerOperation, profile));
+    }
+    
+    /**
+     * Same as {@link #openLoopLoad} but returns immediately; the caller polls
+     * {@link LoadRun#report()} for progress and may stop the run early.
+     */
+    public LoadRun startOpenLoopLoad(LoadPlan plan, int unitsPerOperation, AllocationProfile profile) {
+        return loadDriver.start(plan, () -> allocateUnits(unitsPerOperation, profile));
+    }
+    
+    private long allocateUnits(int units, AllocationProfile profile) {
+        List<Object> tempObjects = new ArrayList<>(units);
+        long bytes = 0;
+        for (int i = 0; i < units; i++) {
+            int sizeBytes = profiles.sampleSizeBytes(profile);
+            profiles.allocateShortLived(profile, sizeBytes, tempObjects);
+            bytes += sizeBytes;
         }
-        
-        long durationNanos = (System.currentTimeMillis() - startTime) * 1_000_000L;
-        return new AllocationResult(totalObjects, totalBytes, durationNanos);
+        return bytes;
+    }
+    
+    private long allocateUnit(AllocationProfile profile) {
+        int sizeBytes = profiles.sampleSizeBytes(profile);
+        profiles.allocateShortLived(profile, sizeBytes, new ArrayList<>(1));
+        return sizeBytes;
     }
     
     public record AllocationResult(int objectCount, long totalBytes, long durationNanos) {
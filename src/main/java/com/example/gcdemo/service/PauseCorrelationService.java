@@ -0,0 +1,446 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.service.GcEventService.GcEvent;
+import com.example.gcdemo.service.JfrStreamingService.GcInterval;
+import com.example.gcdemo.service.WorkloadExecutorService.TaskRun;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Attributes request latency to the collector.
+ *
+ * Every /api request is timestamped by a filter and, once the GC events covering
+ * it have arrived, overlapped with the recorded GC intervals:
+ * - a pause stops every Java thread, so it counts for every request it overlaps
+ * - an allocation stall stops one thread, so it only counts for the request on that thread,
+ *   or for the request whose fan-out task was running on it at the time
+ * A request slower than the recent p99 of its endpoint is an outlier; it is
+ * GC-coincident when any pause or stall overlapped it. Requests are keyed by
+ * HTTP method and URI pattern.
+ *
+ * Intervals come from JFR (jdk.GCPhasePause, jdk.ZAllocationStall; nanosecond
+ * timestamps) while JFR streaming is enabled, otherwise from the JMX notifications
+ * of GcEventService (pauses only, millisecond resolution). JFR delivers events
+ * about once a second, so a request is evaluated settle-ms after it finished.
+ */
+@Service
+public class PauseCorrelationService {
+
+    private static final int MAX_PENDING = 100_000;
+    private static final int RECENT_OUTLIERS = 20;
+    private static final long MICROS_PER_MS = 1000;
+
+    private final MeterRegistry registry;
+    private final GcEventService gcEvents;
+    private final JfrStreamingService jfr;
+    private final WorkloadExecutorService executor;
+    private final boolean enabled;
+    private final long settleMicros;
+    private final long retentionMicros;
+    private final int minSamples;
+
+    private final Deque<Interval> intervals = new ArrayDeque<>();
+    private final Queue<RequestSpan> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    // Fan-out tasks of the requests in progress, by request thread id
+    private final Map<Long, Queue<TaskSpan>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final Deque<Outlier> recentOutliers = new ArrayDeque<>();
+    private final ScheduledExecutorService evaluator = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("pause-correlation").daemon(true).factory());
+
+    // Totals since startup, for /api/gc/correlation
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder outliers = new LongAdder();
+    private final LongAdder gcOutliers = new LongAdder();
+    private final DoubleAdder requestMs = new DoubleAdder();
+    private final DoubleAdder pauseMs = new DoubleAdder();
+    private final DoubleAdder stallMs = new DoubleAdder();
+    private final Counter dropped;
+    private volatile String source = "none";
+
+    public PauseCorrelationService(MeterRegistry registry, GcEventService gcEvents, JfrStreamingService jfr,
+                                   WorkloadExecutorService executor,
+                                   @Value("${gcdemo.pause-correlation.enabled:true}") boolean enabled,
+                                   @Value("${gcdemo.pause-correlation.settle-ms:2000}") long settleMs,
+                                   @Value("${gcdemo.pause-correlation.retention-seconds:600}") long retentionSeconds,
+                                   @Value("${gcdemo.pause-correlation.min-samples:100}") int minSamples) {
+        this.registry = registry;
+        this.gcEvents = gcEvents;
+        this.jfr = jfr;
+        this.executor = executor;
+        this.enabled = enabled;
+        this.settleMicros = settleMs * MICROS_PER_MS;
+        this.retentionMicros = retentionSeconds * 1_000_000;
+        this.minSamples = minSamples;
+
+        this.dropped = Counter.builder("gc.demo.request.correlation.dropped")
+                .description("Finished requests not correlated because too many were waiting")
+                .register(registry);
+
+        Gauge.builder("gc.demo.request.outlier.gc.ratio", this, s -> s.ratio(s.gcOutliers.sum(), s.outliers.sum()))
+                .description("Share of p99 outlier requests that overlapped a GC pause or stall, since startup")
+                .register(registry);
+    }
+
+    /**
+     * A GC interval on the request timeline.
+     *
+     * @param threadId the only thread it stopped, -1 when it stopped all of them
+     */
+    private record Interval(boolean stall, long startMicros, long endMicros, long threadId) {}
+
+    /**
+     * A fan-out task of a request, on the thread it ran on.
+     */
+    private record TaskSpan(long threadId, long startMicros, long endMicros) {}
+
+    private record RequestSpan(String method, String uri, long startMicros, long durationNanos, long threadId,
+                               List<TaskSpan> tasks) {
+        String key() {
+            return method + " " + uri;
+        }
+
+        long endMicros() {
+            return startMicros + durationNanos / 1000;
+        }
+    }
+
+    /**
+     * @param latency its p99 (over Micrometer's rolling two minutes) is the outlier threshold
+     */
+    private record Endpoint(Timer latency, Timer pauseOverlap, Timer stallOverlap, Counter gcOutliers,
+                            Counter otherOutliers) {}
+
+    /**
+     * An outlier request and the GC time inside it.
+     */
+    public record Outlier(String method, String uri, Instant start, double durationMs, double thresholdMs,
+                          double pauseMs, double stallMs) {}
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (jfr.isEnabled()) {
+            source = "jfr";
+            jfr.addIntervalListener(this::onInterval);
+        } else {
+            source = "jmx";
+            gcEvents.addListener(this::onGcEvent);
+        }
+        executor.addTaskListener(this::onTask);
+        evaluator.scheduleWithFixedDelay(this::evaluate, 500, 500, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        evaluator.shutdownNow();
+    }
+
+    private void onInterval(GcInterval interval) {
+        long start = epochMicros(interval.start());
+        add(new Interval("STALL".equals(interval.kind()), start,
+                start + interval.duration().toNanos() / 1000, interval.threadId()));
+    }
+
+    private void onGcEvent(GcEvent event) {
+        if ("PAUSE".equals(event.kind())) {
+            add(new Interval(false, event.startEpochMs() * MICROS_PER_MS, event.endEpochMs() * MICROS_PER_MS, -1));
+        }
+    }
+
+    private void onTask(TaskRun run) {
+        Queue<TaskSpan> tasks = inFlight.get(run.requestThreadId());
+        if (tasks != null) {
+            tasks.add(new TaskSpan(run.threadId(), epochMicros(run.start()), epochMicros(run.end())));
+        }
+    }
+
+    private void add(Interval interval) {
+        synchronized (intervals) {
+            intervals.addLast(interval);
+        }
+    }
+
+    /**
+     * Called by the request filter when a request starts on this thread, to collect its fan-out tasks.
+     */
+    public void begin() {
+        if (enabled) {
+            inFlight.put(Thread.currentThread().threadId(), new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * Called by the request filter when a request finished on this thread.
+     *
+     * @param start when the request arrived
+     */
+    public void record(String method, String uri, Instant start, long durationNanos) {
+        Queue<TaskSpan> tasks = inFlight.remove(Thread.currentThread().threadId());
+        if (!enabled) {
+            return;
+        }
+        if (pendingCount.incrementAndGet() > MAX_PENDING) {
+            pendingCount.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        pending.add(new RequestSpan(method, uri, epochMicros(start), durationNanos, Thread.currentThread().threadId(),
+                tasks == null ? List.of() : List.copyOf(tasks)));
+    }
+
+    private void evaluate() {
+        long settled = epochMicros(Instant.now()) - settleMicros;
+        List<RequestSpan> ready = new ArrayList<>();
+        RequestSpan span;
+        while ((span = pending.peek()) != null && span.endMicros() <= settled) {
+            pending.poll();
+            pendingCount.decrementAndGet();
+            ready.add(span);
+        }
+
+        Interval[] snapshot;
+        synchronized (intervals) {
+            while (!intervals.isEmpty() && intervals.peekFirst().endMicros() < settled - retentionMicros) {
+                intervals.removeFirst();
+            }
+            snapshot = intervals.toArray(new Interval[0]);
+        }
+        if (ready.isEmpty()) {
+            return;
+        }
+        // JFR hands events over per thread buffer, so they can arrive slightly out of order
+        Arrays.sort(snapshot, Comparator.comparingLong(Interval::startMicros));
+        long longest = 0;
+        for (Interval interval : snapshot) {
+            longest = Math.max(longest, interval.endMicros() - interval.startMicros());
+        }
+
+        // Thresholds from before this batch, so a burst of slow requests does not hide itself
+        Map<String, Double> thresholds = new HashMap<>();
+        for (RequestSpan request : ready) {
+            Endpoint endpoint = endpoint(request.method(), request.uri());
+            double thresholdMs = thresholds.computeIfAbsent(request.key(), key -> threshold(endpoint));
+            long[] overlap = overlap(snapshot, longest, request);
+            double durationMs = request.durationNanos() / 1_000_000.0;
+            double requestPauseMs = overlap[0] / (double) MICROS_PER_MS;
+            double requestStallMs = overlap[1] / (double) MICROS_PER_MS;
+
+            endpoint.latency().record(request.durationNanos(), TimeUnit.NANOSECONDS);
+            endpoint.pauseOverlap().record(overlap[0], TimeUnit.MICROSECONDS);
+            endpoint.stallOverlap().record(overlap[1], TimeUnit.MICROSECONDS);
+            requests.increment();
+            requestMs.add(durationMs);
+            pauseMs.add(requestPauseMs);
+            stallMs.add(requestStallMs);
+
+            if (thresholdMs > 0 && durationMs > thresholdMs) {
+                boolean gc = overlap[0] + overlap[1] > 0;
+                outliers.increment();
+                if (gc) {
+                    gcOutliers.increment();
+                    endpoint.gcOutliers().increment();
+                } else {
+                    endpoint.otherOutliers().increment();
+                }
+                synchronized (recentOutliers) {
+                    recentOutliers.addLast(new Outlier(request.method(), request.uri(),
+                            Instant.ofEpochSecond(0, request.startMicros() * 1000), durationMs, thresholdMs,
+                            requestPauseMs, requestStallMs));
+                    while (recentOutliers.size() > RECENT_OUTLIERS) {
+                        recentOutliers.removeFirst();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return microseconds of the request inside pauses and inside stalls of its own thread
+     *         or of its fan-out tasks. Tasks stalled at the same time count once, so neither
+     *         part exceeds the request's duration
+     */
+    private static long[] overlap(Interval[] snapshot, long longest, RequestSpan request) {
+        long start = request.startMicros();
+        long end = request.endMicros();
+        long pause = 0;
+        List<long[]> stalls = new ArrayList<>();
+        for (int i = firstStartingAtOrAfter(snapshot, start - longest); i < snapshot.length; i++) {
+            Interval interval = snapshot[i];
+            if (interval.startMicros() >= end) {
+                break;
+            }
+            if (!interval.stall()) {
+                pause += Math.max(0, Math.min(end, interval.endMicros()) - Math.max(start, interval.startMicros()));
+            } else if (interval.threadId() == request.threadId()) {
+                addPiece(stalls, Math.max(start, interval.startMicros()), Math.min(end, interval.endMicros()));
+            } else {
+                for (TaskSpan task : request.tasks()) {
+                    if (task.threadId() == interval.threadId()) {
+                        addPiece(stalls, Math.max(Math.max(start, task.startMicros()), interval.startMicros()),
+                                Math.min(Math.min(end, task.endMicros()), interval.endMicros()));
+                    }
+                }
+            }
+        }
+        return new long[] {pause, union(stalls)};
+    }
+
+    private static void addPiece(List<long[]> pieces, long start, long end) {
+        if (end > start) {
+            pieces.add(new long[] {start, end});
+        }
+    }
+
+    private static long union(List<long[]> pieces) {
+        pieces.sort(Comparator.comparingLong(piece -> piece[0]));
+        long total = 0;
+        long coveredUntil = Long.MIN_VALUE;
+        for (long[] piece : pieces) {
+            long from = Math.max(piece[0], coveredUntil);
+            if (piece[1] > from) {
+                total += piece[1] - from;
+                coveredUntil = piece[1];
+            }
+        }
+        return total;
+    }
+
+    private static int firstStartingAtOrAfter(Interval[] sorted, long micros) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid].startMicros() < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return p99 of the endpoint in ms, 0 until it has min-samples requests
+     */
+    private double threshold(Endpoint endpoint) {
+        if (endpoint.latency().count() < minSamples) {
+            return 0;
+        }
+        ValueAtPercentile[] p99 = endpoint.latency().takeSnapshot().percentileValues();
+        return p99.length == 0 ? 0 : p99[0].value(TimeUnit.MILLISECONDS);
+    }
+
+    private Endpoint endpoint(String method, String uri) {
+        return endpoints.computeIfAbsent(method + " " + uri, key -> new Endpoint(
+                Timer.builder("gc.demo.request.latency")
+                        .description("Request time seen by the pause correlation filter; its p99 is the outlier threshold")
+                        .tag("method", method)
+                        .tag("uri", uri)
+                        .publishPercentiles(0.99)
+                        // The default 1 significant digit rounds p99 up to a coarse bucket edge
+                        .percentilePrecision(2)
+                        .register(registry),
+                overlapTimer(method, uri, "pause"),
+                overlapTimer(method, uri, "stall"),
+                outlierCounter(method, uri, true),
+                outlierCounter(method, uri, false)));
+    }
+
+    private Timer overlapTimer(String method, String uri, String kind) {
+        return Timer.builder("gc.demo.request.gc.overlap")
+                .description("Time of a request spent inside GC pauses or its own allocation stalls")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("kind", kind)
+                .register(registry);
+    }
+
+    private Counter outlierCounter(String method, String uri, boolean gc) {
+        return Counter.builder("gc.demo.request.outliers")
+                .description("Requests slower than the p99 of their endpoint, by whether GC overlapped them")
+                .tag("method", method)
+                .tag("uri", uri)
+                .tag("gc", String.valueOf(gc))
+                .register(registry);
+    }
+
+    private double ratio(double part, double whole) {
+        return whole == 0 ? Double.NaN : part / whole;
+    }
+
+    private static long epochMicros(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000;
+    }
+
+    public Map<String, Object> getStats() {
+        double totalMs = requestMs.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("source", source);
+        stats.put("settleMs", settleMicros / MICROS_PER_MS);
+        stats.put("requestsCorrelated", requests.sum());
+        stats.put("pending", pendingCount.get());
+        stats.put("dropped", (long) dropped.count());
+        synchronized (intervals) {
+            stats.put("intervalsRetained", intervals.size());
+        }
+        stats.put("requestTimeInPausesPercent", String.format("%.2f", 100 * ratio(pauseMs.sum(), totalMs)));
+        stats.put("requestTimeInStallsPercent", String.format("%.2f", 100 * ratio(stallMs.sum(), totalMs)));
+        stats.put("outliers", outliers.sum());
+        stats.put("gcOutliers", gcOutliers.sum());
+        stats.put("outliersWithGcPercent", String.format("%.1f", 100 * ratio(gcOutliers.sum(), outliers.sum())));
+
+        Map<String, Object> byEndpoint = new TreeMap<>();
+        endpoints.forEach((key, endpoint) -> {
+            double endpointMs = endpoint.latency().totalTime(TimeUnit.MILLISECONDS);
+            double threshold = threshold(endpoint);
+            Map<String, Object> endpointStats = new LinkedHashMap<>();
+            endpointStats.put("requests", endpoint.latency().count());
+            endpointStats.put("p99Ms", threshold > 0 ? String.format("%.1f", threshold) : "n/a");
+            endpointStats.put("timeInPausesPercent", String.format("%.2f",
+                    100 * ratio(endpoint.pauseOverlap().totalTime(TimeUnit.MILLISECONDS), endpointMs)));
+            endpointStats.put("timeInStallsPercent", String.format("%.2f",
+                    100 * ratio(endpoint.stallOverlap().totalTime(TimeUnit.MILLISECONDS), endpointMs)));
+            endpointStats.put("outliers", (long) (endpoint.gcOutliers().count() + endpoint.otherOutliers().count()));
+            endpointStats.put("gcOutliers", (long) endpoint.gcOutliers().count());
+            byEndpoint.put(key, endpointStats);
+        });
+        stats.put("endpoints", byEndpoint);
+        synchronized (recentOutliers) {
+            stats.put("recentOutliers", new ArrayList<>(recentOutliers));
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.gcdemo.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Large response bodies served three ways, to show how much heap the I/O path itself costs.
+ *
+ * All modes serve the same bytes from one local temp file (created on first use,
+ * {@code file-mb} long; larger payloads wrap around it):
+ *
+ * BUFFERED   the whole payload is read into one byte[] and written in one go,
+ *            like returning a byte[] or a fully rendered body from a controller
+ * STREAMING  a reused chunk buffer is filled and written until the payload is done
+ * ZERO_COPY  FileChannel.transferTo into the response; nothing payload-sized is allocated
+ *
+ * Per mode: gc.demo.payload.bytes (written), gc.demo.payload.write (first byte read
+ * to last byte written) and gc.demo.payload.allocated (heap bytes allocated by the
+ * writing thread per response; not recorded on virtual threads, which report -1).
+ */
+@Service
+public class PayloadService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadService.class);
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+    private static final int MAX_CHUNK_KB = 1024;
+
+    public enum PayloadMode {
+        BUFFERED,
+        STREAMING,
+        ZERO_COPY
+    }
+
+    private final AllocationAccountingService accounting;
+    private final int fileMB;
+    private final String directory;
+    private final int maxMB;
+    private final Map<PayloadMode, ModeMeters> meters = new EnumMap<>(PayloadMode.class);
+
+    private Path file;
+    private FileChannel channel;
+
+    public PayloadService(MeterRegistry registry, AllocationAccountingService accounting,
+                          @Value("${gcdemo.payload.file-mb:256}") int fileMB,
+                          @Value("${gcdemo.payload.directory:}") String directory,
+                          @Value("${gcdemo.payload.max-mb:1024}") int maxMB) {
+        this.accounting = accounting;
+        this.fileMB = fileMB;
+        this.directory = directory;
+        this.maxMB = maxMB;
+
+        for (PayloadMode mode : PayloadMode.values()) {
+            String tag = mode.name().toLowerCase();
+            meters.put(mode, new ModeMeters(
+                Counter.builder("gc.demo.payload.bytes")
+                    .description("Payload bytes written to clients")
+                    .baseUnit("bytes")
+                    .tag("mode", tag)
+                    .register(registry),
+                Timer.builder("gc.demo.payload.write")
+                    .description("Time to produce and write one payload")
+                    .tag("mode", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry),
+                DistributionSummary.builder("gc.demo.payload.allocated")
+                    .description("Heap bytes allocated by the writing thread per payload")
+                    .baseUnit("bytes")
+                    .tag("mode", tag)
+                    .register(registry)));
+        }
+    }
+
+    private record ModeMeters(Counter bytes, Timer write, DistributionSummary allocated) {}
+
+    /**
+     * @throws IllegalArgumentException if mb is not between 1 and max-mb (BUFFERED
+     *                                  needs a single byte[], so max-mb is capped below 2GB)
+     */
+    public long payloadBytes(int mb) {
+        int limit = Math.min(maxMB, Integer.MAX_VALUE / BYTES_PER_MB - 1);
+        if (mb < 1 || mb > limit) {
+            throw new IllegalArgumentException("Payload must be between 1 and " + limit + " MB, got " + mb);
+        }
+        return (long) mb * BYTES_PER_MB;
+    }
+
+    /**
+     * @throws IllegalArgumentException if chunkKB is not between 1 and 1024
+     */
+    public int chunkBytes(int chunkKB) {
+        if (chunkKB < 1 || chunkKB > MAX_CHUNK_KB) {
+            throw new IllegalArgumentException("Chunk must be between 1 and " + MAX_CHUNK_KB + " KB, got " + chunkKB);
+        }
+        return chunkKB * 1024;
+    }
+
+    /**
+     * Reads the whole payload into one array, then writes it.
+     */
+    public void writeBuffered(long bytes, OutputStream out) throws IOException {
+        FileChannel source = source();
+        measure(PayloadMode.BUFFERED, bytes, () -> {
+            byte[] payload = read(source, (int) bytes);
+            out.write(payload);
+            out.flush();
+        });
+    }
+
+    private static byte[] read(FileChannel source, int bytes) throws IOException {
+        byte[] payload = new byte[bytes];
+        ByteBuffer target = ByteBuffer.wrap(payload);
+        long position = 0;
+        while (target.hasRemaining()) {
+            position += source.read(target, position % source.size());
+        }
+        return payload;
+    }
+
+    /**
+     * Writes the payload through one reused chunk buffer.
+     */
+    public void writeStreaming(long bytes, int chunkBytes, OutputStream out) throws IOException {
+        FileChannel source = source();
+        measure(PayloadMode.STREAMING, bytes, () -> {
+            ByteBuffer chunk = ByteBuffer.allocate(chunkBytes);
+            long written = 0;
+            while (written < bytes) {
+                chunk.clear().limit((int) Math.min(chunk.capacity(), bytes - written));
+                source.read(chunk, written % source.size());
+                out.write(chunk.array(), 0, chunk.position());
+                written += chunk.position();
+            }
+            out.flush();
+        });
+    }
+
+    /**
+     * Hands the payload to FileChannel.transferTo.
+     *
+     * The servlet output stream is not a socket channel, so the JDK cannot use
+     * sendfile here: it copies through its cached temporary direct buffer and the
+     * stream channel's small array instead. Neither grows with the payload.
+     */
+    public void writeZeroCopy(long bytes, OutputStream out) throws IOException {
+        FileChannel source = source();
+        measure(PayloadMode.ZERO_COPY, bytes, () -> {
+            WritableByteChannel target = Channels.newChannel(out);
+            long written = 0;
+            while (written < bytes) {
+                long position = written % source.size();
+                written += source.transferTo(position, Math.min(bytes - written, source.size() - position), target);
+            }
+            out.flush();
+        });
+    }
+
+    private interface Write {
+        void run() throws IOException;
+    }
+
+    private void measure(PayloadMode mode, long bytes, Write write) throws IOException {
+        ModeMeters modeMeters = meters.get(mode);
+        long allocatedBefore = accounting.currentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        write.run();
+        modeMeters.write().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        modeMeters.bytes().increment(bytes);
+        if (allocatedBefore >= 0) {
+            modeMeters.allocated().record(accounting.currentThreadAllocatedBytes() - allocatedBefore);
+        }
+    }
+
+    /**
+     * The payload file, created and filled with random bytes on first use.
+     */
+    private synchronized FileChannel source() throws IOException {
+        if (channel != null) {
+            return channel;
+        }
+        Path created = directory.isBlank()
+                ? Files.createTempFile("gc-demo-payload-", ".bin")
+                : Files.createTempFile(Path.of(directory), "gc-demo-payload-", ".bin");
+        created.toFile().deleteOnExit();
+
+        long start = System.nanoTime();
+        FileChannel opened = FileChannel.open(created, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer block = ByteBuffer.allocate(BYTES_PER_MB);
+        for (int i = 0; i < fileMB; i++) {
+            ThreadLocalRandom.current().nextBytes(block.array());
+            block.clear();
+            while (block.hasRemaining()) {
+                opened.write(block);
+            }
+        }
+        opened.force(false);
+        log.info("Payload file {} ({} MB) written in {} ms", created, fileMB,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        file = created;
+        channel = opened;
+        return channel;
+    }
+
+    /**
+     * Totals per mode: responses, MB, write throughput and heap allocated per payload.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (this) {
+            stats.put("file", file == null ? "not created yet" : file.toString());
+        }
+        stats.put("fileMB", fileMB);
+        stats.put("maxMB", maxMB);
+
+        Map<String, Object> modes = new LinkedHashMap<>();
+        meters.forEach((mode, modeMeters) -> {
+            double mb = modeMeters.bytes().count() / BYTES_PER_MB;
+            double seconds = modeMeters.write().totalTime(TimeUnit.SECONDS);
+            long responses = modeMeters.write().count();
+            double meanPayloadBytes = responses == 0 ? 0 : modeMeters.bytes().count() / responses;
+            double meanAllocatedBytes = modeMeters.allocated().mean();
+            Map<String, Object> modeStats = new LinkedHashMap<>();
+            modeStats.put("responses", responses);
+            modeStats.put("totalMB", String.format("%.1f", mb));
+            modeStats.put("writeMBPerSecond", String.format("%.1f", seconds == 0 ? 0 : mb / seconds));
+            modeStats.put("meanWriteMs", String.format("%.1f", modeMeters.write().mean(TimeUnit.MILLISECONDS)));
+            modeStats.put("meanAllocatedKB", String.format("%.1f", meanAllocatedBytes / 1024));
+            modeStats.put("allocatedBytesPerPayloadByte", String.format("%.4f",
+                meanPayloadBytes == 0 ? 0 : meanAllocatedBytes / meanPayloadBytes));
+            modes.put(mode.name(), modeStats);
+        });
+        stats.put("modes", modes);
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.cache.HeapReferenceDataset;
+import com.example.gcdemo.cache.MappedReferenceDataset;
+import com.example.gcdemo.cache.ReferenceDataset;
+import com.example.gcdemo.cache.ReferenceDataset.Record;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Long-lived reference data that requests read and derive short-lived objects from.
+ *
+ * Unlike the enhanced cache, which keeps churning, the dataset is built once and
+ * only read, like a catalogue or a rules table loaded at startup. It lives either
+ * on the heap (HEAP: one object graph per record, marked by every old-generation
+ * cycle) or in a memory-mapped temp file (MAPPED: only an offset index on the heap).
+ * Both hold identical, deterministically generated records, so a run with each
+ * storage compares GC work and RSS for the same data.
+ *
+ * Built on first use with gcdemo.dataset.* (DATASET_STORAGE, DATASET_MB), or
+ * rebuilt at any time with {@link #load}.
+ */
+@Service
+public class ReferenceDatasetService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReferenceDatasetService.class);
+
+    private static final int BYTES_PER_MB = 1024 * 1024;
+    // Encoded fixed fields plus a typical name ("item-123456 Widget")
+    private static final int RECORD_OVERHEAD_BYTES = 22 + 20;
+    private static final String[] NAME_WORDS = {"Widget", "Gadget", "Bracket", "Sprocket", "Flange", "Gasket"};
+
+    public enum DatasetStorage {
+        HEAP,
+        MAPPED
+    }
+
+    private final MeterRegistry registry;
+    private final AllocationAccountingService accounting;
+    private final FootprintService footprint;
+    private final DatasetStorage defaultStorage;
+    private final int defaultMB;
+    private final int attributeBytes;
+    private final String directory;
+
+    private volatile Loaded loaded;
+
+    public ReferenceDatasetService(MeterRegistry registry, AllocationAccountingService accounting,
+                                   FootprintService footprint,
+                                   @Value("${gcdemo.dataset.storage:HEAP}") DatasetStorage defaultStorage,
+                                   @Value("${gcdemo.dataset.mb:256}") int defaultMB,
+                                   @Value("${gcdemo.dataset.attribute-bytes:1024}") int attributeBytes,
+                                   @Value("${gcdemo.dataset.directory:}") String directory) {
+        this.registry = registry;
+        this.accounting = accounting;
+        this.footprint = footprint;
+        this.defaultStorage = defaultStorage;
+        this.defaultMB = defaultMB;
+        this.attributeBytes = Math.max(64, attributeBytes);
+        this.directory = directory;
+
+        Gauge.builder("gc.demo.dataset.data.bytes", this, s -> s.loaded == null ? 0 : s.loaded.dataset().dataBytes())
+                .description("Bytes of reference data")
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("gc.demo.dataset.heap.bytes", this, s -> s.loaded == null ? 0 : s.loaded.dataset().heapBytes())
+                .description("Approximate heap bytes the reference dataset keeps reachable")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * The dataset in use and how it was built.
+     */
+    public record Loaded(DatasetStorage storage, ReferenceDataset dataset, double buildMs) {}
+
+    /**
+     * Short-lived object derived from one record by a lookup.
+     */
+    private record Quote(long id, String displayName, double grossPrice, long attributeChecksum, int attributeBytes) {}
+
+    /**
+     * @param attributeBytesRead attribute bytes scanned by the lookups
+     */
+    public record QueryResult(DatasetStorage storage, int lookups, long attributeBytesRead, long checksum,
+                              double grossTotal, long durationNanos) {
+
+        public double durationMs() {
+            return durationNanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Builds a dataset of about {@code mb} MB in the given storage and swaps it in.
+     * The previous one is closed; lookups still using it finish normally.
+     */
+    public synchronized Loaded load(DatasetStorage storage, int mb) {
+        if (mb < 1) {
+            throw new IllegalArgumentException("Dataset size must be at least 1 MB, got " + mb);
+        }
+        int size = (int) Math.min(Integer.MAX_VALUE - 8, (long) mb * BYTES_PER_MB / (RECORD_OVERHEAD_BYTES + attributeBytes));
+        Loaded previous = loaded;
+        // Drop the old dataset first, so HEAP rebuilds do not need room for two copies
+        loaded = null;
+        if (previous != null) {
+            previous.dataset().close();
+        }
+
+        long start = System.nanoTime();
+        ReferenceDataset dataset;
+        try {
+            dataset = switch (storage) {
+                case HEAP -> new HeapReferenceDataset(size, this::generate);
+                case MAPPED -> {
+                    Path file = directory.isBlank()
+                            ? Files.createTempFile("gc-demo-dataset-", ".bin")
+                            : Files.createTempFile(Path.of(directory), "gc-demo-dataset-", ".bin");
+                    file.toFile().deleteOnExit();
+                    yield MappedReferenceDataset.create(file, size, this::generate);
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        loaded = new Loaded(storage, dataset, (System.nanoTime() - start) / 1_000_000.0);
+        log.info("Reference dataset built: {} records, {} MB, {} storage, {} ms", size,
+            dataset.dataBytes() / BYTES_PER_MB, storage, String.format("%.0f", loaded.buildMs()));
+        return loaded;
+    }
+
+    private Loaded current() {
+        Loaded current = loaded;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            return loaded != null ? loaded : load(defaultStorage, defaultMB);
+        }
+    }
+
+    /**
+     * Record {@code index}, the same in every storage and every run.
+     */
+    private Record generate(int index) {
+        SplittableRandom random = new SplittableRandom(index * 0x9E3779B97F4A7C15L);
+        String name = "item-" + index + " " + NAME_WORDS[random.nextInt(NAME_WORDS.length)];
+        // Attributes between 1/4 and 7/4 of the configured average
+        byte[] attributes = new byte[random.nextInt(attributeBytes / 4, attributeBytes * 7 / 4 + 1)];
+        random.nextBytes(attributes);
+        return new Record(index, name, random.nextInt(100, 100_000) / 100.0, attributes);
+    }
+
+    /**
+     * Looks up random records and turns each into a short-lived quote
+     * (decoded name, price with tax, checksum over all attribute bytes),
+     * then aggregates and drops the quotes.
+     */
+    public QueryResult query(int lookups) {
+        Loaded current = current();
+        ReferenceDataset dataset = current.dataset();
+        long start = System.nanoTime();
+
+        List<Quote> quotes = accounting.workload(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            List<Quote> derived = new ArrayList<>(lookups);
+            for (int i = 0; i < lookups; i++) {
+                derived.add(dataset.read(random.nextInt(dataset.size()), (id, name, price, attributes) ->
+                    new Quote(id, name.toUpperCase(), price * 1.2, checksum(attributes), attributes.remaining())));
+            }
+            return derived;
+        });
+
+        long attributeBytesRead = 0;
+        long checksum = 0;
+        double grossTotal = 0;
+        for (Quote quote : quotes) {
+            attributeBytesRead += quote.attributeBytes();
+            checksum ^= quote.attributeChecksum();
+            grossTotal += quote.grossPrice();
+        }
+        long durationNanos = System.nanoTime() - start;
+
+        String tag = current.storage().name().toLowerCase();
+        Timer.builder("gc.demo.dataset.query")
+                .description("Time to look up and derive objects from the reference dataset")
+                .tag("storage", tag)
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        Counter.builder("gc.demo.dataset.lookups")
+                .description("Reference dataset records looked up")
+                .tag("storage", tag)
+                .register(registry)
+                .increment(lookups);
+
+        return new QueryResult(current.storage(), lookups, attributeBytesRead, checksum, grossTotal, durationNanos);
+    }
+
+    private static long checksum(ByteBuffer attributes) {
+        long sum = 0;
+        int i = attributes.position();
+        for (; i + Long.BYTES <= attributes.limit(); i += Long.BYTES) {
+            sum = sum * 31 + attributes.getLong(i);
+        }
+        for (; i < attributes.limit(); i++) {
+            sum = sum * 31 + attributes.get(i);
+        }
+        return sum;
+    }
+
+    public DatasetStorage defaultStorage() {
+        return defaultStorage;
+    }
+
+    public int defaultMB() {
+        return defaultMB;
+    }
+
+    public Map<String, Object> getStats() {
+        Loaded current = loaded;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (current == null) {
+            stats.put("loaded", false);
+            stats.put("storage", defaultStorage);
+            stats.put("configuredMB", defaultMB);
+        } else {
+            stats.put("loaded", true);
+            stats.put("storage", current.storage());
+            stats.put("records", current.dataset().size());
+            stats.put("dataMB", String.format("%.1f", current.dataset().dataBytes() / (double) BYTES_PER_MB));
+            stats.put("heapMB", String.format("%.1f", current.dataset().heapBytes() / (double) BYTES_PER_MB));
+            stats.put("file", current.dataset() instanceof MappedReferenceDataset mapped ? mapped.file().toString() : "none");
+            stats.put("buildMs", String.format("%.0f", current.buildMs()));
+        }
+        double rss = footprint.snapshot().rss();
+        stats.put("rssMB", Double.isNaN(rss) ? "n/a" : String.format("%.1f", rss / BYTES_PER_MB));
+        return stats;
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (loaded != null) {
+            loaded.dataset().close();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.cache.ReferenceCache;
+import com.example.gcdemo.cache.ReferenceCache.Kind;
+import com.example.gcdemo.cache.ReferenceCache.Lookup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caches held by soft, weak and phantom references and Cleaner registrations
+ * (see {@link ReferenceCache}), to see what reference processing costs each collector.
+ *
+ * Each run looks up log-uniformly skewed keys (a few keys are hot) and allocates
+ * a value on every miss, so the key space and value size set the memory pressure.
+ * Per kind it reports where lookups were served from and how long entries took to
+ * be reclaimed after losing their last strong reference. The collector's own
+ * reference processing shows up as gc.demo.jfr.reference.* (see JfrStreamingService).
+ */
+@Service
+public class ReferenceWorkloadService {
+
+    private static final int BYTES_PER_KB = 1024;
+    private static final int BYTES_PER_MB = 1024 * 1024;
+
+    private final MeterRegistry registry;
+    private final AllocationAccountingService accounting;
+    private final int pinnedEntries;
+    private final Map<Kind, ReferenceCache> caches = new ConcurrentHashMap<>();
+    private final Map<Kind, Timer> reclaimTimers = new EnumMap<>(Kind.class);
+    private final Map<String, Counter> lookupCounters = new ConcurrentHashMap<>();
+
+    public ReferenceWorkloadService(MeterRegistry registry, AllocationAccountingService accounting,
+                                    @Value("${gcdemo.references.pinned:1000}") int pinnedEntries) {
+        this.registry = registry;
+        this.accounting = accounting;
+        this.pinnedEntries = pinnedEntries;
+
+        for (Kind kind : Kind.values()) {
+            String tag = kind.name().toLowerCase();
+            reclaimTimers.put(kind, Timer.builder("gc.demo.references.reclaim")
+                    .description("Time from an entry losing its last strong reference to it being enqueued or cleaned")
+                    .tag("kind", tag)
+                    .publishPercentiles(0.5, 0.99)
+                    .register(registry));
+
+            Gauge.builder("gc.demo.references.tracked", this, s -> s.ifActive(kind, ReferenceCache::trackedReferences))
+                    .description("Live reference objects or Cleaner registrations held by the cache")
+                    .tag("kind", tag)
+                    .register(registry);
+
+            Gauge.builder("gc.demo.references.pending", this, s -> s.ifActive(kind, ReferenceCache::pendingReclaim))
+                    .description("Entries no longer strongly reachable and not reclaimed yet")
+                    .tag("kind", tag)
+                    .register(registry);
+        }
+    }
+
+    public record RunResult(Kind kind, int operations, long pinnedHits, long referenceHits, long misses,
+                            long allocatedBytes, long durationNanos) {
+
+        public double hitRate() {
+            return operations == 0 ? 0 : (pinnedHits + referenceHits) / (double) operations;
+        }
+
+        public double durationMs() {
+            return durationNanos / 1_000_000.0;
+        }
+
+        public double allocatedMB() {
+            return allocatedBytes / (double) BYTES_PER_MB;
+        }
+    }
+
+    private ReferenceCache cache(Kind kind) {
+        return caches.computeIfAbsent(kind, k -> new ReferenceCache(k, pinnedEntries, this::onReclaimed));
+    }
+
+    /**
+     * Reads a cache without creating it (0 while the kind has not run).
+     */
+    private double ifActive(Kind kind, ToLongFunction<ReferenceCache> value) {
+        ReferenceCache cache = caches.get(kind);
+        return cache == null ? 0 : value.applyAsLong(cache);
+    }
+
+    private void onReclaimed(Kind kind, long nanosSinceUnpinned) {
+        reclaimTimers.get(kind).record(nanosSinceUnpinned, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param keySpace distinct keys; lookups favour a few of them (log-uniform)
+     * @param valueKB  size of the value created on a miss
+     */
+    public RunResult run(Kind kind, int operations, long keySpace, int valueKB) {
+        ReferenceCache cache = cache(kind);
+        int valueBytes = valueKB * BYTES_PER_KB;
+        long start = System.nanoTime();
+
+        long[] counts = accounting.workload(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long[] byLookup = new long[Lookup.values().length];
+            for (int i = 0; i < operations; i++) {
+                long id = keySpace - (long) Math.pow(keySpace, random.nextDouble());
+                byLookup[cache.get(id, valueBytes).ordinal()]++;
+            }
+            return byLookup;
+        });
+        long durationNanos = System.nanoTime() - start;
+
+        for (Lookup lookup : Lookup.values()) {
+            lookupCounter(kind, lookup).increment(counts[lookup.ordinal()]);
+        }
+        long misses = counts[Lookup.MISS.ordinal()];
+        return new RunResult(kind, operations, counts[Lookup.PINNED.ordinal()], counts[Lookup.REFERENCE.ordinal()],
+            misses, misses * valueBytes, durationNanos);
+    }
+
+    private Counter lookupCounter(Kind kind, Lookup lookup) {
+        return lookupCounters.computeIfAbsent(kind + "|" + lookup, key -> Counter.builder("gc.demo.references.lookups")
+                .description("Reference cache lookups by where they were served from")
+                .tag("kind", kind.name().toLowerCase())
+                .tag("result", lookup.name().toLowerCase())
+                .register(registry));
+    }
+
+    /**
+     * Drops the cache of one kind; its entries are left to the collector.
+     */
+    public void reset(Kind kind) {
+        ReferenceCache cache = caches.remove(kind);
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pinnedEntries", pinnedEntries);
+        for (Kind kind : Kind.values()) {
+            ReferenceCache cache = caches.get(kind);
+            Timer reclaim = reclaimTimers.get(kind);
+            Map<String, Object> kindStats = new LinkedHashMap<>();
+            kindStats.put("active", cache != null);
+            kindStats.put("pinned", cache == null ? 0 : cache.pinnedSize());
+            kindStats.put("trackedReferences", cache == null ? 0 : cache.trackedReferences());
+            kindStats.put("pendingReclaim", cache == null ? 0 : cache.pendingReclaim());
+            kindStats.put("reclaimed", reclaim.count());
+            kindStats.put("reclaimMeanMs", String.format("%.1f", reclaim.mean(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile percentile : reclaim.takeSnapshot().percentileValues()) {
+                kindStats.put("reclaimP" + (int) (percentile.percentile() * 100) + "Ms",
+                    String.format("%.1f", percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            kindStats.put("reclaimMaxMs", String.format("%.1f", reclaim.max(TimeUnit.MILLISECONDS)));
+            kindStats.put("hitRate", String.format("%.4f", hitRate(kind)));
+            stats.put(kind.name(), kindStats);
+        }
+        return stats;
+    }
+
+    private double hitRate(Kind kind) {
+        double hits = 0;
+        double total = 0;
+        for (Lookup lookup : Lookup.values()) {
+            double count = lookupCounter(kind, lookup).count();
+            total += count;
+            if (lookup != Lookup.MISS) {
+                hits += count;
+            }
+        }
+        return total == 0 ? 0 : hits / total;
+    }
+
+    @PreDestroy
+    public void close() {
+        caches.values().forEach(ReferenceCache::close);
+    }
+}
@@ -0,0 +1,526 @@
+package com.example.gcdemo.service;
+
+import com.example.gcdemo.service.AllocationProfileService.AllocationProfile;
+import com.example.gcdemo.service.AllocationProfileService.BufferStrategy;
+import com.example.gcdemo.service.AllocationProfileService.FillStrategy;
+import com.example.gcdemo.service.AllocationProfileService.ObjectShape;
+import com.example.gcdemo.service.AllocationProfileService.SizeDistribution;
+import com.example.gcdemo.service.LoadDriverService.LatencySummary;
+import com.example.gcdemo.service.LoadDriverService.LoadPlan;
+import com.example.gcdemo.service.LoadDriverService.LoadReport;
+import com.example.gcdemo.service.LoadDriverService.LoadRun;
+import com.example.gcdemo.service.WorkloadExecutorService.FanOut;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Service;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Declarative workload scenarios.
+ *
+ * A scenario is a list of phases (YAML or JSON), each with a duration, a target
+ * allocation rate (optionally ramped), the share of every request that
+ * survives, how long survivors live and how many workers drive the load. Phases
+ * run back to back on the open-loop driver against the existing services, so
+ * the same file produces the same traffic shape under every collector.
+ *
+ * Every operation is recorded with scenario/phase tags:
+ *   gc.demo.scenario.latency (measure=corrected|uncorrected)
+ *   gc.demo.scenario.bytes
+ *
+ * Built-in scenarios live in classpath:scenarios/*.yml.
+ */
+@Service
+public class ScenarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScenarioService.class);
+
+    private static final int MAX_FINISHED_RUNS = 20;
+    // Ramped phases run as this many constant-rate steps (at most one per second)
+    private static final int MAX_RAMP_STEPS = 10;
+    private static final String BUILTIN_LOCATION = "scenarios/";
+
+    private final MeterRegistry registry;
+    private final BetterMemoryService betterMemoryService;
+    private final EnhancedMemoryService enhancedMemoryService;
+    private final LoadDriverService loadDriver;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ScenarioRun> runs = new LinkedHashMap<>();
+    private final AtomicLong runSequence = new AtomicLong(0);
+
+    public ScenarioService(MeterRegistry registry, BetterMemoryService betterMemoryService,
+                           EnhancedMemoryService enhancedMemoryService, LoadDriverService loadDriver,
+                           ObjectMapper objectMapper) {
+        this.registry = registry;
+        this.betterMemoryService = betterMemoryService;
+        this.enhancedMemoryService = enhancedMemoryService;
+        this.loadDriver = loadDriver;
+        // Fail on misspelled keys instead of silently running with defaults
+        this.objectMapper = objectMapper.copy().enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    /**
+     * Which service a phase drives.
+     */
+    public enum Workload {
+        /** BetterMemoryService: survivors rotate out after survivorAgeRequests */
+        NATURAL,
+        /** EnhancedMemoryService: long-lived share goes into the bounded cache */
+        MIXED
+    }
+
+    public record Scenario(String name, String description, List<Phase> phases) {
+        public Scenario {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("scenario needs a name");
+            }
+            if (phases == null || phases.isEmpty()) {
+                throw new IllegalArgumentException("scenario needs at least one phase");
+            }
+            phases = List.copyOf(phases);
+        }
+    }
+
+    /**
+     * One phase. Omitted numbers and enums take the defaults below.
+     *
+     * @param durationSeconds       phase length (required)
+     * @param allocationMBPerSecond target allocation rate; 0 = idle phase (e.g. drain)
+     * @param rampToMBPerSecond     if set, the rate moves linearly to this value over the phase
+     * @param requestMB             MB allocated per operation (default 10)
+     * @param longLivedRatio        share of each operation that is long-lived (default 0.2), rounded to whole MB
+     * @param survivorAgeRequests   NATURAL only: survivor lifetime in requests (default: configured)
+     * @param concurrency           open-loop worker threads (default 1)
+     * @param sizeKB                unit size (default 1024); shape, distribution, fanOut and fill
+     *                              default like the HTTP endpoints
+     */
+    public record Phase(
+        String name,
+        int durationSeconds,
+        double allocationMBPerSecond,
+        Double rampToMBPerSecond,
+        int requestMB,
+        Double longLivedRatio,
+        long survivorAgeRequests,
+        int concurrency,
+        Workload workload,
+        ObjectShape shape,
+        SizeDistribution distribution,
+        int sizeKB,
+        int fanOut,
+        FillStrategy fill,
+        BufferStrategy buffers
+    ) {
+        public Phase {
+            if (durationSeconds <= 0) {
+                throw new IllegalArgumentException("phase " + name + ": durationSeconds must be positive");
+            }
+            if (allocationMBPerSecond < 0 || (rampToMBPerSecond != null && rampToMBPerSecond < 0)) {
+                throw new IllegalArgumentException("phase " + name + ": allocation rates must not be negative");
+            }
+            if (longLivedRatio != null && (longLivedRatio < 0 || longLivedRatio > 1)) {
+                throw new IllegalArgumentException("phase " + name + ": longLivedRatio must be between 0 and 1");
+            }
+            name = name == null ? "phase" : name;
+            requestMB = requestMB <= 0 ? 10 : requestMB;
+            longLivedRatio = longLivedRatio == null ? 0.2 : longLivedRatio;
+            concurrency = concurrency <= 0 ? 1 : concurrency;
+            workload = workload == null ? Workload.NATURAL : workload;
+            shape = shape == null ? ObjectShape.BYTE_ARRAY : shape;
+            distribution = distribution == null ? SizeDistribution.FIXED : distribution;
+            // 1MB units, so a request's short- and long-lived shares split into whole units
+            sizeKB = sizeKB <= 0 ? 1024 : sizeKB;
+            fanOut = fanOut <= 0 ? 8 : fanOut;
+            fill = fill == null ? FillStrategy.RANDOM : fill;
+            buffers = buffers == null ? BufferStrategy.FRESH : buffers;
+
+            double allocatingMB = 0;
+            int steps = rampToMBPerSecond == null ? 1 : Math.min(MAX_RAMP_STEPS, durationSeconds);
+            for (int step = 0; step < steps; step++) {
+                allocatingMB += stepRate(allocationMBPerSecond, rampToMBPerSecond, step, steps)
+                        * stepSeconds(durationSeconds, step, steps);
+            }
+            if (allocatingMB > 0 && allocatingMB < requestMB) {
+                throw new IllegalArgumentException(String.format(
+                    "phase %s: %.2f MB over %ds is less than one %dMB operation; raise the rate or the duration",
+                    name, allocatingMB, durationSeconds, requestMB));
+            }
+        }
+
+        int steps() {
+            return rampToMBPerSecond == null ? 1 : Math.min(MAX_RAMP_STEPS, durationSeconds);
+        }
+
+        /**
+         * Spreads the duration over the steps; earlier steps take the remainder.
+         */
+        int stepSeconds(int step) {
+            return stepSeconds(durationSeconds, step, steps());
+        }
+
+        /**
+         * Allocation rate of a step: constant, or the ramp's value at the middle of the step.
+         */
+        double stepRate(int step) {
+            return stepRate(allocationMBPerSecond, rampToMBPerSecond, step, steps());
+        }
+
+        private static int stepSeconds(int durationSeconds, int step, int steps) {
+            return durationSeconds / steps + (step < durationSeconds % steps ? 1 : 0);
+        }
+
+        private static double stepRate(double from, Double to, int step, int steps) {
+            return to == null ? from : from + (to - from) * (step + 0.5) / steps;
+        }
+
+        public AllocationProfile profile() {
+            return new AllocationProfile(shape, distribution, sizeKB, fanOut, fill, buffers);
+        }
+
+        int longLivedMB() {
+            return (int) Math.round(requestMB * longLivedRatio);
+        }
+
+        int shortLivedMB() {
+            return requestMB - longLivedMB();
+        }
+    }
+
+    /**
+     * Outcome of a phase, aggregated over its ramp steps.
+     */
+    public record PhaseResult(String name, long operations, long totalBytes, long durationNanos,
+                              LatencySummary corrected) {
+        public double allocationMBPerSecond() {
+            return durationNanos == 0 ? 0 : totalBytes / (1024.0 * 1024.0) / (durationNanos / 1_000_000_000.0);
+        }
+    }
+
+    public enum RunState {
+        RUNNING,
+        STOPPED,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * One execution of a scenario.
+     */
+    public static class ScenarioRun {
+        private final String id;
+        private final Scenario scenario;
+        private final long startedEpochMs = System.currentTimeMillis();
+        private final List<PhaseResult> results = Collections.synchronizedList(new ArrayList<>());
+        private volatile int currentPhase;
+        private volatile LoadRun currentStep;
+        private volatile RunState state = RunState.RUNNING;
+        private volatile String error;
+        private Thread thread;
+
+        ScenarioRun(String id, Scenario scenario) {
+            this.id = id;
+            this.scenario = scenario;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public Scenario scenario() {
+            return scenario;
+        }
+
+        public long startedEpochMs() {
+            return startedEpochMs;
+        }
+
+        public RunState state() {
+            return state;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        /**
+         * @return name of the phase in progress, or null when finished
+         */
+        public String currentPhase() {
+            return state == RunState.RUNNING ? scenario.phases().get(currentPhase).name() : null;
+        }
+
+        /**
+         * Live report of the current step of the phase in progress.
+         */
+        public Optional<LoadReport> currentStepReport() {
+            LoadRun step = currentStep;
+            return state == RunState.RUNNING && step != null ? Optional.of(step.report()) : Optional.empty();
+        }
+
+        public List<PhaseResult> results() {
+            synchronized (results) {
+                return new ArrayList<>(results);
+            }
+        }
+
+        boolean isFinished() {
+            return state != RunState.RUNNING;
+        }
+    }
+
+    /**
+     * Parses a YAML or JSON scenario (JSON is valid YAML).
+     */
+    public Scenario parse(String text) {
+        Object tree;
+        try {
+            tree = new Yaml(new SafeConstructor(new LoaderOptions())).load(text);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Not valid YAML/JSON: " + e.getMessage(), e);
+        }
+        try {
+            return objectMapper.convertValue(tree, Scenario.class);
+        } catch (IllegalArgumentException e) {
+            // Jackson wraps the record validation errors; surface the innermost message
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            throw new IllegalArgumentException("Invalid scenario: " + cause.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return names of the scenarios bundled in classpath:scenarios/
+     */
+    public List<String> builtinNames() {
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver()
+                    .getResources("classpath:" + BUILTIN_LOCATION + "*.yml");
+            List<String> names = new ArrayList<>();
+            for (Resource resource : resources) {
+                String file = resource.getFilename();
+                names.add(file.substring(0, file.length() - ".yml".length()));
+            }
+            Collections.sort(names);
+            return names;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public Scenario loadBuiltin(String name) {
+        if (!name.matches("[a-z0-9-]+")) {
+            throw new IllegalArgumentException("Invalid scenario name: " + name);
+        }
+        ClassPathResource resource = new ClassPathResource(BUILTIN_LOCATION + name + ".yml");
+        if (!resource.exists()) {
+            throw new IllegalArgumentException("Unknown scenario: " + name + " (available: " + builtinNames() + ")");
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return parse(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts the scenario on its own thread. Only one scenario runs at a time,
+     * so runs never overlap and skew each other.
+     *
+     * @throws IllegalStateException if another scenario is still running
+     */
+    public ScenarioRun start(Scenario scenario) {
+        ScenarioRun run;
+        synchronized (runs) {
+            Optional<ScenarioRun> active = runs.values().stream().filter(r -> !r.isFinished()).findFirst();
+            if (active.isPresent()) {
+                throw new IllegalStateException("Scenario " + active.get().id() + " is still running");
+            }
+            run = new ScenarioRun("scenario-" + runSequence.incrementAndGet(), scenario);
+            ScenarioRun created = run;
+            run.thread = Thread.ofPlatform()
+                    .name(run.id())
+                    .daemon(true)
+                    .unstarted(() -> execute(created));
+            runs.put(run.id(), run);
+            pruneFinished();
+        }
+
+        run.thread.start();
+        return run;
+    }
+
+    private void pruneFinished() {
+        List<String> finished = runs.values().stream().filter(ScenarioRun::isFinished).map(ScenarioRun::id).toList();
+        for (int i = 0; i < finished.size() - MAX_FINISHED_RUNS; i++) {
+            runs.remove(finished.get(i));
+        }
+    }
+
+    private void execute(ScenarioRun run) {
+        log.info("Scenario {} ({}) started", run.id(), run.scenario().name());
+        try {
+            List<Phase> phases = run.scenario().phases();
+            for (int i = 0; i < phases.size() && run.state == RunState.RUNNING; i++) {
+                run.currentPhase = i;
+                run.results.add(executePhase(run, phases.get(i)));
+            }
+            if (run.state == RunState.RUNNING) {
+                run.state = RunState.COMPLETED;
+            }
+        } catch (InterruptedException e) {
+            run.state = RunState.STOPPED;
+        } catch (RuntimeException | Error e) {
+            // An OutOfMemoryError must not leave the run RUNNING, or no scenario can start again
+            log.warn("Scenario {} failed", run.id(), e);
+            run.error = e.getMessage() != null ? e.getMessage() : e.toString();
+            run.state = RunState.FAILED;
+        }
+        log.info("Scenario {} {}", run.id(), run.state);
+    }
+
+    private PhaseResult executePhase(ScenarioRun run, Phase phase) throws InterruptedException {
+        String scenarioName = run.scenario().name();
+        Counter bytesCounter = Counter.builder("gc.demo.scenario.bytes")
+                .description("Bytes allocated by scenario phases")
+                .baseUnit("bytes")
+                .tag("scenario", scenarioName)
+                .tag("phase", phase.name())
+                .register(registry);
+        Timer corrected = latencyTimer(scenarioName, phase.name(), "corrected");
+        Timer uncorrected = latencyTimer(scenarioName, phase.name(), "uncorrected");
+
+        Histogram latency = null;
+        long operations = 0;
+        long totalBytes = 0;
+        long phaseStart = System.nanoTime();
+
+        for (int step = 0; step < phase.steps() && run.state == RunState.RUNNING; step++) {
+            int stepSeconds = phase.stepSeconds(step);
+            double rate = phase.stepRate(step);
+
+            if (rate <= 0) {
+                TimeUnit.SECONDS.sleep(stepSeconds);
+                continue;
+            }
+
+            LoadPlan plan = new LoadPlan(rate / phase.requestMB(), stepSeconds, phase.concurrency());
+            LoadRun stepRun = loadDriver.start(plan, () -> {
+                long bytes = operation(phase);
+                bytesCounter.increment(bytes);
+                return bytes;
+            }, corrected, uncorrected);
+
+            run.currentStep = stepRun;
+            try {
+                stepRun.await();
+            } finally {
+                run.currentStep = null;
+            }
+
+            if (stepRun.failure() != null) {
+                throw new IllegalStateException("Load worker died: " + stepRun.failure(), stepRun.failure());
+            }
+            LoadReport report = stepRun.report();
+            operations += report.operations();
+            totalBytes += report.totalBytes();
+            if (latency == null) {
+                latency = stepRun.correctedHistogram().copy();
+            } else {
+                latency.add(stepRun.correctedHistogram());
+            }
+        }
+
+        return new PhaseResult(
+            phase.name(),
+            operations,
+            totalBytes,
+            System.nanoTime() - phaseStart,
+            latency == null ? new LatencySummary(0, 0, 0, 0, 0) : LatencySummary.of(latency)
+        );
+    }
+
+    private long operation(Phase phase) {
+        return switch (phase.workload()) {
+            case NATURAL -> betterMemoryService.naturalGenerationalWorkload(
+                phase.shortLivedMB(), phase.longLivedMB(), phase.profile(), FanOut.INLINE,
+                phase.survivorAgeRequests()).totalBytes();
+            case MIXED -> enhancedMemoryService.mixedWorkload(
+                phase.shortLivedMB(), phase.longLivedMB(), phase.profile()).totalBytes();
+        };
+    }
+
+    private Timer latencyTimer(String scenario, String phase, String measure) {
+        return Timer.builder("gc.demo.scenario.latency")
+                .description("Scenario operation latency (corrected: from intended start, uncorrected: from actual start)")
+                .tag("scenario", scenario)
+                .tag("phase", phase)
+                .tag("measure", measure)
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .register(registry);
+    }
+
+    public Optional<ScenarioRun> find(String id) {
+        synchronized (runs) {
+            return Optional.ofNullable(runs.get(id));
+        }
+    }
+
+    /**
+     * @return all known runs, oldest first
+     */
+    public List<ScenarioRun> list() {
+        synchronized (runs) {
+            return new ArrayList<>(runs.values());
+        }
+    }
+
+    /**
+     * Stops the run: the current step stops scheduling and no further phases start.
+     */
+    public Optional<ScenarioRun> stop(String id) {
+        Optional<ScenarioRun> run = find(id);
+        run.filter(r -> !r.isFinished()).ifPresent(r -> {
+            r.state = RunState.STOPPED;
+            LoadRun step = r.currentStep;
+            if (step != null) {
+                step.stop();
+            }
+            // Wakes idle phases
+            r.thread.interrupt();
+        });
+        return run;
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        list().forEach(run -> stop(run.id()));
+    }
+}
@@ -0,0 +1,423 @@
+package com.example.gcdemo.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Runs one request's workload as N concurrent tasks.
+ *
+ * PLATFORM tasks share a fixed pool of platform threads (sized like the Tomcat
+ * worker pool), so concurrency is capped by the pool.
+ * VIRTUAL tasks each get their own virtual thread, so thousands of allocating
+ * tasks - and their stack chunks on the heap - can be live at once, up to
+ * max-virtual-tasks per request and running across all requests.
+ * FORK_JOIN tasks run as a parallel stream in a ForkJoinPool whose parallelism is
+ * the task count, so N tasks keep N cores allocating (TLAB refills, young-gen
+ * pressure, GC worker contention). For these, the allocation rate per task and per
+ * request is recorded by workload and parallelism, and the scaling efficiency -
+ * rate at N divided by N times the rate at 1 - shows where adding cores stops
+ * paying off under the running collector. The rates are read from the workers'
+ * allocated-bytes counters directly, so they do not need allocation accounting.
+ *
+ * Every task runs as workload of the request that submitted it
+ * (see {@link AllocationAccountingService}), on whichever thread it lands.
+ * Tasks off the request thread are reported to task listeners, so a request can
+ * be followed onto the threads that worked for it (see {@link PauseCorrelationService}).
+ */
+@Service
+public class WorkloadExecutorService {
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final AllocationAccountingService accounting;
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private final boolean allocationRates;
+    private final ExecutorService platformExecutor;
+    private final ExecutorService virtualExecutor;
+    private final AtomicInteger activePlatformTasks = new AtomicInteger(0);
+    private final AtomicInteger activeVirtualTasks = new AtomicInteger(0);
+    private final AtomicInteger activeForkJoinTasks = new AtomicInteger(0);
+    private final MeterRegistry registry;
+    private final int maxParallelism;
+    private final int maxVirtualTasks;
+    // Virtual tasks running across all requests; the rest wait for a permit before allocating
+    private final Semaphore virtualPermits;
+    // One pool per parallelism in use; idle workers time out, so unused pools hold no threads
+    private final Map<Integer, ForkJoinPool> forkJoinPools = new ConcurrentHashMap<>();
+    private final List<Consumer<TaskRun>> taskListeners = new CopyOnWriteArrayList<>();
+    private final Map<String, Map<Integer, Scaling>> scaling = new ConcurrentHashMap<>();
+
+    public WorkloadExecutorService(
+            MeterRegistry registry,
+            AllocationAccountingService accounting,
+            @Value("${gcdemo.execution.platform-threads:200}") int platformThreads,
+            @Value("${gcdemo.execution.max-parallelism:0}") int maxParallelism,
+            @Value("${gcdemo.execution.max-virtual-tasks:10000}") int maxVirtualTasks) {
+
+        this.registry = registry;
+        this.accounting = accounting;
+        this.allocationRates = threads.isThreadAllocatedMemorySupported();
+        if (allocationRates) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+        this.maxParallelism = maxParallelism > 0 ? maxParallelism : 4 * Runtime.getRuntime().availableProcessors();
+        this.maxVirtualTasks = Math.max(1, maxVirtualTasks);
+        this.virtualPermits = new Semaphore(this.maxVirtualTasks);
+        this.platformExecutor = Executors.newFixedThreadPool(
+                platformThreads, Thread.ofPlatform().name("workload-", 0).daemon(true).factory());
+        this.virtualExecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("workload-virtual-", 0).factory());
+
+        Gauge.builder("gc.demo.fanout.active.tasks", activePlatformTasks, AtomicInteger::get)
+                .description("Workload tasks currently running")
+                .tag("mode", "platform")
+                .register(registry);
+
+        Gauge.builder("gc.demo.fanout.active.tasks", activeVirtualTasks, AtomicInteger::get)
+                .description("Workload tasks currently running")
+                .tag("mode", "virtual")
+                .register(registry);
+
+        Gauge.builder("gc.demo.fanout.active.tasks", activeForkJoinTasks, AtomicInteger::get)
+                .description("Workload tasks currently running")
+                .tag("mode", "fork_join")
+                .register(registry);
+    }
+
+    public enum ExecutionMode {
+        PLATFORM,
+        VIRTUAL,
+        FORK_JOIN
+    }
+
+    /**
+     * A fan-out task that ran on another thread than the request that submitted it.
+     *
+     * @param requestThreadId Java thread id of the submitting request thread
+     * @param threadId        Java thread id the task ran on
+     */
+    public record TaskRun(long requestThreadId, long threadId, Instant start, Instant end) {}
+
+    /**
+     * Bytes shared by all tasks of one request. Each task claims a unit before
+     * allocating it, so the request allocates its whole budget (short of one unit)
+     * however it is split, and no unit is lost to rounding per task.
+     */
+    public static final class Budget {
+
+        private final AtomicLong remaining;
+
+        public Budget(long bytes) {
+            this.remaining = new AtomicLong(bytes);
+        }
+
+        /**
+         * @return false if fewer than {@code bytes} are left; nothing is claimed then
+         */
+        public boolean claim(long bytes) {
+            long left;
+            do {
+                left = remaining.get();
+                if (left < bytes) {
+                    return false;
+                }
+            } while (!remaining.compareAndSet(left, left - bytes));
+            return true;
+        }
+    }
+
+    /**
+     * Allocation rates of one workload at one parallelism.
+     *
+     * @param rate       bytes per second allocated by all tasks of a request, over its wall time
+     * @param workerRate bytes per second allocated by one task, over its own run time
+     */
+    private record Scaling(DistributionSummary rate, DistributionSummary workerRate, LongAdder workers) {}
+
+    /**
+     * How a request's workload is split.
+     *
+     * @param tasks number of concurrent tasks (the parallelism for FORK_JOIN), sharing the request's budget;
+     *              1 runs inline on the request thread, except for FORK_JOIN
+     * @param mode  kind of thread the tasks run on
+     */
+    public record FanOut(int tasks, ExecutionMode mode) {
+
+        public static final FanOut INLINE = new FanOut(1, ExecutionMode.PLATFORM);
+
+        public FanOut {
+            if (tasks < 1) {
+                throw new IllegalArgumentException("tasks must be at least 1: " + tasks);
+            }
+        }
+
+        /**
+         * Value of the "mode" tag on workload metrics.
+         */
+        public String modeTag() {
+            return tasks == 1 && mode != ExecutionMode.FORK_JOIN ? "inline" : mode.name().toLowerCase();
+        }
+    }
+
+    /**
+     * Runs {@code fanOut.tasks()} copies of the task concurrently and waits for all of them.
+     *
+     * @param workload name the FORK_JOIN scaling metrics are tagged with
+     * @param task     receives the task index, returns its result
+     * @return results in task index order
+     * @throws IllegalArgumentException if a FORK_JOIN parallelism exceeds max-parallelism
+     *                                  or VIRTUAL tasks exceed max-virtual-tasks
+     */
+    public <T> List<T> fanOut(String workload, FanOut fanOut, IntFunction<T> task) {
+        AllocationAccountingService.RequestAllocation request = accounting.current();
+        long requestThreadId = Thread.currentThread().threadId();
+        if (fanOut.mode() == ExecutionMode.FORK_JOIN) {
+            return forkJoin(workload, fanOut.tasks(), request, requestThreadId, task);
+        }
+        if (fanOut.tasks() == 1) {
+            return List.of(accounting.workload(request, () -> task.apply(0)));
+        }
+
+        boolean virtual = fanOut.mode() == ExecutionMode.VIRTUAL;
+        if (virtual && fanOut.tasks() > maxVirtualTasks) {
+            throw new IllegalArgumentException(
+                    "VIRTUAL tasks " + fanOut.tasks() + " exceed max-virtual-tasks " + maxVirtualTasks);
+        }
+        ExecutorService executor = virtual ? virtualExecutor : platformExecutor;
+        AtomicInteger active = virtual ? activeVirtualTasks : activePlatformTasks;
+
+        List<Future<T>> futures = new ArrayList<>(fanOut.tasks());
+        for (int i = 0; i < fanOut.tasks(); i++) {
+            int index = i;
+            futures.add(executor.submit(() -> {
+                if (virtual) {
+                    virtualPermits.acquire();
+                }
+                active.incrementAndGet();
+                try {
+                    return runTask(request, requestThreadId, task, index);
+                } finally {
+                    active.decrementAndGet();
+                    if (virtual) {
+                        virtualPermits.release();
+                    }
+                }
+            }));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Interrupted while waiting for workload tasks", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw rethrow(e);
+        }
+        return results;
+    }
+
+    private <T> List<T> forkJoin(String workload, int parallelism,
+                                 AllocationAccountingService.RequestAllocation request, long requestThreadId,
+                                 IntFunction<T> task) {
+        if (parallelism > maxParallelism) {
+            throw new IllegalArgumentException(
+                    "FORK_JOIN parallelism " + parallelism + " exceeds max-parallelism " + maxParallelism);
+        }
+        ForkJoinPool pool = forkJoinPools.computeIfAbsent(parallelism, this::newForkJoinPool);
+        Scaling stats = scaling(workload, parallelism);
+        LongAdder allocated = new LongAdder();
+        Map<Thread, Boolean> workers = new ConcurrentHashMap<>();
+
+        long start = System.nanoTime();
+        Future<List<T>> run = pool.submit(() -> IntStream.range(0, parallelism).parallel()
+                .mapToObj(index -> {
+                    activeForkJoinTasks.incrementAndGet();
+                    workers.put(Thread.currentThread(), Boolean.TRUE);
+                    long taskStart = System.nanoTime();
+                    long before = allocatedBytes();
+                    try {
+                        return runTask(request, requestThreadId, task, index);
+                    } finally {
+                        if (before >= 0) {
+                            long bytes = allocatedBytes() - before;
+                            allocated.add(bytes);
+                            stats.workerRate().record(bytes * 1e9 / Math.max(1, System.nanoTime() - taskStart));
+                        }
+                        activeForkJoinTasks.decrementAndGet();
+                    }
+                })
+                .toList());
+
+        List<T> results;
+        try {
+            results = run.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.cancel(true);
+            throw new IllegalStateException("Interrupted while waiting for workload tasks", e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+        if (allocationRates) {
+            stats.rate().record(allocated.sum() * 1e9 / Math.max(1, System.nanoTime() - start));
+            stats.workers().add(workers.size());
+        }
+        return results;
+    }
+
+    /**
+     * Bytes allocated by the current (fork-join worker) thread, or -1 if the JVM cannot tell.
+     */
+    private long allocatedBytes() {
+        return allocationRates ? threads.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private <T> T runTask(AllocationAccountingService.RequestAllocation request, long requestThreadId,
+                          IntFunction<T> task, int index) {
+        if (taskListeners.isEmpty() || Thread.currentThread().threadId() == requestThreadId) {
+            return accounting.workload(request, () -> task.apply(index));
+        }
+        Instant start = Instant.now();
+        try {
+            return accounting.workload(request, () -> task.apply(index));
+        } finally {
+            TaskRun run = new TaskRun(requestThreadId, Thread.currentThread().threadId(), start, Instant.now());
+            for (Consumer<TaskRun> listener : taskListeners) {
+                listener.accept(run);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener called on the task's thread after every fan-out task
+     * that ran off its request thread.
+     */
+    public void addTaskListener(Consumer<TaskRun> listener) {
+        taskListeners.add(listener);
+    }
+
+    private ForkJoinPool newForkJoinPool(int parallelism) {
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            worker.setName("workload-fj" + parallelism + "-" + worker.getPoolIndex());
+            return worker;
+        }, null, false);
+    }
+
+    private Scaling scaling(String workload, int parallelism) {
+        return scaling.computeIfAbsent(workload, w -> new ConcurrentHashMap<>())
+                .computeIfAbsent(parallelism, p -> {
+                    Gauge.builder("gc.demo.parallel.efficiency", () -> efficiency(workload, p))
+                            .description("Allocation rate at this parallelism over parallelism times the rate at 1")
+                            .tag("workload", workload)
+                            .tag("parallelism", String.valueOf(p))
+                            .register(registry);
+                    return new Scaling(
+                            DistributionSummary.builder("gc.demo.parallel.rate")
+                                    .description("Bytes per second allocated by all tasks of a request")
+                                    .baseUnit("bytes")
+                                    .tag("workload", workload)
+                                    .tag("parallelism", String.valueOf(p))
+                                    .register(registry),
+                            DistributionSummary.builder("gc.demo.parallel.worker.rate")
+                                    .description("Bytes per second allocated by one task on its worker")
+                                    .baseUnit("bytes")
+                                    .tag("workload", workload)
+                                    .tag("parallelism", String.valueOf(p))
+                                    .register(registry),
+                            new LongAdder());
+                });
+    }
+
+    /**
+     * @return mean rate at {@code parallelism} / ({@code parallelism} x mean rate at 1), NaN until both are measured
+     */
+    private double efficiency(String workload, int parallelism) {
+        Map<Integer, Scaling> levels = scaling.getOrDefault(workload, Map.of());
+        Scaling baseline = levels.get(1);
+        Scaling level = levels.get(parallelism);
+        if (baseline == null || level == null || baseline.rate().count() == 0 || level.rate().count() == 0) {
+            return Double.NaN;
+        }
+        return level.rate().mean() / (parallelism * baseline.rate().mean());
+    }
+
+    private static RuntimeException rethrow(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (e.getCause() instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException("Workload task failed", e.getCause());
+    }
+
+    /**
+     * FORK_JOIN allocation rates and scaling efficiency per workload, by parallelism
+     */
+    public Map<String, Object> getScalingStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxParallelism", maxParallelism);
+        stats.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        Map<String, Object> workloads = new TreeMap<>();
+        scaling.forEach((workload, levels) -> {
+            Map<Integer, Object> byParallelism = new TreeMap<>();
+            levels.forEach((parallelism, level) -> {
+                long requests = level.rate().count();
+                double efficiency = efficiency(workload, parallelism);
+                Map<String, Object> levelStats = new LinkedHashMap<>();
+                levelStats.put("requests", requests);
+                levelStats.put("meanWorkersUsed", String.format("%.1f",
+                        requests == 0 ? 0 : level.workers().sum() / (double) requests));
+                levelStats.put("allocationMBps", String.format("%.1f", level.rate().mean() / BYTES_PER_MB));
+                levelStats.put("perWorkerMBps", String.format("%.1f", level.workerRate().mean() / BYTES_PER_MB));
+                levelStats.put("efficiencyPercent",
+                        Double.isNaN(efficiency) ? "n/a" : String.format("%.0f", efficiency * 100));
+                byParallelism.put(parallelism, levelStats);
+            });
+            workloads.put(workload, byParallelism);
+        });
+        stats.put("workloads", workloads);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        platformExecutor.shutdownNow();
+        virtualExecutor.shutdownNow();
+        forkJoinPools.values().forEach(ForkJoinPool::shutdownNow);
+    }
+}